@@ -0,0 +1,113 @@
+package com.example.account.domain;
+
+import com.example.account.AccountApplication;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.service.AccountService;
+import com.example.account.service.TransactionIdGenerator;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 거래내역 rows건 insert (chunk 1000건마다 트랜잭션 하나)
+* identity와 같은 조건(allocation 1, batch 1)과 pooled-lo, batch insert를 각각/같이 켠 경우를 비교
+* 한번 실행에 rows건 전체를 넣는 시간을 잰다. (기본 100만건)
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BulkInsertBenchmark {
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"1", "50"})
+    private int allocationSize;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionRepository transactionRepository;
+    private TransactionIdGenerator transactionIdGenerator;
+    private TransactionTemplate transactionTemplate;
+    private Account account;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.redis.port=6394",
+                        "--spring.profiles.active=dev",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--spring.jpa.properties.account.id.allocation_size=" + allocationSize,
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "--logging.level.root=WARN",
+                        "--account.journal.dir=" + Files.createTempDirectory("journal"));
+        transactionRepository = context.getBean(TransactionRepository.class);
+        transactionIdGenerator = context.getBean(TransactionIdGenerator.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        String accountNumber = context.getBean(AccountService.class)
+                .createAccount(1L, 0L)
+                .getAccountNumber();
+        account = context.getBean(AccountRepository.class).findByAccountNumber(accountNumber).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int insert() {
+        int inserted = 0;
+        while (inserted < rows) {
+            int size = Math.min(CHUNK_SIZE, rows - inserted);
+            List<Transaction> chunk = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                chunk.add(Transaction.builder()
+                        .transactionType(TransactionType.USE)
+                        .transactionResultType(TransactionResultType.F)
+                        .account(account)
+                        .amount(1L)
+                        .balanceSnapshot(0L)
+                        .transactionId(transactionIdGenerator.nextTransactionId())
+                        .transactedAt(LocalDateTime.now())
+                        .build());
+            }
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.saveAll(chunk));
+            inserted += size;
+        }
+        return inserted;
+    }
+}
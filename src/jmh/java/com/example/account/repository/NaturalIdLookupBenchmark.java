@@ -0,0 +1,108 @@
+package com.example.account.repository;
+
+import com.example.account.AccountApplication;
+import com.example.account.domain.TransactionIdCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 테이블 크기(rows)에 따른 계좌번호/거래아이디 조회 시간 (unique index라면 크기와 상관없이 평평해야 한다)
+* ACCOUNT_NUMBER : AccountRepository.findByAccountNumber (natural id -> PK)
+* TRANSACTION_ID : TransactionRepository.findByTransactionId
+* 매번 임의의 키를 고르므로 natural id cache가 아니라 index 조회 시간이 대부분이다.
+* 측정하는 테이블에만 rows건을 SQL로 직접 넣는다. (1000만건은 heap을 크게 잡는다)
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class NaturalIdLookupBenchmark {
+    private static final long FIRST_ID = 100_000_000L;
+    private static final long FIRST_ACCOUNT_NUMBER = 5_000_000_000L;
+    private static final long INSERT_CHUNK = 1_000_000L;
+
+    public enum Lookup {
+        ACCOUNT_NUMBER, TRANSACTION_ID
+    }
+
+    @Param({"10000", "1000000", "10000000"})
+    private long rows;
+
+    @Param({"ACCOUNT_NUMBER", "TRANSACTION_ID"})
+    private Lookup lookup;
+
+    private ConfigurableApplicationContext context;
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.redis.port=6396",
+                        "--spring.profiles.active=dev",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--account.journal.dir=" + Files.createTempDirectory("journal"));
+        accountRepository = context.getBean(AccountRepository.class);
+        transactionRepository = context.getBean(TransactionRepository.class);
+
+        //거래는 모두 계좌 하나(FIRST_ID)에 건다.
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        long accounts = lookup == Lookup.ACCOUNT_NUMBER ? rows : 1L;
+        for (long from = 0; from < accounts; from += INSERT_CHUNK) {
+            jdbcTemplate.update("insert into account(id, account_user_id, account_number, account_status,"
+                            + " balance, version, regitered_at, created_at, updated_at)"
+                            + " select ? + x, 1, cast(? + x as varchar), 'IN_USE', 0, 0, now(), now(), now()"
+                            + " from system_range(?, ?)",
+                    FIRST_ID, FIRST_ACCOUNT_NUMBER, from, Math.min(from + INSERT_CHUNK, accounts) - 1);
+        }
+        if (lookup == Lookup.TRANSACTION_ID) {
+            for (long from = 0; from < rows; from += INSERT_CHUNK) {
+                jdbcTemplate.update("insert into transaction(id, account_id, transaction_type,"
+                                + " transaction_result_type, amount, balance_snapshot, transaction_id,"
+                                + " transacted_at, created_at, updated_at)"
+                                + " select ? + x, ?, 'USE', 'S', 1, 0, x, now(), now(), now()"
+                                + " from system_range(?, ?)",
+                        FIRST_ID, FIRST_ID, from, Math.min(from + INSERT_CHUNK, rows) - 1);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object lookup() {
+        long key = ThreadLocalRandom.current().nextLong(rows);
+        if (lookup == Lookup.ACCOUNT_NUMBER) {
+            return accountRepository.findByAccountNumber(String.valueOf(FIRST_ACCOUNT_NUMBER + key)).get();
+        }
+        return transactionRepository.findByTransactionId(TransactionIdCodec.format(key)).get();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.account.repository;
+
+import com.example.account.AccountApplication;
+import com.example.account.domain.Account;
+import com.example.account.dto.TransactionDto;
+import com.example.account.service.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 거래 조회 응답 : 엔티티(Transaction, Account) 로딩 후 변환 vs projection 쿼리
+* 요청당 할당량은 -prof gc의 gc.alloc.rate.norm으로 비교한다.
+* ./gradlew jmh -PjmhIncludes=TransactionLookup -PjmhProfilers=gc
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionLookupBenchmark {
+    private static final String TRANSACTION_ID = "0000000000100000000";
+
+    private ConfigurableApplicationContext context;
+    private TransactionRepository transactionRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.redis.port=6400",
+                        "--spring.profiles.active=dev",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--account.journal.dir=" + Files.createTempDirectory("journal"));
+        transactionRepository = context.getBean(TransactionRepository.class);
+        String accountNumber = context.getBean(AccountService.class).createAccount(1L, 1000L).getAccountNumber();
+        Account account = context.getBean(AccountRepository.class).findByAccountNumber(accountNumber).get();
+
+        context.getBean(JdbcTemplate.class).update("insert into transaction(id, account_id, transaction_type,"
+                        + " transaction_result_type, amount, balance_snapshot, transaction_id,"
+                        + " transacted_at, created_at, updated_at)"
+                        + " values(100000000, ?, 'USE', 'S', 100, 900, ?, now(), now(), now())",
+                account.getId(), TRANSACTION_ID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionDto entity() {
+        return TransactionDto.fromEntity(transactionRepository.findByTransactionId(TRANSACTION_ID).get());
+    }
+
+    @Benchmark
+    public TransactionDto projection() {
+        return transactionRepository.findDtoByTransactionId(TRANSACTION_ID).get();
+    }
+}
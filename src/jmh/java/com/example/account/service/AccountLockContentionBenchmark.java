@@ -0,0 +1,119 @@
+package com.example.account.service;
+
+import com.example.account.AccountApplication;
+import com.example.account.exception.AccountException;
+import com.example.account.type.LockStrategy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 계좌 하나에 8개 스레드가 동시에 잔액사용할때 lock 전략별 처리량
+* LockAopAspect와 같은 순서(handler lock -> useBalance -> unlock)로 호출한다.
+* REDIS : Redisson lock 대기
+* PESSIMISTIC : SELECT ... FOR UPDATE 대기
+* OPTIMISTIC : lock 없이 version 충돌시 재시도, 3번 모두 충돌하면 lockFailed
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(8)
+public class AccountLockContentionBenchmark {
+    private static final long USER_ID = 1L;
+
+    @Param({"REDIS", "PESSIMISTIC", "OPTIMISTIC"})
+    private LockStrategy strategy;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    //OPTIMISTIC은 handler가 없다 (LockAopAspect도 lock없이 실행)
+    private AccountLockHandler lockHandler;
+    private String accountNumber;
+
+    //성공/실패 건수를 따로 보여준다 (OPTIMISTIC은 재시도가 소진되면 실패)
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long succeeded;
+        public long lockFailed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            succeeded = 0;
+            lockFailed = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.redis.port=6392",
+                        "--spring.profiles.active=dev",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=OFF",
+                        "--account.settlement.downstream-delay=0",
+                        "--account.journal.dir=" + Files.createTempDirectory("journal"));
+        transactionService = context.getBean(TransactionService.class);
+        lockHandler = context.getBeansOfType(AccountLockHandler.class).values().stream()
+                .filter(handler -> handler.getStrategy() == strategy)
+                .findFirst()
+                .orElse(null);
+        accountNumber = context.getBean(AccountService.class)
+                .createAccount(USER_ID, Long.MAX_VALUE / 2)
+                .getAccountNumber();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void useBalance(Outcome outcome) {
+        if (lockHandler == null) {
+            try {
+                transactionService.useBalance(USER_ID, accountNumber, 10L);
+                outcome.succeeded++;
+            } catch (AccountException e) {
+                outcome.lockFailed++;
+            }
+            return;
+        }
+
+        try {
+            lockHandler.lock(accountNumber, 5000L, 15000L);
+            try {
+                transactionService.useBalance(USER_ID, accountNumber, 10L);
+            } finally {
+                lockHandler.unlock(accountNumber);
+            }
+            outcome.succeeded++;
+        } catch (AccountException e) {
+            outcome.lockFailed++;
+        }
+    }
+}
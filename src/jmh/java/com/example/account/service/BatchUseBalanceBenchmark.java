@@ -0,0 +1,130 @@
+package com.example.account.service;
+
+import com.example.account.AccountApplication;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.LockStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 잔액사용 500건(chunk 하나)을 처리하는 처리량 (ops = 사용 1건)
+* single : 요청마다 계좌 lock -> useBalance -> unlock (LockAopAspect와 같은 순서)
+* batch : BatchUseBalanceService로 계좌별 lock을 한번씩 잡고 chunk 하나로 처리
+* accounts개 계좌에 500건을 나눠서 요청한다.
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class BatchUseBalanceBenchmark {
+    private static final int CHUNK_SIZE = 500;
+    private static final int ACCOUNTS_PER_USER = 10;
+    private static final long FIRST_USER_ID = 2000L;
+
+    @Param({"1", "50", "500"})
+    private int accounts;
+
+    @Param({"REDIS", "PESSIMISTIC"})
+    private LockStrategy strategy;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private BatchUseBalanceService batchUseBalanceService;
+    private AccountLockHandler lockHandler;
+    private final List<UseBalance.Request> requests = new ArrayList<>(CHUNK_SIZE);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.redis.port=6398",
+                        "--spring.profiles.active=dev",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--account.settlement.downstream-delay=0",
+                        "--account.batch.lock-strategy=" + strategy,
+                        "--account.journal.dir=" + Files.createTempDirectory("journal"));
+        transactionService = context.getBean(TransactionService.class);
+        batchUseBalanceService = context.getBean(BatchUseBalanceService.class);
+        lockHandler = context.getBeansOfType(AccountLockHandler.class).values().stream()
+                .filter(handler -> handler.getStrategy() == strategy)
+                .findFirst()
+                .get();
+
+        //사용자당 계좌는 10개까지이므로 계좌 10개마다 사용자를 하나씩 만든다.
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        AccountService accountService = context.getBean(AccountService.class);
+        List<UseBalance.Request> accountRequests = new ArrayList<>(accounts);
+        long userId = FIRST_USER_ID;
+        for (int i = 0; i < accounts; i++) {
+            if (i % ACCOUNTS_PER_USER == 0) {
+                userId = FIRST_USER_ID + i / ACCOUNTS_PER_USER;
+                jdbcTemplate.update("insert into account_user(id, name, account_count, created_at, updated_at)"
+                        + " values(?, ?, 0, now(), now())", userId, "bench" + userId);
+            }
+            String accountNumber = accountService.createAccount(userId, Long.MAX_VALUE / 2).getAccountNumber();
+            accountRequests.add(new UseBalance.Request(userId, accountNumber, 10L));
+        }
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            requests.add(accountRequests.get(i % accounts));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public int single() {
+        int succeeded = 0;
+        for (UseBalance.Request request : requests) {
+            try {
+                lockHandler.lock(request.getAccountNumber(), 5000L, 15000L);
+                try {
+                    transactionService.useBalance(request.getUserId(), request.getAccountNumber(),
+                            request.getAmount());
+                } finally {
+                    lockHandler.unlock(request.getAccountNumber());
+                }
+                succeeded++;
+            } catch (AccountException e) {
+                //lock 실패는 건수에서 뺀다.
+            }
+        }
+        return succeeded;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNK_SIZE)
+    public List<UseBalance.BatchResponse> batch() {
+        return batchUseBalanceService.useBalance(requests);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.account.service;
+
+import com.example.account.AccountApplication;
+import com.example.account.exception.AccountException;
+import com.example.account.type.LockStrategy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* 16개 스레드가 hot 계좌 1/8/64개에 나눠서 잔액사용할때 처리량
+* REDIS : 계좌 lock(local stripe + Redisson)을 잡고 실행
+* SHARDED : 계좌의 shard 스레드(account.shard.count=8)에서 lock 없이 실행
+* 계좌가 shard 수보다 적으면 shard가 놀고, 많으면 한 shard에 여러 계좌가 섞인다.
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(16)
+public class HotAccountShardingBenchmark {
+    private static final int ACCOUNTS_PER_USER = 10;
+    private static final long FIRST_USER_ID = 1000L;
+
+    @Param({"1", "8", "64"})
+    private int hotAccounts;
+
+    @Param({"REDIS", "SHARDED"})
+    private LockStrategy strategy;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private LockService lockService;
+    private AccountShardExecutor accountShardExecutor;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<String> accountNumbers = new ArrayList<>();
+
+    //스레드마다 계좌 하나를 돌아가며 맡는다.
+    @State(Scope.Thread)
+    public static class ThreadAccount {
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        private int index;
+
+        @Setup(Level.Trial)
+        public void setUp(HotAccountShardingBenchmark benchmark) {
+            index = SEQUENCE.getAndIncrement() % benchmark.hotAccounts;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long succeeded;
+        public long lockFailed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            succeeded = 0;
+            lockFailed = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.redis.port=6393",
+                        "--spring.profiles.active=dev",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--account.settlement.downstream-delay=0",
+                        "--account.shard.count=8",
+                        "--account.journal.dir=" + Files.createTempDirectory("journal"));
+        transactionService = context.getBean(TransactionService.class);
+        lockService = context.getBean(LockService.class);
+        accountShardExecutor = context.getBean(AccountShardExecutor.class);
+
+        //사용자당 계좌는 10개까지이므로 계좌 10개마다 사용자를 하나씩 만든다.
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        AccountService accountService = context.getBean(AccountService.class);
+        for (int i = 0; i < hotAccounts; i++) {
+            if (i % ACCOUNTS_PER_USER == 0) {
+                long userId = FIRST_USER_ID + userIds.size();
+                jdbcTemplate.update("insert into account_user(id, name, account_count, created_at, updated_at)"
+                        + " values(?, ?, 0, now(), now())", userId, "bench" + userId);
+                userIds.add(userId);
+            }
+            Long userId = userIds.get(userIds.size() - 1);
+            accountNumbers.add(accountService.createAccount(userId, Long.MAX_VALUE / 2)
+                    .getAccountNumber());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void useBalance(ThreadAccount account, Outcome outcome) throws Throwable {
+        Long userId = userIds.get(account.index / ACCOUNTS_PER_USER);
+        String accountNumber = accountNumbers.get(account.index);
+        try {
+            if (strategy == LockStrategy.SHARDED) {
+                accountShardExecutor.call(accountNumber,
+                        () -> transactionService.useBalance(userId, accountNumber, 10L), 5000L);
+            } else {
+                lockService.lock(accountNumber, 5000L, 15000L);
+                try {
+                    transactionService.useBalance(userId, accountNumber, 10L);
+                } finally {
+                    lockService.unlock(accountNumber);
+                }
+            }
+            outcome.succeeded++;
+        } catch (AccountException e) {
+            outcome.lockFailed++;
+        }
+    }
+}
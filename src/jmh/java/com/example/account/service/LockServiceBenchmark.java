@@ -0,0 +1,80 @@
+package com.example.account.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+* LockService lock + unlock 한번의 비용 (embedded Redis 왕복 포함)
+* uncontended : 스레드마다 다른 계좌
+* contended : 모든 스레드가 같은 계좌 (local stripe lock에서 대기)
+* 실행중인 애플리케이션의 Redis(6379)와 겹치지 않도록 별도 port를 쓴다.
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockServiceBenchmark {
+    private static final int REDIS_PORT = 6390;
+    private static final String SHARED_ACCOUNT_NUMBER = "1000000000";
+
+    private RedisServer redisServer;
+    private RedissonClient redissonClient;
+    private LockService lockService;
+
+    @State(Scope.Thread)
+    public static class ThreadAccount {
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        private final String accountNumber = String.valueOf(1_000_000_000L + SEQUENCE.incrementAndGet());
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+        lockService = new LockService(redissonClient, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @Benchmark
+    public void uncontended(ThreadAccount account) {
+        lockService.lock(account.accountNumber, 1000L, 5000L);
+        lockService.unlock(account.accountNumber);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void contended() {
+        lockService.lock(SHARED_ACCOUNT_NUMBER, 5000L, 5000L);
+        lockService.unlock(SHARED_ACCOUNT_NUMBER);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.account.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.Redisson;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.redisnode.RedisNode;
+import org.redisson.api.redisnode.RedisNodes;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+* 같은 노드의 8개 스레드가 계좌 하나의 lock을 잡을때 local stripe lock 유무 비교
+* TWO_TIER : LockService (local stripe -> Redisson)
+* REDIS_ONLY : 이전 방식, 모든 요청이 Redisson tryLock으로 경쟁
+* throughput : 처리량과 Redis 서버가 처리한 명령 수(redisCommands, 초당)
+* latency : lock + unlock 시간 분포 (p0.99 확인)
+* */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(LockTierBenchmark.THREADS)
+public class LockTierBenchmark {
+    static final int THREADS = 8;
+    private static final int REDIS_PORT = 6395;
+    private static final String ACCOUNT_NUMBER = "1000000000";
+
+    public enum Tier {
+        TWO_TIER, REDIS_ONLY
+    }
+
+    @Param({"TWO_TIER", "REDIS_ONLY"})
+    private Tier tier;
+
+    private RedisServer redisServer;
+    private RedissonClient redissonClient;
+    private LockService lockService;
+    private long commandsAtStart;
+
+    //iteration 동안 Redis 서버가 처리한 명령 수를 스레드 수로 나눠 각 스레드에 나눠 싣는다. (합계가 전체)
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RedisCommands {
+        public long redisCommands;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            redisCommands = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void collect(LockTierBenchmark benchmark) {
+            redisCommands = (benchmark.commandsProcessed() - benchmark.commandsAtStart) / THREADS;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+        lockService = new LockService(redissonClient, new SimpleMeterRegistry());
+    }
+
+    @Setup(Level.Iteration)
+    public void markCommands() {
+        commandsAtStart = commandsProcessed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput(RedisCommands redisCommands) throws InterruptedException {
+        lockAndUnlock();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void latency() throws InterruptedException {
+        lockAndUnlock();
+    }
+
+    private void lockAndUnlock() throws InterruptedException {
+        if (tier == Tier.TWO_TIER) {
+            lockService.lock(ACCOUNT_NUMBER, 5000L, 5000L);
+            lockService.unlock(ACCOUNT_NUMBER);
+            return;
+        }
+
+        RLock lock = redissonClient.getLock("ACLK:" + ACCOUNT_NUMBER);
+        if (!lock.tryLock(5000L, 5000L, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("lock timeout");
+        }
+        lock.unlock();
+    }
+
+    private long commandsProcessed() {
+        return Long.parseLong(redissonClient.getRedisNodes(RedisNodes.SINGLE).getInstance()
+                .info(RedisNode.InfoSection.STATS)
+                .get("total_commands_processed"));
+    }
+}
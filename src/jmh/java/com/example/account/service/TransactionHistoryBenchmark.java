@@ -0,0 +1,94 @@
+package com.example.account.service;
+
+import com.example.account.AccountApplication;
+import com.example.account.domain.Account;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.repository.AccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 계좌 하나에 거래 rows건이 있을때 거래내역 page 1과 page 1000 조회 시간 (페이지당 20건)
+* keyset pagination이므로 page 번호와 상관없이 같아야 한다.
+* setup에서 앞 페이지를 차례로 읽어 해당 page의 cursor를 구해둔다.
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionHistoryBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final long FIRST_TRANSACTION_ID = 100_000_000L;
+
+    @Param({"100000"})
+    private long rows;
+
+    @Param({"1", "1000"})
+    private int page;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private String accountNumber;
+    private TransactionHistory.Request request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.redis.port=6397",
+                        "--spring.profiles.active=dev",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--account.journal.dir=" + Files.createTempDirectory("journal"));
+        transactionService = context.getBean(TransactionService.class);
+        accountNumber = context.getBean(AccountService.class).createAccount(1L, 0L).getAccountNumber();
+        Account account = context.getBean(AccountRepository.class).findByAccountNumber(accountNumber).get();
+
+        //거래시각은 1초 간격
+        context.getBean(JdbcTemplate.class).update("insert into transaction(id, account_id, transaction_type,"
+                        + " transaction_result_type, amount, balance_snapshot, transaction_id,"
+                        + " transacted_at, created_at, updated_at)"
+                        + " select ? + x, ?, 'USE', 'S', 1, 0, ? + x,"
+                        + " dateadd('SECOND', x, timestamp '2022-01-01 00:00:00'), now(), now()"
+                        + " from system_range(0, ?)",
+                FIRST_TRANSACTION_ID, account.getId(), FIRST_TRANSACTION_ID, rows - 1);
+
+        request = new TransactionHistory.Request();
+        request.setSize(PAGE_SIZE);
+        for (int i = 1; i < page; i++) {
+            request.setCursor(transactionService.getTransactionHistory(accountNumber, request).getNextCursor());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionHistory.Response history() {
+        return transactionService.getTransactionHistory(accountNumber, request);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.account.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+* 거래 아이디 발급
+* nextIdContended : 여러 스레드가 같은 generator의 CAS를 경쟁
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionIdGeneratorBenchmark {
+    private final TransactionIdGenerator transactionIdGenerator = new TransactionIdGenerator(0L);
+
+    @Benchmark
+    public long nextId() {
+        return transactionIdGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long nextIdContended() {
+        return transactionIdGenerator.nextId();
+    }
+
+    @Benchmark
+    public String nextTransactionId() {
+        return transactionIdGenerator.nextTransactionId();
+    }
+}
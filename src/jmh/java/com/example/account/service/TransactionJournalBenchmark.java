@@ -0,0 +1,70 @@
+package com.example.account.service;
+
+import com.example.account.type.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/*
+* journal append 지연 (응답 전 fsync 대기 포함)
+* 요청 스레드는 syncInterval마다 모아서 하는 force를 기다리므로 지연 분포(p50, p99)를 본다.
+* 다 찬 segment는 iteration마다 지운다. (DB에 모두 반영된 것으로 본다)
+* */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionJournalBenchmark {
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    @Param({"1", "5"})
+    private long syncInterval;
+
+    private final TransactionIdGenerator transactionIdGenerator = new TransactionIdGenerator(0L);
+    private Path directory;
+    private TransactionJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new TransactionJournal(directory, SEGMENT_SIZE, syncInterval);
+    }
+
+    @TearDown(Level.Iteration)
+    public void releaseSegments() throws IOException {
+        journal.release(transactionIds -> true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void append() {
+        journal.append(new TransactionJournal.Entry(transactionIdGenerator.nextTransactionId(), "1000000012",
+                TransactionType.USE, 100L, LocalDateTime.now(), 900L)).join();
+    }
+}
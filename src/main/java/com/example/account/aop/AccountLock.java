@@ -1,5 +1,7 @@
 package com.example.account.aop;
 
+import com.example.account.type.LockStrategy;
+
 import java.lang.annotation.*;
 
 @Target(ElementType.METHOD)
@@ -7,6 +9,19 @@ import java.lang.annotation.*;
 @Documented
 @Inherited
 public @interface AccountLock {
-    long tryLockTime() default 5000L;
+    // lock 대기시간(ms)
+    long tryLockTime() default 1000L;
+
+    // lock 유지시간(ms), DB row lock은 transaction 종료까지 유지
+    long leaseTime() default 15000L;
+
+    /*
+    * REDIS : Redisson 분산 lock
+    * PESSIMISTIC : 계좌 row에 SELECT ... FOR UPDATE
+    * OPTIMISTIC : lock 없이 실행, Account @Version 충돌시 TransactionService에서 재시도
+    * SHARDED : lock 없이 계좌별 단일 스레드(shard)에서 순서대로 실행 (노드 내부에서만 직렬화)
+    *           요청 스레드는 실행이 끝날때까지 기다리고, tryLockTime은 shard 대기시간 제한으로 쓴다.
+    * */
+    LockStrategy strategy() default LockStrategy.REDIS;
 
 }
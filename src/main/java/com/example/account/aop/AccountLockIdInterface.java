@@ -1,5 +1,18 @@
 package com.example.account.aop;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+
 public interface AccountLockIdInterface {
     String getAccountNumber();
+
+    /*
+    * lock을 잡아야 하는 계좌 전체 (이체처럼 여러 계좌를 다루는 요청은 override)
+    * LockAopAspect가 정해진 순서로 정렬해서 잡는다.
+    * */
+    @JsonIgnore
+    default List<String> getAccountNumbers() {
+        return List.of(getAccountNumber());
+    }
 }
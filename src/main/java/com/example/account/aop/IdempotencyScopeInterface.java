@@ -0,0 +1,12 @@
+package com.example.account.aop;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public interface IdempotencyScopeInterface {
+    /*
+    * Idempotency-Key는 client가 정하므로 요청자별로 나눠서 저장한다.
+    * (사용자 id, 사용자가 없는 요청은 계좌번호)
+    * */
+    @JsonIgnore
+    String getIdempotencyScope();
+}
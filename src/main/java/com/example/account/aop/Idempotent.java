@@ -0,0 +1,16 @@
+package com.example.account.aop;
+
+import java.lang.annotation.*;
+
+/*
+* Idempotency-Key 헤더가 있는 요청은 첫 응답을 저장해두고 같은 키로 다시 오면 저장된 응답을 돌려준다.
+* 계좌 lock(@AccountLock)보다 먼저 실행되므로 재요청은 lock이나 DB를 거치지 않는다.
+* */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface Idempotent {
+    // 같은 키라도 API가 다르면 다른 요청으로 본다.
+    String value();
+}
@@ -0,0 +1,37 @@
+package com.example.account.config;
+
+import com.example.account.type.DataSourceType;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/*
+* readOnly 트랜잭션은 replica, 나머지는 primary로 보낸다.
+* 실제 connection은 LazyConnectionDataSourceProxy가 첫 쿼리 시점에 가져오므로
+* 트랜잭션의 readOnly 여부가 정해진 뒤에 lookup key를 결정한다.
+* 트랜잭션 밖의 repository 조회도 SimpleJpaRepository의 readOnly 트랜잭션이라 replica로 간다.
+* 방금 쓴 데이터를 다시 읽어야 하면(read-your-writes) usePrimary 안에서 조회한다.
+* */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    public static <T> T usePrimary(Supplier<T> supplier) {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            }
+        }
+    }
+
+    @Override
+    protected DataSourceType determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && PRIMARY_FORCED.get() == null
+                ? DataSourceType.REPLICA : DataSourceType.PRIMARY;
+    }
+}
@@ -1,16 +1,19 @@
 package com.example.account.controller;
 
-import com.example.account.domain.Account;
+import com.example.account.dto.AccountBalanceResponse;
 import com.example.account.dto.AccountDto;
 import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CreateAccount;
 import com.example.account.dto.DeleteAccount;
 import com.example.account.service.AccountService;
+import com.example.account.service.BalanceLedgerService;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -18,6 +21,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class AccountController {
     private final AccountService accountService;
+    private final BalanceLedgerService balanceLedgerService;
 
 
     @PostMapping ("/account")
@@ -49,7 +53,22 @@ public class AccountController {
     }
 
     @GetMapping("/account/{id}")
-    public Account getAccount(@PathVariable Long id){
+    public AccountDto getAccount(@PathVariable Long id){
         return accountService.getAccount(id);
     }
+
+    //거래내역 원장 기준 잔액, asOf가 없으면 현재 잔액
+    @GetMapping("/account/{accountNumber}/balance")
+    public AccountBalanceResponse getBalance(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf){
+        LocalDateTime balanceAt = asOf == null ? LocalDateTime.now() : asOf;
+
+        return AccountBalanceResponse.builder()
+                .accountNumber(accountNumber)
+                .balance(balanceLedgerService.getBalanceAsOf(accountNumber, balanceAt))
+                .asOf(balanceAt)
+                .build();
+    }
 }
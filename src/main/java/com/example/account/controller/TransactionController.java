@@ -1,24 +1,51 @@
 package com.example.account.controller;
 
 import com.example.account.aop.AccountLock;
+import com.example.account.aop.Idempotent;
 import com.example.account.dto.CancelBalance;
 import com.example.account.dto.QueryTransactionResponse;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionExport;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.dto.TransferBalance;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
+import com.example.account.service.BatchUseBalanceService;
+import com.example.account.service.HotBalanceLedger;
+import com.example.account.service.TransactionExportService;
 import com.example.account.service.TransactionService;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExportFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /*
 * 잔액관련
 * 1. 잔액사용
 * 2. 잔액사용취소
 * 3. 거래확인
+* 4. 이체
+* 5. 계좌별 거래내역
+* 6. 거래내역 export
 * */
 
 @RestController
@@ -27,16 +54,29 @@ import javax.validation.Valid;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final HotBalanceLedger hotBalanceLedger;
+    private final BatchUseBalanceService batchUseBalanceService;
+    private final TransactionExportService transactionExportService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${account.batch.chunk-size:500}")
+    private int batchChunkSize;
+
     @PostMapping("/transaction/use")
+    @Idempotent("use")
     @AccountLock
-    public UseBalance.Response useBalance(@Valid @RequestBody UseBalance.Request request) throws InterruptedException {
-
-        TransactionDto transactionDto = transactionService.useBalance(request.getUserId(), request.getAccountNumber()
-                , request.getAmount());
+    public UseBalance.Response useBalance(@Valid @RequestBody UseBalance.Request request) {
 
-        //exception발생시 어떻게 결과를 저장할 것인가?
+        //하위시스템 정산은 commit 이후 SettlementService에서 비동기로 처리
+        //ledger 계좌는 Redis에서 차감하고 DB 반영은 HotBalanceLedger writer가 처리
         try {
-            Thread.sleep(3000L);
+            TransactionDto transactionDto = hotBalanceLedger.isHot(request.getAccountNumber())
+                    ? hotBalanceLedger.useBalance(request.getUserId(), request.getAccountNumber()
+                    , request.getAmount())
+                    : transactionService.useBalance(request.getUserId(), request.getAccountNumber()
+                    , request.getAmount());
+
             return UseBalance.Response.from(transactionDto);
         }catch (AccountException e){
             log.error("Failed to use balance");
@@ -50,17 +90,91 @@ public class TransactionController {
 
     }
 
+    /*
+    * 대량 잔액사용 (요청/응답 모두 NDJSON, 한 줄에 UseBalance.Request 하나)
+    * chunk 단위로 읽어서 처리하고 항목별 결과를 바로 내려보낸다.
+    * 형식이 잘못된 줄은 거래내역 없이 INVALID_REQUEST로 응답
+    * */
+    @PostMapping(value = "/transaction/use/batch",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody useBalanceBatch(InputStream requestBody) {
+        return outputStream -> {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(requestBody, StandardCharsets.UTF_8));
+            List<UseBalance.Request> chunk = new ArrayList<>(batchChunkSize);
+            List<Long> chunkIndexes = new ArrayList<>(batchChunkSize);
+            long index = 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                UseBalance.Request request = readBatchRequest(line);
+                if (request == null || !validator.validate(request).isEmpty()) {
+                    writeBatchResponse(outputStream, index++, UseBalance.BatchResponse.failed(
+                            request == null ? null : request.getAccountNumber(),
+                            request == null ? null : request.getAmount(),
+                            ErrorCode.INVALID_REQUEST));
+                    continue;
+                }
+
+                chunk.add(request);
+                chunkIndexes.add(index++);
+                if (chunk.size() == batchChunkSize) {
+                    useBalanceChunk(outputStream, chunk, chunkIndexes);
+                }
+            }
+            useBalanceChunk(outputStream, chunk, chunkIndexes);
+        };
+    }
+
+    private UseBalance.Request readBatchRequest(String line) {
+        try {
+            return objectMapper.readValue(line, UseBalance.Request.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private void useBalanceChunk(OutputStream outputStream, List<UseBalance.Request> chunk,
+                                 List<Long> chunkIndexes) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<UseBalance.BatchResponse> responses = batchUseBalanceService.useBalance(chunk);
+        for (int i = 0; i < responses.size(); i++) {
+            writeBatchResponse(outputStream, chunkIndexes.get(i), responses.get(i));
+        }
+        outputStream.flush();
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private void writeBatchResponse(OutputStream outputStream, long index,
+                                    UseBalance.BatchResponse response) throws IOException {
+        response.setIndex(index);
+        outputStream.write(objectMapper.writeValueAsBytes(response));
+        outputStream.write('\n');
+    }
+
     @PostMapping("/transaction/cancel")
+    @Idempotent("cancel")
     @AccountLock
     public CancelBalance.Response cancelBalance(@Valid @RequestBody CancelBalance.Request request){
 
 
         //exception발생시 어떻게 결과를 저장할 것인가?
         try {
-            return CancelBalance.Response.from(
-                    transactionService.cancelBalance(request.getTransactionId()
-                            ,request.getAccountNumber(),request.getAmount())
-            );
+            TransactionDto transactionDto = hotBalanceLedger.isHot(request.getAccountNumber())
+                    ? hotBalanceLedger.cancelBalance(request.getTransactionId()
+                    ,request.getAccountNumber(),request.getAmount())
+                    : transactionService.cancelBalance(request.getTransactionId()
+                    ,request.getAccountNumber(),request.getAmount());
+
+            return CancelBalance.Response.from(transactionDto);
         }catch (AccountException e){
             log.error("Failed to use balance");
             transactionService.saveFailedCancelTransaction(
@@ -72,6 +186,50 @@ public class TransactionController {
         }
     }
 
+    @PostMapping("/transaction/transfer")
+    @Idempotent("transfer")
+    @AccountLock
+    public TransferBalance.Response transferBalance(@Valid @RequestBody TransferBalance.Request request) {
+        try {
+            if (hotBalanceLedger.isHot(request.getFromAccountNumber())
+                    || hotBalanceLedger.isHot(request.getToAccountNumber())) {
+                throw new AccountException(ErrorCode.INVALID_REQUEST);
+            }
+
+            TransactionDto transactionDto = transactionService.transferBalance(request.getUserId(),
+                    request.getFromAccountNumber(), request.getToAccountNumber(), request.getAmount());
+
+            return TransferBalance.Response.from(transactionDto, request.getToAccountNumber());
+        }catch (AccountException e){
+            log.error("Failed to transfer balance");
+            transactionService.saveFailedTransferTransaction(
+                    request.getFromAccountNumber(),
+                    request.getAmount()
+            );
+
+            throw e;
+        }
+    }
+
+    @GetMapping("/account/{accountNumber}/transactions")
+    public TransactionHistory.Response getTransactionHistory(
+            @PathVariable String accountNumber,
+            @Valid TransactionHistory.Request request){
+        return transactionService.getTransactionHistory(accountNumber, request);
+    }
+
+    //format=NDJSON(기본) 또는 CSV, 결과를 메모리에 모으지 않고 바로 내려보낸다.
+    @GetMapping("/transaction/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(TransactionExport.Request request){
+        MediaType mediaType = request.getFormat() == ExportFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_NDJSON;
+
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(outputStream -> transactionExportService.exportTransactions(request, outputStream));
+    }
+
     @GetMapping("/transaction/{transactionId}")
     public QueryTransactionResponse queryTransaction(@PathVariable String transactionId){
         TransactionDto transactionDto = transactionService.queryTransaction(transactionId);
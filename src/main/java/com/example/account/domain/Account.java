@@ -4,6 +4,8 @@ import com.example.account.exception.AccountException;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.ErrorCode;
 import lombok.*;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -18,11 +20,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
+@NaturalIdCache(region = "account-natural-id")
 public class Account extends BaseEntity{
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private AccountUser accountUser;
 
+    @NaturalId
     private String accountNumber;
 
     @Enumerated(EnumType.STRING)
@@ -33,6 +37,9 @@ public class Account extends BaseEntity{
     private LocalDateTime regiteredAt;
     private LocalDateTime unRegisteredAt;
 
+    @Version
+    private Long version;
+
 
     public void useBalance(long amount){
         if(amount>balance){
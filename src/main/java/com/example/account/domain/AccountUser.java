@@ -1,6 +1,7 @@
 package com.example.account.domain;
 
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -20,4 +21,11 @@ public class AccountUser extends BaseEntity{
 
     private String name;
 
+    /*
+    * 사용자의 계좌 수 (생성/해지 때 조건부 UPDATE로만 바꾼다)
+    * 계좌 수 제한을 count 조회 없이 한 문장으로 확인하고 예약하기 위함
+    * */
+    @ColumnDefault("0")
+    private int accountCount;
+
 }
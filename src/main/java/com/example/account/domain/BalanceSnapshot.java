@@ -0,0 +1,29 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/*
+* 계좌 잔액 snapshot
+* snapshotAt 시각까지(포함)의 성공 거래를 모두 반영한 잔액
+* 잔액 = 가장 최근 snapshot + 이후 거래내역(tail)
+* */
+@Entity
+@Table(indexes = @Index(name = "idx_balance_snapshot_account_snapshot_at",
+        columnList = "account_id, snapshotAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceSnapshot extends BaseEntity {
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Account account;
+
+    private Long balance;
+
+    private LocalDateTime snapshotAt;
+}
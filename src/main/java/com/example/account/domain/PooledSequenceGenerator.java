@@ -0,0 +1,34 @@
+package com.example.account.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/*
+* entity별 sequence를 pooled-lo 방식으로 사용
+* sequence 한번 조회로 allocation size 만큼의 id를 메모리에서 발급하므로
+* insert마다 sequence를 조회하지 않고 JDBC batch insert가 가능하다.
+* allocation size는 spring.jpa.properties.account.id.allocation_size로 설정
+* */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+    public static final String ALLOCATION_SIZE = "account.id.allocation_size";
+    private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry)
+            throws MappingException {
+        int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(),
+                DEFAULT_ALLOCATION_SIZE);
+
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        params.setProperty(OPT_PARAM, "pooled-lo");
+        params.setProperty(CONFIG_PREFER_SEQUENCE_PER_ENTITY, "true");
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.account.domain;
 
 import com.example.account.type.AccountStatus;
+import com.example.account.type.SettlementStatus;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import lombok.*;
+import org.hibernate.annotations.NaturalId;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -12,6 +14,11 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_transaction_account_transacted_at", columnList = "account_id, transactedAt, id"),
+        //계좌 조건 없는 전체/기간 export (order by transactedAt, id)
+        @Index(name = "idx_transaction_transacted_at", columnList = "transactedAt, id"),
+        @Index(name = "idx_transaction_settlement_status", columnList = "settlementStatus, transactionId")})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -25,14 +32,19 @@ public class Transaction extends BaseEntity{
     @Enumerated(EnumType.STRING)
     private TransactionResultType transactionResultType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Account account;
     private Long amount;
     private Long balanceSnapshot;
 
+    @NaturalId
+    @Convert(converter = TransactionIdConverter.class)
     private String transactionId;
     private LocalDateTime transactedAt;
 
+    @Enumerated(EnumType.STRING)
+    private SettlementStatus settlementStatus;
+
 
 
 }
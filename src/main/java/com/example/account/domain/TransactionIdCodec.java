@@ -0,0 +1,43 @@
+package com.example.account.domain;
+
+/*
+* 거래 아이디(long) <-> API에 보여주는 19자리 고정길이 문자열
+* */
+public final class TransactionIdCodec {
+    public static final int ID_LENGTH = 19;
+    public static final long UNKNOWN_ID = -1L;
+
+    private TransactionIdCodec() {
+    }
+
+    public static String format(long id) {
+        char[] chars = new char[ID_LENGTH];
+        long value = id;
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(chars);
+    }
+
+    //형식이 맞지 않는 아이디(19자리 숫자가 아니거나 long 범위를 넘는 값)는
+    //발급되지 않는 값(-1)으로 바꿔 조회결과가 없도록 한다.
+    public static long parse(String transactionId) {
+        if (transactionId.length() != ID_LENGTH) {
+            return UNKNOWN_ID;
+        }
+
+        long value = 0;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            char c = transactionId.charAt(i);
+            if (c < '0' || c > '9') {
+                return UNKNOWN_ID;
+            }
+            value = value * 10 + (c - '0');
+            if (value < 0) {
+                return UNKNOWN_ID;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.account.domain;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+@Converter
+public class TransactionIdConverter implements AttributeConverter<String, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(String transactionId) {
+        return transactionId == null ? null : TransactionIdCodec.parse(transactionId);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Long transactionId) {
+        return transactionId == null ? null : TransactionIdCodec.format(transactionId);
+    }
+}
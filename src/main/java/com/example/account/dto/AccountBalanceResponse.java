@@ -0,0 +1,16 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AccountBalanceResponse {
+    private String accountNumber;
+    private Long balance;
+    private LocalDateTime asOf;
+}
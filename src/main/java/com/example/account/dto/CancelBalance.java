@@ -1,6 +1,7 @@
 package com.example.account.dto;
 
 import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.IdempotencyScopeInterface;
 import com.example.account.type.TransactionResultType;
 import lombok.*;
 
@@ -12,7 +13,7 @@ public class CancelBalance {
     @Setter
     @AllArgsConstructor
     @NoArgsConstructor
-    public static class Request implements AccountLockIdInterface {
+    public static class Request implements AccountLockIdInterface, IdempotencyScopeInterface {
         @NotBlank
         @Min(1)
         private String transactionId;
@@ -26,7 +27,11 @@ public class CancelBalance {
         @Max(1000_000_000)
         private Long amount;
 
-
+        //취소 요청에는 사용자가 없으므로 계좌 단위로 나눈다.
+        @Override
+        public String getIdempotencyScope() {
+            return "account:" + accountNumber;
+        }
     }
 
     @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
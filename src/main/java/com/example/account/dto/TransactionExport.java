@@ -0,0 +1,45 @@
+package com.example.account.dto;
+
+import com.example.account.type.ExportFormat;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/*
+* 거래내역 export (finance 야간 추출)
+* 조건 없이 호출하면 전체 거래내역을 내보낸다.
+* */
+public class TransactionExport {
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Request {
+        private String accountNumber;
+
+        //from 이상, to 미만
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        private LocalDateTime from;
+
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        private LocalDateTime to;
+
+        private ExportFormat format = ExportFormat.NDJSON;
+    }
+
+    //JPQL constructor expression projection, 엔티티를 persistence context에 올리지 않는다.
+    @Getter
+    @AllArgsConstructor
+    public static class Row {
+        private String transactionId;
+        private String accountNumber;
+        private TransactionType transactionType;
+        private TransactionResultType transactionResultType;
+        private Long amount;
+        private Long balanceSnapshot;
+        private LocalDateTime transactedAt;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/*
+* 계좌별 거래내역 조회 (keyset pagination)
+* 최신 거래부터 (transactedAt, id) 내림차순, 다음 페이지는 마지막 항목의 (transactedAt, id) 이후부터 읽는다.
+* */
+public class TransactionHistory {
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Request {
+        private TransactionType transactionType;
+
+        private TransactionResultType transactionResultType;
+
+        //from 이상, to 미만
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        private LocalDateTime from;
+
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        private LocalDateTime to;
+
+        //이전 응답의 nextCursor, 첫 페이지는 비워둔다.
+        private String cursor;
+
+        @Min(1)
+        @Max(100)
+        private int size = 20;
+    }
+
+    //JPQL constructor expression으로 바로 만드는 projection (Account, AccountUser join 없음)
+    @Getter
+    @AllArgsConstructor
+    public static class Item {
+        @JsonIgnore
+        private Long id;
+        private String transactionId;
+        private TransactionType transactionType;
+        private TransactionResultType transactionResultType;
+        private Long amount;
+        private Long balanceSnapshot;
+        private LocalDateTime transactedAt;
+    }
+
+    @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class Response {
+        private String accountNumber;
+        private List<Item> transactions;
+        private String nextCursor;
+    }
+
+    //client에는 "transactedAt,id"를 base64url로 감싼 문자열로 내려준다.
+    @Getter
+    @AllArgsConstructor
+    public static class Cursor {
+        private LocalDateTime transactedAt;
+        private Long id;
+
+        public static Cursor from(Item item) {
+            return new Cursor(item.getTransactedAt(), item.getId());
+        }
+
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((transactedAt + "," + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        //형식이 잘못된 cursor는 IllegalArgumentException
+        public static Cursor decode(String cursor) {
+            String[] fields = new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8).split(",");
+            if (fields.length != 2) {
+                throw new IllegalArgumentException("invalid cursor");
+            }
+            try {
+                return new Cursor(LocalDateTime.parse(fields[0]), Long.parseLong(fields[1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("invalid cursor", e);
+            }
+        }
+    }
+}
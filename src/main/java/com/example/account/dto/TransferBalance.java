@@ -0,0 +1,74 @@
+package com.example.account.dto;
+
+import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.IdempotencyScopeInterface;
+import com.example.account.type.TransactionResultType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import javax.validation.constraints.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class TransferBalance {
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Request implements AccountLockIdInterface, IdempotencyScopeInterface {
+        @NotNull
+        @Min(1)
+        private Long userId;
+
+        @NotBlank
+        @Size(min = 10,max = 10)
+        private String fromAccountNumber;
+
+        @NotBlank
+        @Size(min = 10,max = 10)
+        private String toAccountNumber;
+
+        @NotNull
+        @Min(10)
+        @Max(1000_000_000)
+        private Long amount;
+
+        //실패 거래는 출금계좌에 남긴다.
+        @JsonIgnore
+        @Override
+        public String getAccountNumber() {
+            return fromAccountNumber;
+        }
+
+        @Override
+        public List<String> getAccountNumbers() {
+            return List.of(fromAccountNumber, toAccountNumber);
+        }
+
+        @Override
+        public String getIdempotencyScope() {
+            return "user:" + userId;
+        }
+    }
+
+    @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class Response{
+        private String fromAccountNumber;
+        private String toAccountNumber;
+        private TransactionResultType transactionResultType;
+        private String transactionId;
+        private Long amount;
+        private LocalDateTime transactedAt;
+
+        public static Response from(TransactionDto transactionDto, String toAccountNumber){
+            return Response.builder()
+                    .fromAccountNumber(transactionDto.getAccountNumber())
+                    .toAccountNumber(toAccountNumber)
+                    .transactionResultType(transactionDto.getTransactionResultType())
+                    .transactionId(transactionDto.getTransactionId())
+                    .amount(transactionDto.getAmount())
+                    .transactedAt(transactionDto.getTransactedAt())
+                    .build();
+        }
+    }
+}
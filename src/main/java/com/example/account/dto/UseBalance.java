@@ -1,6 +1,8 @@
 package com.example.account.dto;
 
 import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.aop.IdempotencyScopeInterface;
+import com.example.account.type.ErrorCode;
 import com.example.account.type.TransactionResultType;
 import lombok.*;
 
@@ -12,7 +14,7 @@ public class UseBalance {
     @Setter
     @AllArgsConstructor
     @NoArgsConstructor
-    public static class Request implements AccountLockIdInterface {
+    public static class Request implements AccountLockIdInterface, IdempotencyScopeInterface {
         @NotNull
         @Min(1)
         private Long userId;
@@ -26,7 +28,10 @@ public class UseBalance {
         @Max(1000_000_000)
         private Long amount;
 
-
+        @Override
+        public String getIdempotencyScope() {
+            return "user:" + userId;
+        }
     }
 
     @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
@@ -48,4 +53,40 @@ public class UseBalance {
         }
 
     }
+
+    /*
+    * 대량 잔액사용(NDJSON) 항목별 결과
+    * index는 요청 스트림에서의 순서(0부터), 실패시 errorCode를 채운다.
+    * */
+    @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class BatchResponse{
+        private long index;
+        private String accountNumber;
+        private TransactionResultType transactionResultType;
+        private String transactionId;
+        private Long amount;
+        private LocalDateTime transactedAt;
+        private ErrorCode errorCode;
+
+        public static BatchResponse from(TransactionDto transactionDto, ErrorCode errorCode){
+            return BatchResponse.builder()
+                    .accountNumber(transactionDto.getAccountNumber())
+                    .transactionResultType(transactionDto.getTransactionResultType())
+                    .transactionId(transactionDto.getTransactionId())
+                    .amount(transactionDto.getAmount())
+                    .transactedAt(transactionDto.getTransactedAt())
+                    .errorCode(errorCode)
+                    .build();
+        }
+
+        //거래내역을 남기지 못한 실패 (계좌없음, 잘못된 요청)
+        public static BatchResponse failed(String accountNumber, Long amount, ErrorCode errorCode){
+            return BatchResponse.builder()
+                    .accountNumber(accountNumber)
+                    .transactionResultType(TransactionResultType.F)
+                    .amount(amount)
+                    .errorCode(errorCode)
+                    .build();
+        }
+    }
 }
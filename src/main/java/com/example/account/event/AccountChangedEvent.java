@@ -0,0 +1,14 @@
+package com.example.account.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+* 사용자의 계좌목록/잔액이 바뀔때 발행 (계좌 생성/해지, 잔액 사용/취소)
+* commit 이후 계좌목록 캐시를 무효화한다.
+* */
+@Getter
+@AllArgsConstructor
+public class AccountChangedEvent {
+    private final Long userId;
+}
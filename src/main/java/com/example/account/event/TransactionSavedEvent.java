@@ -0,0 +1,15 @@
+package com.example.account.event;
+
+import com.example.account.dto.TransactionDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+* 거래내역이 저장될때 발행
+* commit 이후 처리(정산 등)는 @TransactionalEventListener로 받는다.
+* */
+@Getter
+@AllArgsConstructor
+public class TransactionSavedEvent {
+    private final TransactionDto transaction;
+}
@@ -2,18 +2,35 @@ package com.example.account.exception;
 
 import com.example.account.dto.ErrorResponse;
 import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 @Slf4j
 @RestControllerAdvice
 public class GlobalExceptionHandler {
+    //응답한 ErrorCode별 건수
+    private final Map<ErrorCode, Counter> errorCounters = new EnumMap<>(ErrorCode.class);
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            errorCounters.put(errorCode, Counter.builder("account.errors")
+                    .description("ErrorCode별 오류 응답 건수")
+                    .tag("errorCode", errorCode.name())
+                    .register(meterRegistry));
+        }
+    }
 
     @ExceptionHandler(AccountException.class)
     public ErrorResponse handleAccountException(AccountException e){
         log.error("{} is occurred",e.getErrorCode());
+        countError(e.getErrorCode());
 
         return ErrorResponse.builder()
                 .errorCode(e.getErrorCode())
@@ -23,6 +40,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ErrorResponse handleMethodArgumentNotValidException(MethodArgumentNotValidException e){
         log.error("{} is occurred",e);
+        countError(ErrorCode.INTERNAL_SERVER_ERROR);
 
         return ErrorResponse.builder()
                 .errorCode(ErrorCode.INTERNAL_SERVER_ERROR)
@@ -33,10 +51,15 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ErrorResponse handleAccountException(Exception e){
         log.error("{} is occurred",e);
+        countError(ErrorCode.INTERNAL_SERVER_ERROR);
 
         return ErrorResponse.builder()
                 .errorCode(ErrorCode.INTERNAL_SERVER_ERROR)
                 .errorMessage(ErrorCode.INTERNAL_SERVER_ERROR.getDescription())
                 .build();
     }
+
+    private void countError(ErrorCode errorCode) {
+        errorCounters.get(errorCode == null ? ErrorCode.INTERNAL_SERVER_ERROR : errorCode).increment();
+    }
 }
@@ -1,21 +1,41 @@
 package com.example.account.repository;
 
 import com.example.account.domain.Account;
-import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountDto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AccountRepository extends JpaRepository<Account, Long> {
+public interface AccountRepository extends JpaRepository<Account, Long>, AccountRepositoryCustom {
 
-    Optional<Account> findFirstByOrderByIdDesc();
+    Optional<Account> findFirstByOrderByAccountNumberDesc();
 
-    Integer countByAccountUser(AccountUser accountUser);
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
 
-    Optional<Account> findByAccountNumber(String accountNumber);
+    //조회 응답용 projection (사용자 id는 FK 컬럼에서 읽으므로 AccountUser는 join하지 않는다)
+    @Query("select new com.example.account.dto.AccountDto(a.accountUser.id, a.accountNumber,"
+            + " a.balance, a.regiteredAt, a.unRegisteredAt) from Account a where a.id = :id")
+    Optional<AccountDto> findDtoById(@Param("id") Long id);
 
-    List<Account> findByAccountUser(AccountUser accountUser);
+    @Query("select new com.example.account.dto.AccountDto(a.accountUser.id, a.accountNumber,"
+            + " a.balance, a.regiteredAt, a.unRegisteredAt) from Account a"
+            + " where a.accountUser.id = :userId")
+    List<AccountDto> findDtosByAccountUserId(@Param("userId") Long userId);
+
+    @Query("select a.id from Account a where a.id > :afterId order by a.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    //잔액 snapshot 작업과 늦게 들어온 거래 반영을 계좌 row lock으로 직렬화한다. (id 순서로 잡는다)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id in :ids order by a.id")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,12 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+
+import java.util.Optional;
+
+public interface AccountRepositoryCustom {
+
+    Optional<Account> findByAccountNumber(String accountNumber);
+
+    Optional<Account> findByAccountNumberForUpdate(String accountNumber, long lockTimeout);
+}
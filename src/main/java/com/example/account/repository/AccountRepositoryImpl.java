@@ -0,0 +1,41 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class AccountRepositoryImpl implements AccountRepositoryCustom {
+    private static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+
+    private final EntityManager entityManager;
+
+    /*
+    * 계좌번호 -> id 변환은 natural id cache에서 꺼내고 PK로 조회한다.
+    * 계좌번호는 바뀌지 않으므로 노드마다 캐시해도 어긋나지 않는다. (잔액이 있는 엔티티 자체는 캐시하지 않음)
+    * */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Account> findByAccountNumber(String accountNumber) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Account.class)
+                .loadOptional(accountNumber);
+    }
+
+    @Override
+    public Optional<Account> findByAccountNumberForUpdate(String accountNumber, long lockTimeout) {
+        return entityManager.createQuery(
+                        "select a from Account a where a.accountNumber = :accountNumber", Account.class)
+                .setParameter("accountNumber", accountNumber)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                //Hibernate는 lock timeout hint를 Integer(또는 String)로만 받는다.
+                .setHint(LOCK_TIMEOUT_HINT, Math.toIntExact(lockTimeout))
+                .getResultStream()
+                .findFirst();
+    }
+}
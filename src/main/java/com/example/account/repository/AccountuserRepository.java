@@ -2,8 +2,22 @@ package com.example.account.repository;
 
 import com.example.account.domain.AccountUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface AccountuserRepository extends JpaRepository<AccountUser,Long> {
+
+    //limit 미만일 때만 1 증가 (0이면 사용자가 없거나 이미 limit에 도달)
+    @Modifying
+    @Query("update AccountUser u set u.accountCount = u.accountCount + 1"
+            + " where u.id = :id and u.accountCount < :limit")
+    int increaseAccountCount(@Param("id") Long id, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update AccountUser u set u.accountCount = u.accountCount - 1"
+            + " where u.id = :id and u.accountCount > 0")
+    int decreaseAccountCount(@Param("id") Long id);
 }
@@ -0,0 +1,47 @@
+package com.example.account.repository;
+
+import com.example.account.domain.BalanceSnapshot;
+import com.example.account.type.TransactionType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    Optional<BalanceSnapshot> findFirstByAccount_IdOrderBySnapshotAtDesc(Long accountId);
+
+    Optional<BalanceSnapshot> findFirstByAccount_IdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(
+            Long accountId, LocalDateTime snapshotAt);
+
+    /*
+    * 계좌별 현재 원장 잔액 [accountId, balance] (가장 최근 snapshot + 이후 성공 거래 합계)
+    * 계좌 여러개를 query 하나로 읽는다. snapshot이 없는 계좌는 결과에 없다.
+    * */
+    @Query("select s.account.id, s.balance + coalesce(sum(case when t.transactionType in :creditTypes"
+            + " then t.amount else (0 - t.amount) end), 0)"
+            + " from BalanceSnapshot s left join Transaction t on t.account = s.account"
+            + " and t.transactionResultType = com.example.account.type.TransactionResultType.S"
+            + " and t.transactedAt > s.snapshotAt"
+            + " where s.account.id in :accountIds"
+            + " and s.snapshotAt = (select max(l.snapshotAt) from BalanceSnapshot l where l.account = s.account)"
+            + " group by s.account.id, s.balance")
+    List<Object[]> findLedgerBalances(@Param("accountIds") Collection<Long> accountIds,
+                                      @Param("creditTypes") Collection<TransactionType> creditTypes);
+
+    //계좌별 가장 최근 snapshot 시각 [accountId, snapshotAt]
+    @Query("select s.account.id, max(s.snapshotAt) from BalanceSnapshot s"
+            + " where s.account.id in :accountIds group by s.account.id")
+    List<Object[]> findLatestSnapshotAts(@Param("accountIds") Collection<Long> accountIds);
+
+    @Modifying
+    @Query("delete from BalanceSnapshot s where s.account.id = :accountId and s.snapshotAt >= :from")
+    int deleteFrom(@Param("accountId") Long accountId, @Param("from") LocalDateTime from);
+}
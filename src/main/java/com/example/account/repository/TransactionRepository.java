@@ -3,15 +3,73 @@ package com.example.account.repository;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.type.SettlementStatus;
+import com.example.account.type.TransactionType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.swing.text.html.Option;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
+    //취소는 원거래의 계좌를 확인하므로 계좌까지 함께 읽는다.
+    @EntityGraph(attributePaths = "account")
     Optional<Transaction> findByTransactionId(String transactionId);
+
+    //거래 조회 응답용 (Transaction, Account 엔티티를 만들지 않고 필요한 컬럼만 읽는다)
+    @Query("select new com.example.account.dto.TransactionDto(a.accountNumber, t.transactionType,"
+            + " t.transactionResultType, t.amount, t.balanceSnapshot, t.transactionId, t.transactedAt)"
+            + " from Transaction t join t.account a where t.transactionId = :transactionId")
+    Optional<TransactionDto> findDtoByTransactionId(@Param("transactionId") String transactionId);
+
+    @Query("select t.transactionId from Transaction t where t.transactionId in :transactionIds")
+    List<String> findTransactionIds(@Param("transactionIds") Collection<String> transactionIds);
+
+    /*
+    * 성공 거래의 잔액 변화 합계 (after 초과, until 이하)
+    * creditTypes는 입금(+), 나머지는 출금(-)
+    * */
+    @Query("select coalesce(sum(case when t.transactionType in :creditTypes"
+            + " then t.amount else (0 - t.amount) end), 0) from Transaction t"
+            + " where t.account.id = :accountId"
+            + " and t.transactionResultType = com.example.account.type.TransactionResultType.S"
+            + " and t.transactedAt > :after and t.transactedAt <= :until")
+    long sumBalanceChange(@Param("accountId") Long accountId,
+                          @Param("creditTypes") Collection<TransactionType> creditTypes,
+                          @Param("after") LocalDateTime after,
+                          @Param("until") LocalDateTime until);
+
+    @Query("select count(t) from Transaction t where t.account.id = :accountId"
+            + " and t.transactionResultType = com.example.account.type.TransactionResultType.S"
+            + " and t.transactedAt > :after and t.transactedAt <= :until")
+    long countBalanceChange(@Param("accountId") Long accountId,
+                            @Param("after") LocalDateTime after,
+                            @Param("until") LocalDateTime until);
+
+    //정산 sweep (transactionId keyset, transactionId는 발급시각 순서)
+    @Query("select t.transactionId from Transaction t where t.settlementStatus = :settlementStatus"
+            + " and t.transactedAt < :before and t.transactionId > :after order by t.transactionId")
+    List<String> findSettlementTransactionIds(@Param("settlementStatus") SettlementStatus settlementStatus,
+                                              @Param("before") LocalDateTime before,
+                                              @Param("after") String after,
+                                              Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("update Transaction t set t.settlementStatus = :settlementStatus"
+            + " where t.transactionId = :transactionId")
+    int updateSettlementStatus(@Param("transactionId") String transactionId,
+                               @Param("settlementStatus") SettlementStatus settlementStatus);
 }
@@ -0,0 +1,16 @@
+package com.example.account.repository;
+
+import com.example.account.dto.TransactionExport;
+import com.example.account.dto.TransactionHistory;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface TransactionRepositoryCustom {
+
+    List<TransactionHistory.Item> findHistory(Long accountId, TransactionHistory.Request condition,
+                                              TransactionHistory.Cursor cursor, int limit);
+
+    long exportTransactions(Long accountId, TransactionExport.Request condition, int fetchSize,
+                            Consumer<TransactionExport.Row> consumer);
+}
@@ -0,0 +1,128 @@
+package com.example.account.repository;
+
+import com.example.account.dto.TransactionExport;
+import com.example.account.dto.TransactionHistory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    /*
+    * (account_id, transactedAt, id) 인덱스를 따라 cursor 위치부터 limit건만 읽는다.
+    * offset을 쓰지 않으므로 몇번째 페이지든 읽는 행 수가 같다.
+    * 조건은 값이 있는 것만 where에 붙인다. (":param is null or ..." 형태는 인덱스를 못 탈 수 있음)
+    * */
+    @Override
+    @Transactional(readOnly = true)
+    public List<TransactionHistory.Item> findHistory(Long accountId, TransactionHistory.Request condition,
+                                                     TransactionHistory.Cursor cursor, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "select new com.example.account.dto.TransactionHistory$Item("
+                        + "t.id, t.transactionId, t.transactionType, t.transactionResultType,"
+                        + " t.amount, t.balanceSnapshot, t.transactedAt)"
+                        + " from Transaction t where t.account.id = :accountId");
+        if (condition.getTransactionType() != null) {
+            jpql.append(" and t.transactionType = :transactionType");
+        }
+        if (condition.getTransactionResultType() != null) {
+            jpql.append(" and t.transactionResultType = :transactionResultType");
+        }
+        if (condition.getFrom() != null) {
+            jpql.append(" and t.transactedAt >= :from");
+        }
+        if (condition.getTo() != null) {
+            jpql.append(" and t.transactedAt < :to");
+        }
+        if (cursor != null) {
+            jpql.append(" and (t.transactedAt < :cursorTransactedAt"
+                    + " or (t.transactedAt = :cursorTransactedAt and t.id < :cursorId))");
+        }
+        jpql.append(" order by t.transactedAt desc, t.id desc");
+
+        TypedQuery<TransactionHistory.Item> query = entityManager
+                .createQuery(jpql.toString(), TransactionHistory.Item.class)
+                .setParameter("accountId", accountId)
+                .setMaxResults(limit);
+        if (condition.getTransactionType() != null) {
+            query.setParameter("transactionType", condition.getTransactionType());
+        }
+        if (condition.getTransactionResultType() != null) {
+            query.setParameter("transactionResultType", condition.getTransactionResultType());
+        }
+        if (condition.getFrom() != null) {
+            query.setParameter("from", condition.getFrom());
+        }
+        if (condition.getTo() != null) {
+            query.setParameter("to", condition.getTo());
+        }
+        if (cursor != null) {
+            query.setParameter("cursorTransactedAt", cursor.getTransactedAt());
+            query.setParameter("cursorId", cursor.getId());
+        }
+        return query.getResultList();
+    }
+
+    /*
+    * 전체 결과를 List로 만들지 않고 forward-only cursor로 한 행씩 consumer에 넘긴다.
+    * JDBC fetch size만큼씩 DB에서 가져오고, Row는 엔티티가 아니라 persistence context에 쌓이지 않으므로 메모리가 일정하다.
+    * 계좌 조건이 있으면 (account_id, transactedAt, id), 없으면 (transactedAt, id) 인덱스 순서로 읽어 정렬하지 않는다.
+    * consumer는 transaction(connection)이 열린 상태에서 호출된다.
+    * */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportTransactions(Long accountId, TransactionExport.Request condition, int fetchSize,
+                                   Consumer<TransactionExport.Row> consumer) {
+        StringBuilder hql = new StringBuilder(
+                "select new com.example.account.dto.TransactionExport$Row("
+                        + "t.transactionId, a.accountNumber, t.transactionType, t.transactionResultType,"
+                        + " t.amount, t.balanceSnapshot, t.transactedAt)"
+                        + " from Transaction t join t.account a where 1 = 1");
+        if (accountId != null) {
+            hql.append(" and a.id = :accountId");
+        }
+        if (condition.getFrom() != null) {
+            hql.append(" and t.transactedAt >= :from");
+        }
+        if (condition.getTo() != null) {
+            hql.append(" and t.transactedAt < :to");
+        }
+        hql.append(" order by t.transactedAt, t.id");
+
+        Session session = entityManager.unwrap(Session.class);
+        Query<TransactionExport.Row> query = session
+                .createQuery(hql.toString(), TransactionExport.Row.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheable(false);
+        if (accountId != null) {
+            query.setParameter("accountId", accountId);
+        }
+        if (condition.getFrom() != null) {
+            query.setParameter("from", condition.getFrom());
+        }
+        if (condition.getTo() != null) {
+            query.setParameter("to", condition.getTo());
+        }
+
+        long count = 0;
+        try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept((TransactionExport.Row) results.get(0));
+                count++;
+            }
+        }
+        return count;
+    }
+}
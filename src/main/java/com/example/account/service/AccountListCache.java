@@ -0,0 +1,96 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountDto;
+import com.example.account.event.AccountChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/*
+* 사용자별 계좌목록 near cache (노드마다 따로 가진다)
+* 1. 계좌가 바뀐 트랜잭션이 commit되면 자기 노드 캐시를 지우고 Redis topic으로 다른 노드에 알린다.
+* 2. 조회중(miss 로딩중)에 무효화가 오면 로딩이 끝날때까지 기다렸다가 지우므로 이전 값이 남지 않는다.
+* 3. topic 메시지를 놓쳐도 expire-after-write 이후에는 다시 읽는다.
+* 4. 다른 노드의 무효화 메시지를 받으면 지우기 전에 최근 변경 사용자로 기록해
+*    이 노드의 재조회도 replica 지연 동안 primary에서 읽게 한다.
+* */
+@Slf4j
+@Component
+public class AccountListCache {
+    private static final String INVALIDATION_TOPIC = "ACINV:accountList";
+
+    private final Cache<Long, List<AccountDto>> cache;
+    private final RTopic invalidationTopic;
+    private final RecentWriteTracker recentWriteTracker;
+    private final Timer invalidationLag;
+    private int listenerId;
+
+    public AccountListCache(RedissonClient redissonClient, MeterRegistry meterRegistry,
+                            RecentWriteTracker recentWriteTracker,
+                            @Value("${account.account-list-cache.maximum-size:100000}") long maximumSize,
+                            @Value("${account.account-list-cache.expire-after-write:30s}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.invalidationTopic = redissonClient.getTopic(INVALIDATION_TOPIC, StringCodec.INSTANCE);
+        this.recentWriteTracker = recentWriteTracker;
+        this.invalidationLag = Timer.builder("account.list.cache.invalidation.lag")
+                .description("commit 이후 다른 노드에서 캐시가 지워지기까지 걸린 시간")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "accountList");
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerId = invalidationTopic.addListener(String.class,
+                (channel, message) -> onInvalidation(message));
+    }
+
+    @PreDestroy
+    public void stop() {
+        invalidationTopic.removeListener(listenerId);
+    }
+
+    public List<AccountDto> get(Long userId, Function<Long, List<AccountDto>> loader) {
+        return cache.get(userId, loader);
+    }
+
+    @TransactionalEventListener
+    public void onAccountChanged(AccountChangedEvent event) {
+        cache.invalidate(event.getUserId());
+        try {
+            invalidationTopic.publish(event.getUserId() + ":" + System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("Account list invalidation publish failed for userId:{}", event.getUserId(), e);
+        }
+    }
+
+    private void onInvalidation(String message) {
+        int separator = message.indexOf(':');
+        Long userId = Long.valueOf(message.substring(0, separator));
+        recentWriteTracker.markWritten(userId);
+        cache.invalidate(userId);
+
+        long publishedAt = Long.parseLong(message.substring(separator + 1));
+        invalidationLag.record(Math.max(0L, System.currentTimeMillis() - publishedAt),
+                TimeUnit.MILLISECONDS);
+    }
+}
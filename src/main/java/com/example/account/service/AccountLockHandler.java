@@ -0,0 +1,25 @@
+package com.example.account.service;
+
+import com.example.account.type.LockStrategy;
+
+import java.util.Comparator;
+
+/*
+* LockAopAspect가 사용하는 계좌 lock 구현
+* @AccountLock의 strategy로 선택된다.
+* */
+public interface AccountLockHandler {
+    LockStrategy getStrategy();
+
+    void lock(String accountNumber, long tryLockTime, long leaseTime);
+
+    void unlock(String accountNumber);
+
+    /*
+    * 여러 계좌를 한 요청에서 잡을 때의 순서
+    * 모든 요청이 같은 순서로 잡아야 서로 반대 방향의 이체가 교착되지 않는다.
+    * */
+    default Comparator<String> lockOrder() {
+        return Comparator.naturalOrder();
+    }
+}
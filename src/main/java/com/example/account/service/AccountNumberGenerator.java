@@ -0,0 +1,94 @@
+package com.example.account.service;
+
+import com.example.account.config.ReplicationRoutingDataSource;
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 계좌번호 발급
+* Redis INCRBY로 block 단위 번호를 예약하고 block 안에서는 메모리에서 발급한다.
+* 노드마다 서로 다른 block을 받으므로 동시에 생성해도 중복되지 않는다.
+* (재시작시 남은 block 번호는 사용되지 않는다)
+* Redis 값이 사라지면(flush, failover) 다른 노드가 아직 발급하지 않은 block을 들고 있을 수 있으므로
+* DB 마지막 계좌번호에서 block-size * max-nodes 만큼 건너뛴 뒤부터 다시 발급한다.
+* */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountNumberGenerator {
+    private static final String SEQUENCE_KEY = "ACSEQ:accountNumber";
+    private static final long FIRST_ACCOUNT_NUMBER = 1_000_000_000L;
+    private static final long LAST_ACCOUNT_NUMBER = 9_999_999_999L;
+
+    private final RedissonClient redissonClient;
+    private final AccountRepository accountRepository;
+
+    @Value("${account.account-number.block-size:100}")
+    private long blockSize;
+
+    @Value("${account.account-number.max-nodes:16}")
+    private long maxNodes;
+
+    private volatile Block block = new Block(1L, 0L);
+
+    public String nextAccountNumber() {
+        while (true) {
+            Block current = block;
+            long accountNumber = current.next.getAndIncrement();
+            if (accountNumber <= current.last) {
+                return String.valueOf(accountNumber);
+            }
+            reserveBlock(current);
+        }
+    }
+
+    private synchronized void reserveBlock(Block exhausted) {
+        if (block != exhausted) {
+            return;
+        }
+
+        RAtomicLong sequence = redissonClient.getAtomicLong(SEQUENCE_KEY);
+        if (!sequence.isExists()) {
+            seed(sequence);
+        }
+
+        long reserved = sequence.addAndGet(blockSize);
+        long first = FIRST_ACCOUNT_NUMBER + reserved - blockSize;
+        if (first > LAST_ACCOUNT_NUMBER) {
+            throw new AccountException(ErrorCode.ACCOUNT_NUMBER_EXHAUSTED);
+        }
+        log.debug("Reserved account number block from {}", first);
+        block = new Block(first, Math.min(first + blockSize - 1, LAST_ACCOUNT_NUMBER));
+    }
+
+    //마지막 계좌번호 다음 + 다른 노드가 들고 있을 수 있는 block 만큼 건너뛰고 발급 (다른 노드가 먼저 설정했으면 무시)
+    //replica가 늦으면 이미 발급한 번호를 다시 줄 수 있으므로 primary에서 읽는다.
+    private void seed(RAtomicLong sequence) {
+        long issued = ReplicationRoutingDataSource.usePrimary(
+                        accountRepository::findFirstByOrderByAccountNumberDesc)
+                .map(Account::getAccountNumber)
+                .map(accountNumber -> Long.parseLong(accountNumber) - FIRST_ACCOUNT_NUMBER + 1)
+                .orElse(0L);
+        sequence.compareAndSet(0L, issued + blockSize * maxNodes);
+    }
+
+    private static class Block {
+        private final AtomicLong next;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
@@ -1,22 +1,23 @@
 package com.example.account.service;
 
+import com.example.account.config.ReplicationRoutingDataSource;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountDto;
 import com.example.account.dto.AccountInfo;
+import com.example.account.event.AccountChangedEvent;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountuserRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.repository.AccountRepository;
 import com.example.account.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-
-import javax.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static com.example.account.type.AccountStatus.*;
 import static com.example.account.type.ErrorCode.*;
@@ -24,8 +25,16 @@ import static com.example.account.type.ErrorCode.*;
 @Service
 @RequiredArgsConstructor
 public class AccountService {
+    private static final int MAX_ACCOUNT_PER_USER = 10;
+
     private final AccountRepository accountRepository;
     private final AccountuserRepository accountUserRepository;
+    private final AccountNumberGenerator accountNumberGenerator;
+    private final AccountListCache accountListCache;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final BalanceLedgerService balanceLedgerService;
+    private final RecentWriteTracker recentWriteTracker;
+    private final HotBalanceLedger hotBalanceLedger;
 
     /**
      * @param userId
@@ -36,15 +45,12 @@ public class AccountService {
      */
     @Transactional
     public AccountDto createAccount(Long userId, Long initialBalance) {
+        reserveAccountCount(userId);
         AccountUser accountUser = getAccountUser(userId);
 
-        validateCreateAccount(accountUser);
-
-        String newAccountNumber=accountRepository.findFirstByOrderByIdDesc()
-                .map(account -> (Integer.parseInt(account.getAccountNumber()))+1+"")
-                .orElse("1000000000");
+        String newAccountNumber=accountNumberGenerator.nextAccountNumber();
 
-        return AccountDto.fromEntity(accountRepository.save(
+        Account account = accountRepository.save(
                 Account.builder()
                         .accountUser(accountUser)
                         .accountStatus(IN_USE)
@@ -52,26 +58,40 @@ public class AccountService {
                         .balance(initialBalance)
                         .regiteredAt(LocalDateTime.now())
                         .build()
-        ));
+        );
+        balanceLedgerService.openLedger(account);
+
+        applicationEventPublisher.publishEvent(new AccountChangedEvent(userId));
+        return AccountDto.fromEntity(account);
     }
 
-    private void validateCreateAccount(AccountUser accountUser) {
-        if(accountRepository.countByAccountUser(accountUser)==10){
+    /*
+    * 계좌 수 확인과 예약을 조건부 UPDATE 한 문장으로 처리한다.
+    * 동시에 생성해도 row lock으로 순서가 정해지고, 생성이 실패하면 트랜잭션과 함께 되돌아간다.
+    * */
+    private void reserveAccountCount(Long userId) {
+        if(accountUserRepository.increaseAccountCount(userId, MAX_ACCOUNT_PER_USER)==0){
+            getAccountUser(userId);
             throw new AccountException(MAX_ACCOUNT_PER_USER_10);
         }
     }
 
-    @Transactional
-    public Account getAccount(Long id) {
+    @Transactional(readOnly = true)
+    public AccountDto getAccount(Long id) {
         if(id < 0){
             throw new RuntimeException("Minus");
         }
-        return accountRepository.findById(id).get();
+        return accountRepository.findDtoById(id)
+                .orElseThrow(() -> new AccountException(NOT_ACCOUNT_EXIST));
     }
 
     @Transactional
     public AccountDto deleteAccount(Long userId, String accountNumber) {
         AccountUser accountUser = getAccountUser(userId);
+        //Redis에서 잔액을 관리하는 계좌는 남은 기록을 DB에 반영하고 Redis에서 차감을 막은 뒤에 계좌를 읽는다.
+        if(hotBalanceLedger.isHot(accountNumber)){
+            hotBalanceLedger.closeAccount(userId, accountNumber);
+        }
 
         Account account=accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(()-> new AccountException(NOT_ACCOUNT_EXIST));
@@ -82,6 +102,8 @@ public class AccountService {
         account.setUnRegisteredAt(LocalDateTime.now());
 
         accountRepository.save(account);
+        accountUserRepository.decreaseAccountCount(accountUser.getId());
+        applicationEventPublisher.publishEvent(new AccountChangedEvent(userId));
         return AccountDto.fromEntity(account);
     }
 
@@ -99,13 +121,23 @@ public class AccountService {
         }
     }
 
-    @Transactional
+    /*
+    * replica에서 조회하되 방금 계좌가 바뀐 사용자는 primary에서 읽는다.
+    * (replica의 이전 목록이 캐시에 들어가지 않도록)
+    * */
+    @Transactional(readOnly = true)
     public List<AccountDto> getAccountsByUserId(Long userId) {
-        AccountUser accountUser = getAccountUser(userId);
+        return accountListCache.get(userId, id -> recentWriteTracker.isRecentlyWritten(id)
+                ? ReplicationRoutingDataSource.usePrimary(() -> loadAccounts(id))
+                : loadAccounts(id));
+    }
 
-        List<Account> accounts = accountRepository.findByAccountUser(accountUser);
+    private List<AccountDto> loadAccounts(Long userId) {
+        if (!accountUserRepository.existsById(userId)) {
+            throw new AccountException(USER_NOT_FOUND);
+        }
 
-        return accounts.stream().map(AccountDto::fromEntity).collect(Collectors.toList());
+        return List.copyOf(accountRepository.findDtosByAccountUserId(userId));
     }
 
     private AccountUser getAccountUser(Long userId) {
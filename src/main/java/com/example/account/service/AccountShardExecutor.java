@@ -0,0 +1,123 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+* 계좌번호를 hash해서 N개의 단일 스레드 shard 중 하나에서 실행
+* 같은 계좌의 작업은 항상 같은 스레드에서 순서대로 실행되므로 lock이 필요없다.
+* 노드 내부에서만 직렬화되므로 한 노드가 계좌 쓰기를 전담할때 사용
+* */
+@Slf4j
+@Component
+public class AccountShardExecutor {
+    private final ThreadPoolExecutor[] shards;
+    private final Thread[] shardThreads;
+
+    public AccountShardExecutor(@Value("${account.shard.count:8}") int shardCount,
+                                @Value("${account.shard.queue-capacity:10000}") int queueCapacity) {
+        shards = new ThreadPoolExecutor[shardCount];
+        shardThreads = new Thread[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            int shard = i;
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "account-shard-" + shard);
+                thread.setDaemon(true);
+                shardThreads[shard] = thread;
+                return thread;
+            });
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(String accountNumber, ShardTask<T> task) {
+        int shard = getShard(accountNumber);
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        //shard 스레드 안에서 다시 같은 shard로 넘기면 대기하게 되므로 바로 실행
+        if (Thread.currentThread() == shardThreads[shard]) {
+            run(task, future);
+            return future;
+        }
+
+        try {
+            shards[shard].execute(() -> run(task, future));
+        } catch (RejectedExecutionException e) {
+            log.error("======Shard queue is full shard:{}=====", shard);
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+        return future;
+    }
+
+    /*
+    * 호출한 스레드에서 결과를 기다린다. (servlet 스레드는 shard에서 실행이 끝날때까지 묶인다)
+    * queueTimeout 안에 shard에서 시작되지 못한 작업은 실행하지 않고 lock 실패와 같은 에러로 끝낸다.
+    * 이미 시작된 작업은 중간에 끊지 않고 끝날때까지 기다린다.
+    * */
+    public <T> T call(String accountNumber, ShardTask<T> task, long queueTimeoutMillis) throws Throwable {
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletableFuture<T> future = submit(accountNumber, () -> {
+            if (!claimed.compareAndSet(false, true)) {
+                throw new CancellationException();
+            }
+            return task.run();
+        });
+
+        try {
+            try {
+                return future.get(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    log.error("======Shard queue wait timed out shard:{}=====", getShard(accountNumber));
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                }
+                return future.join();
+            }
+        } catch (ExecutionException | CompletionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    public int getShard(String accountNumber) {
+        int hash = accountNumber.hashCode();
+        return ((hash ^ (hash >>> 16)) & 0x7fffffff) % shards.length;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    private static <T> void run(ShardTask<T> task, CompletableFuture<T> future) {
+        try {
+            future.complete(task.run());
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ShardTask<T> {
+        T run() throws Throwable;
+    }
+}
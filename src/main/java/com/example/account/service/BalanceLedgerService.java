@@ -0,0 +1,276 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.BalanceSnapshot;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.BalanceSnapshotRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+* 거래내역(Transaction)을 잔액 원장으로 사용한다. (append-only)
+* 잔액 = asOf 이전 가장 최근 snapshot + snapshot 이후 성공 거래 합계(tail)
+* snapshot은 주기적으로 계좌마다 (현재 - safety-lag) 시각까지의 거래를 접어서 새로 만든다.
+*   transactedAt은 commit보다 먼저 찍히므로 lag 안쪽에는 아직 commit되지 않은 거래가 있을 수 있다.
+* 과거 잔액 조회는 snapshot 하나와 그 이후 tail만 읽으므로 전체 거래내역을 훑지 않는다.
+* 잔액을 바꾸는 거래는 계좌 lock 아래에서 Account.balance로 검증하고 갱신한다. (원장은 쓰기 경로에서 읽지 않음)
+* 원장은 시점별 잔액 조회(getBalanceAsOf)와 대사(reconcile)에만 쓴다.
+* snapshot 작업은 노드 하나만(Redisson lock) 실행하고, 계좌마다 짧은 트랜잭션에서 그 계좌 row lock만 잡고
+*   snapshot을 만든 뒤 Account.balance와 원장 잔액을 대사한다.
+* snapshot보다 이전 시각의 거래가 늦게 들어오면
+*   실시간 거래 : 거절 (rejectLate)
+*   Redis ledger flush, journal 재반영 : 그 거래 이후 snapshot을 지워 다음 작업에서 다시 만든다. (invalidateLateSnapshots)
+* */
+@Slf4j
+@Service
+public class BalanceLedgerService {
+    static final List<TransactionType> CREDIT_TYPES =
+            List.of(TransactionType.CANCEL, TransactionType.TRANSFER_IN);
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final String SNAPSHOT_LOCK_KEY = "ACLEDGER:snapshot";
+    private static final int SNAPSHOT_TAKEN = 1;
+    private static final int LEDGER_MISMATCH = 2;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RedissonClient redissonClient;
+    private final Duration safetyLag;
+    private final Duration snapshotInterval;
+    private final int batchSize;
+
+    private ScheduledExecutorService snapshotter;
+
+    public BalanceLedgerService(AccountRepository accountRepository,
+                                TransactionRepository transactionRepository,
+                                BalanceSnapshotRepository balanceSnapshotRepository,
+                                PlatformTransactionManager transactionManager,
+                                RedissonClient redissonClient,
+                                @Value("${account.balance-snapshot.safety-lag:5m}") Duration safetyLag,
+                                @Value("${account.balance-snapshot.interval:10m}") Duration snapshotInterval,
+                                @Value("${account.balance-snapshot.batch-size:500}") int batchSize) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.redissonClient = redissonClient;
+        this.safetyLag = safetyLag;
+        this.snapshotInterval = snapshotInterval;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        snapshotter = Executors.newSingleThreadScheduledExecutor();
+        snapshotter.scheduleWithFixedDelay(this::takeSnapshotsQuietly,
+                snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        snapshotter.shutdown();
+    }
+
+    //계좌 개설 잔액을 첫 snapshot으로 남긴다. (계좌 저장과 같은 트랜잭션에서 호출)
+    public void openLedger(Account account) {
+        balanceSnapshotRepository.save(BalanceSnapshot.builder()
+                .account(account)
+                .balance(account.getBalance())
+                .snapshotAt(account.getRegiteredAt())
+                .build());
+    }
+
+    @Transactional(readOnly = true)
+    public Long getBalanceAsOf(String accountNumber, LocalDateTime asOf) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST));
+        if (asOf.isBefore(account.getRegiteredAt())) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository
+                .findFirstByAccount_IdAndSnapshotAtLessThanEqualOrderBySnapshotAtDesc(account.getId(), asOf);
+        if (snapshot.isPresent()) {
+            return snapshot.get().getBalance() + transactionRepository.sumBalanceChange(
+                    account.getId(), CREDIT_TYPES, snapshot.get().getSnapshotAt(), asOf);
+        }
+
+        //원장 도입 이전에 개설되어 asOf 이전 snapshot이 없는 계좌는 현재 잔액에서 asOf 이후 거래를 되돌린다.
+        return account.getBalance() - transactionRepository.sumBalanceChange(
+                account.getId(), CREDIT_TYPES, asOf, END_OF_TIME);
+    }
+
+    /*
+    * Account.balance와 원장 잔액(가장 최근 snapshot + 이후 성공 거래)을 비교한다.
+    * 계좌 row lock을 잡은 트랜잭션에서 호출해야 진행중인 거래와 섞이지 않는다.
+    * snapshot이 없는 기존 계좌는 비교하지 않는다.
+    * */
+    public boolean reconcile(Account account) {
+        for (Object[] row : balanceSnapshotRepository.findLedgerBalances(List.of(account.getId()), CREDIT_TYPES)) {
+            Long ledgerBalance = (Long) row[1];
+            if (!ledgerBalance.equals(account.getBalance())) {
+                log.error("Balance mismatch, account: {}, balance: {}, ledger: {}",
+                        account.getId(), account.getBalance(), ledgerBalance);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    * 실시간 거래 : 계좌 row UPDATE를 flush한 뒤 확인한다.
+    * snapshot 작업은 계좌 row lock을 잡고 만들므로 이 거래를 못 본 snapshot은 flush 이전에 commit되었고,
+    * 그 cutoff(작업 시각 - safety-lag)는 now - safety-lag보다 이르다. 그보다 늦은 거래만 통과시킨다.
+    * */
+    public void rejectLate(Collection<Transaction> transactions) {
+        transactionRepository.flush();
+        LocalDateTime cutoff = LocalDateTime.now().minus(safetyLag);
+        if (transactions.stream()
+                .filter(transaction -> transaction.getTransactionResultType() == TransactionResultType.S)
+                .anyMatch(transaction -> !transaction.getTransactedAt().isAfter(cutoff))) {
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    /*
+    * Redis ledger flush, journal 재반영 : 이미 잔액에 반영된 거래라 거절할 수 없다.
+    * 계좌 row lock을 잡고(snapshot 작업과 직렬화) 거래 시각 이후의 snapshot을 지운다.
+    * 지운 동안은 이전 snapshot + 더 긴 tail로 계산하고, 다음 snapshot 작업이 다시 만든다.
+    * */
+    public void invalidateLateSnapshots(Collection<Transaction> transactions) {
+        Map<Long, LocalDateTime> earliest = transactions.stream()
+                .filter(transaction -> transaction.getTransactionResultType() == TransactionResultType.S)
+                .collect(Collectors.toMap(transaction -> transaction.getAccount().getId(),
+                        Transaction::getTransactedAt, (a, b) -> a.isBefore(b) ? a : b));
+        if (earliest.isEmpty()) {
+            return;
+        }
+
+        accountRepository.findAllByIdForUpdate(earliest.keySet());
+        for (Object[] row : balanceSnapshotRepository.findLatestSnapshotAts(earliest.keySet())) {
+            Long accountId = (Long) row[0];
+            LocalDateTime transactedAt = earliest.get(accountId);
+            if (!transactedAt.isAfter((LocalDateTime) row[1])) {
+                int deleted = balanceSnapshotRepository.deleteFrom(accountId, transactedAt);
+                log.warn("Late transaction at {}, deleted {} balance snapshots of account {}",
+                        transactedAt, deleted, accountId);
+            }
+        }
+    }
+
+    /*
+    * 전체 계좌 id를 batch-size씩 읽고, 계좌마다 짧은 트랜잭션 하나로 snapshot을 만들고 대사한다.
+    * 한번에 row lock을 잡는 계좌는 하나뿐이라 쓰기 요청은 그 계좌의 snapshot 계산만큼만 기다린다.
+    * 다른 노드가 실행중이면 건너뛴다.
+    * */
+    public int takeSnapshots() {
+        RLock lock = redissonClient.getLock(SNAPSHOT_LOCK_KEY);
+        if (!lock.tryLock()) {
+            return 0;
+        }
+
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(safetyLag);
+            int taken = 0;
+            int mismatched = 0;
+            Long afterId = 0L;
+            List<Long> accountIds;
+            do {
+                accountIds = accountRepository.findIdsAfter(afterId, PageRequest.of(0, batchSize));
+                for (Long accountId : accountIds) {
+                    int result = snapshotAndReconcile(accountId, cutoff);
+                    taken += result & SNAPSHOT_TAKEN;
+                    mismatched += (result & LEDGER_MISMATCH) == 0 ? 0 : 1;
+                }
+                if (!accountIds.isEmpty()) {
+                    afterId = accountIds.get(accountIds.size() - 1);
+                }
+            } while (accountIds.size() == batchSize);
+
+            log.info("Took {} balance snapshots until {}, {} ledger mismatches", taken, cutoff, mismatched);
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //계좌 row lock을 잡아 진행중인 거래가 commit된 뒤에 tail을 읽는다. (SNAPSHOT_TAKEN, LEDGER_MISMATCH 조합)
+    private int snapshotAndReconcile(Long accountId, LocalDateTime cutoff) {
+        Integer result = transactionTemplate.execute(status -> {
+            List<Account> accounts = accountRepository.findAllByIdForUpdate(List.of(accountId));
+            if (accounts.isEmpty()) {
+                return 0;
+            }
+            Account account = accounts.get(0);
+            return (takeSnapshot(account, cutoff) ? SNAPSHOT_TAKEN : 0)
+                    | (reconcile(account) ? 0 : LEDGER_MISMATCH);
+        });
+        return result == null ? 0 : result;
+    }
+
+    private void takeSnapshotsQuietly() {
+        try {
+            takeSnapshots();
+        } catch (Exception e) {
+            log.error("Failed to take balance snapshots", e);
+        }
+    }
+
+    private boolean takeSnapshot(Account account, LocalDateTime cutoff) {
+        Long accountId = account.getId();
+        Optional<BalanceSnapshot> latest =
+                balanceSnapshotRepository.findFirstByAccount_IdOrderBySnapshotAtDesc(accountId);
+        if (latest.isEmpty()) {
+            //snapshot이 없는 계좌는 현재 잔액에서 cutoff 이후 거래를 되돌려 시작점을 만든다.
+            balanceSnapshotRepository.save(BalanceSnapshot.builder()
+                    .account(account)
+                    .balance(account.getBalance() - transactionRepository.sumBalanceChange(
+                            accountId, CREDIT_TYPES, cutoff, END_OF_TIME))
+                    .snapshotAt(cutoff)
+                    .build());
+            return true;
+        }
+
+        BalanceSnapshot snapshot = latest.get();
+        if (!snapshot.getSnapshotAt().isBefore(cutoff)
+                || transactionRepository.countBalanceChange(
+                accountId, snapshot.getSnapshotAt(), cutoff) == 0) {
+            return false;
+        }
+
+        balanceSnapshotRepository.save(BalanceSnapshot.builder()
+                .account(snapshot.getAccount())
+                .balance(snapshot.getBalance() + transactionRepository.sumBalanceChange(
+                        accountId, CREDIT_TYPES, snapshot.getSnapshotAt(), cutoff))
+                .snapshotAt(cutoff)
+                .build());
+        return true;
+    }
+}
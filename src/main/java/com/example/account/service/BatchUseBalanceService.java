@@ -0,0 +1,198 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.LockStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+* 대량 잔액사용 chunk 처리
+* 1. 요청을 계좌별로 묶고 handler의 lockOrder() 순서로 계좌마다 lock을 한번만 잡는다. (순서를 고정해 교착을 피함)
+*    lock은 account.batch.lock-strategy의 AccountLockHandler(REDIS, PESSIMISTIC)로 잡는다.
+*    한번에 잡는 계좌는 max-locked-accounts개까지로 나눠서, 묶음마다 lock -> 처리 -> unlock 한다.
+*    (노드가 죽었을때 lock이 남는 시간과 단건 요청이 기다리는 시간을 묶음 크기로 제한)
+* 2. lock을 잡은 계좌의 요청은 묶음마다 DB 트랜잭션 하나로 처리 (TransactionService.useBalanceChunk)
+*    chunk가 실패하면 계좌별로 나눠 다시 처리해서 실패한 계좌의 요청만 실패로 남긴다.
+* 3. lock 실패, 처리 실패 요청은 lock 해제 후 F 거래를 한번에 저장
+* Redis ledger 계좌는 lock없이 HotBalanceLedger로 처리한다.
+* */
+@Slf4j
+@Service
+public class BatchUseBalanceService {
+    private final TransactionService transactionService;
+    private final AccountLockHandler lockHandler;
+    private final HotBalanceLedger hotBalanceLedger;
+    private final long tryLockTime;
+    private final long leaseTime;
+    private final int maxLockedAccounts;
+
+    public BatchUseBalanceService(TransactionService transactionService,
+                                  List<AccountLockHandler> lockHandlers,
+                                  HotBalanceLedger hotBalanceLedger,
+                                  @Value("${account.batch.lock-strategy:REDIS}") LockStrategy lockStrategy,
+                                  @Value("${account.batch.try-lock-time:1000}") long tryLockTime,
+                                  @Value("${account.batch.lease-time:15000}") long leaseTime,
+                                  @Value("${account.batch.max-locked-accounts:20}") int maxLockedAccounts) {
+        this.transactionService = transactionService;
+        this.lockHandler = lockHandlers.stream()
+                .filter(handler -> handler.getStrategy() == lockStrategy)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "No lock handler for batch lock strategy " + lockStrategy));
+        this.hotBalanceLedger = hotBalanceLedger;
+        this.tryLockTime = tryLockTime;
+        this.leaseTime = leaseTime;
+        this.maxLockedAccounts = maxLockedAccounts;
+    }
+
+    public List<UseBalance.BatchResponse> useBalance(List<UseBalance.Request> requests) {
+        UseBalance.BatchResponse[] responses = new UseBalance.BatchResponse[requests.size()];
+        List<Integer> failedIndexes = new ArrayList<>();
+        List<ErrorCode> failedErrorCodes = new ArrayList<>();
+
+        Map<String, List<Integer>> indexesByAccount = new TreeMap<>(lockHandler.lockOrder());
+        for (int i = 0; i < requests.size(); i++) {
+            UseBalance.Request request = requests.get(i);
+            if (hotBalanceLedger.isHot(request.getAccountNumber())) {
+                useHotBalance(request, i, responses, failedIndexes, failedErrorCodes);
+                continue;
+            }
+            indexesByAccount.computeIfAbsent(request.getAccountNumber(), k -> new ArrayList<>()).add(i);
+        }
+
+        List<Map.Entry<String, List<Integer>>> accounts = new ArrayList<>(indexesByAccount.entrySet());
+        for (int from = 0; from < accounts.size(); from += maxLockedAccounts) {
+            useLockedGroup(requests, accounts.subList(from, Math.min(accounts.size(), from + maxLockedAccounts)),
+                    responses, failedIndexes, failedErrorCodes);
+        }
+
+        saveFailed(requests, failedIndexes, failedErrorCodes, responses);
+        return Arrays.asList(responses);
+    }
+
+    private void useLockedGroup(List<UseBalance.Request> requests,
+                                List<Map.Entry<String, List<Integer>>> accounts,
+                                UseBalance.BatchResponse[] responses,
+                                List<Integer> failedIndexes, List<ErrorCode> failedErrorCodes) {
+        List<String> lockedAccounts = new ArrayList<>();
+        try {
+            Map<String, List<Integer>> lockedIndexesByAccount = new LinkedHashMap<>();
+            int remaining = accounts.size();
+            for (Map.Entry<String, List<Integer>> entry : accounts) {
+                remaining--;
+                try {
+                    //묶음에서 뒤에 잡을 계좌들의 대기시간만큼 lease를 늘려 처리 전에 먼저 잡은 lock이 풀리지 않게 한다.
+                    lockHandler.lock(entry.getKey(), tryLockTime, leaseTime + remaining * tryLockTime);
+                    lockedAccounts.add(entry.getKey());
+                    lockedIndexesByAccount.put(entry.getKey(), entry.getValue());
+                } catch (AccountException e) {
+                    fail(entry.getValue(), e.getErrorCode(), failedIndexes, failedErrorCodes);
+                }
+            }
+
+            useLockedBalance(requests, lockedIndexesByAccount, responses, failedIndexes, failedErrorCodes);
+        } finally {
+            for (int i = lockedAccounts.size() - 1; i >= 0; i--) {
+                lockHandler.unlock(lockedAccounts.get(i));
+            }
+        }
+    }
+
+    private void useHotBalance(UseBalance.Request request, int index, UseBalance.BatchResponse[] responses,
+                               List<Integer> failedIndexes, List<ErrorCode> failedErrorCodes) {
+        try {
+            TransactionDto transactionDto = hotBalanceLedger.useBalance(
+                    request.getUserId(), request.getAccountNumber(), request.getAmount());
+            responses[index] = UseBalance.BatchResponse.from(transactionDto, null);
+        } catch (AccountException e) {
+            failedIndexes.add(index);
+            failedErrorCodes.add(e.getErrorCode());
+        }
+    }
+
+    private void useLockedBalance(List<UseBalance.Request> requests,
+                                  Map<String, List<Integer>> lockedIndexesByAccount,
+                                  UseBalance.BatchResponse[] responses,
+                                  List<Integer> failedIndexes, List<ErrorCode> failedErrorCodes) {
+        if (lockedIndexesByAccount.isEmpty()) {
+            return;
+        }
+
+        List<Integer> lockedIndexes = new ArrayList<>();
+        lockedIndexesByAccount.values().forEach(lockedIndexes::addAll);
+        lockedIndexes.sort(null);
+        try {
+            useChunk(requests, lockedIndexes, responses);
+            return;
+        } catch (RuntimeException e) {
+            if (lockedIndexesByAccount.size() == 1) {
+                log.error("Failed to use balance chunk", e);
+                fail(lockedIndexes, toErrorCode(e), failedIndexes, failedErrorCodes);
+                return;
+            }
+            log.warn("Failed to use balance chunk, retrying per account", e);
+        }
+
+        lockedIndexesByAccount.forEach((accountNumber, indexes) -> {
+            try {
+                useChunk(requests, indexes, responses);
+            } catch (RuntimeException e) {
+                log.error("Failed to use balance, accountNumber: {}", accountNumber, e);
+                fail(indexes, toErrorCode(e), failedIndexes, failedErrorCodes);
+            }
+        });
+    }
+
+    private void useChunk(List<UseBalance.Request> requests, List<Integer> indexes,
+                          UseBalance.BatchResponse[] responses) {
+        List<UseBalance.Request> chunk = new ArrayList<>(indexes.size());
+        indexes.forEach(index -> chunk.add(requests.get(index)));
+        List<UseBalance.BatchResponse> results = transactionService.useBalanceChunk(chunk);
+        for (int i = 0; i < indexes.size(); i++) {
+            responses[indexes.get(i)] = results.get(i);
+        }
+    }
+
+    private static ErrorCode toErrorCode(RuntimeException e) {
+        if (e instanceof AccountException) {
+            return ((AccountException) e).getErrorCode();
+        }
+        return e instanceof OptimisticLockingFailureException
+                ? ErrorCode.ACCOUNT_TRANSACTION_LOCK : ErrorCode.INTERNAL_SERVER_ERROR;
+    }
+
+    private static void fail(List<Integer> indexes, ErrorCode errorCode,
+                             List<Integer> failedIndexes, List<ErrorCode> failedErrorCodes) {
+        indexes.forEach(index -> {
+            failedIndexes.add(index);
+            failedErrorCodes.add(errorCode);
+        });
+    }
+
+    private void saveFailed(List<UseBalance.Request> requests, List<Integer> failedIndexes,
+                            List<ErrorCode> failedErrorCodes, UseBalance.BatchResponse[] responses) {
+        if (failedIndexes.isEmpty()) {
+            return;
+        }
+
+        List<UseBalance.Request> failedRequests = new ArrayList<>(failedIndexes.size());
+        failedIndexes.forEach(index -> failedRequests.add(requests.get(index)));
+        List<UseBalance.BatchResponse> results =
+                transactionService.saveFailedUseTransactions(failedRequests, failedErrorCodes);
+        for (int i = 0; i < failedIndexes.size(); i++) {
+            responses[failedIndexes.get(i)] = results.get(i);
+        }
+    }
+}
@@ -0,0 +1,635 @@
+package com.example.account.service;
+
+import com.example.account.config.ReplicationRoutingDataSource;
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.event.AccountChangedEvent;
+import com.example.account.event.TransactionSavedEvent;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.SettlementStatus;
+import com.example.account.type.TransactionType;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.USE;
+
+/*
+* 거래량이 많은 계좌(account.ledger.accounts)의 잔액을 Redis에서 관리
+* 1. 잔액 확인/차감과 거래기록 적재를 Lua script 하나로 처리하므로 계좌 lock이 필요없다.
+* 2. 거래기록은 Redis list(queue)에 쌓이고 writer가 묶어서 DB(Transaction, Account.balance)에 반영한다.
+* 3. writer는 queue에서 processing list로 옮긴 뒤 DB commit 이후에 processing을 비운다.
+*    중간에 죽으면 다음 writer가 processing에 남은 기록부터 다시 반영한다. (이미 저장된 거래아이디는 건너뜀)
+* Redis hash가 없으면 DB 잔액으로 다시 채운다.
+*    계좌별로 DB에 반영되지 않은 기록 수(pending)를 세어 두고, 남은 기록이 있으면 먼저 반영한 뒤 채운다.
+* 4. DB 반영 전에 응답하므로 응답 전에 로컬 journal(TransactionJournal)에 기록하고 fsync를 기다린다.
+*    fsync가 실패하면 Redis 기록을 되돌리고 요청을 실패시킨다. (writer가 이미 가져갔으면 DB 반영을 확인하고 응답)
+*    시작할 때 journal에 남은 기록 중 DB에 없는 거래를 반영하고, DB에 모두 반영된 segment는 지운다.
+*    Redis가 기록을 잃으면(노드 marker가 없으면) 다시 적재하기 전에 이 노드의 journal 전체를 DB에 반영한다.
+*    다른 노드의 journal은 그 노드의 writer가 marker를 확인할 때(flush-interval마다) 반영한다.
+* DB 반영은 모두 DB에 없는 거래만 저장하고 잔액에 증감분을 더한다. (어떤 순서로 반영되어도 같은 잔액)
+* */
+@Slf4j
+@Service
+public class HotBalanceLedger {
+    private static final String BALANCE_KEY_PREFIX = "ACBAL:";
+    private static final String QUEUE_KEY = "ACLEDGER:queue";
+    private static final String PROCESSING_KEY = "ACLEDGER:processing";
+    private static final String PENDING_KEY = "ACLEDGER:pending";
+    private static final String WRITER_LOCK_KEY = "ACLEDGER:writer";
+    private static final String NODE_MARKER_KEY_PREFIX = "ACLEDGER:node:";
+    private static final long NODE_MARKER_TTL_HOURS = 24;
+    private static final String ENTRY_SEPARATOR = "|";
+
+    private static final long NOT_LOADED = -1L;
+    private static final long USER_ACCOUNT_UNMATCH = -2L;
+    private static final long ACCOUNT_UNREGISTERED = -3L;
+    private static final long AMOUNT_EXCEED_BALANCE = -4L;
+    private static final long BALANCE_NOT_EMPTY = -5L;
+    private static final long ENTRIES_PENDING = -6L;
+    private static final int MAX_DRAIN_ATTEMPTS = 3;
+
+    // KEYS: balance hash, queue, pending / ARGV: userId, amount, entry prefix, accountNumber
+    private static final String DEBIT_SCRIPT =
+            "local status = redis.call('HGET', KEYS[1], 'status') "
+            + "if not status then return -1 end "
+            + "if redis.call('HGET', KEYS[1], 'userId') ~= ARGV[1] then return -2 end "
+            + "if status ~= 'IN_USE' then return -3 end "
+            + "local balance = tonumber(redis.call('HGET', KEYS[1], 'balance')) - tonumber(ARGV[2]) "
+            + "if balance < 0 then return -4 end "
+            + "balance = string.format('%d', balance) "
+            + "redis.call('HSET', KEYS[1], 'balance', balance) "
+            + "redis.call('LPUSH', KEYS[2], ARGV[3] .. balance) "
+            + "redis.call('HINCRBY', KEYS[3], ARGV[4], 1) "
+            + "return tonumber(balance)";
+
+    // KEYS: balance hash, queue, pending / ARGV: amount, entry prefix, accountNumber
+    private static final String CREDIT_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end "
+            + "local balance = string.format('%d', "
+            + "tonumber(redis.call('HGET', KEYS[1], 'balance')) + tonumber(ARGV[1])) "
+            + "redis.call('HSET', KEYS[1], 'balance', balance) "
+            + "redis.call('LPUSH', KEYS[2], ARGV[2] .. balance) "
+            + "redis.call('HINCRBY', KEYS[3], ARGV[3], 1) "
+            + "return tonumber(balance)";
+
+    // KEYS: balance hash, pending / ARGV: balance, userId, status, accountNumber
+    // DB에 반영되지 않은 기록이 남아 있으면 DB 잔액이 오래된 값이므로 채우지 않는다.
+    private static final String LOAD_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end "
+            + "if tonumber(redis.call('HGET', KEYS[2], ARGV[4]) or '0') > 0 then return -6 end "
+            + "redis.call('HMSET', KEYS[1], 'balance', ARGV[1], 'userId', ARGV[2], 'status', ARGV[3]) "
+            + "return 1";
+
+    // KEYS: balance hash, pending / ARGV: userId, accountNumber
+    // 잔액이 0이고 DB에 반영되지 않은 기록이 없을때만 해지 상태로 바꾼다.
+    private static final String CLOSE_SCRIPT =
+            "local status = redis.call('HGET', KEYS[1], 'status') "
+            + "if not status then return -1 end "
+            + "if redis.call('HGET', KEYS[1], 'userId') ~= ARGV[1] then return -2 end "
+            + "if status ~= 'IN_USE' then return -3 end "
+            + "if tonumber(redis.call('HGET', KEYS[1], 'balance')) > 0 then return -5 end "
+            + "if tonumber(redis.call('HGET', KEYS[2], ARGV[2]) or '0') > 0 then return -6 end "
+            + "redis.call('HSET', KEYS[1], 'status', 'UNREGISTERED') "
+            + "return 0";
+
+    // KEYS: balance hash
+    private static final String REOPEN_SCRIPT =
+            "if redis.call('HGET', KEYS[1], 'status') == 'UNREGISTERED' then "
+            + "redis.call('HSET', KEYS[1], 'status', 'IN_USE') end "
+            + "return 0";
+
+    // KEYS: balance hash, queue, pending / ARGV: entry, 되돌릴 증감분, accountNumber
+    // writer가 아직 가져가지 않은 기록만 지우고 잔액을 되돌린다.
+    private static final String REVERT_SCRIPT =
+            "if redis.call('LREM', KEYS[2], 1, ARGV[1]) == 0 then return 0 end "
+            + "redis.call('HINCRBY', KEYS[1], 'balance', ARGV[2]) "
+            + "if redis.call('HINCRBY', KEYS[3], ARGV[3], -1) <= 0 then "
+            + "redis.call('HDEL', KEYS[3], ARGV[3]) end "
+            + "return 1";
+
+    // KEYS: processing, pending / ARGV: accountNumber, 반영한 기록 수, ...
+    private static final String COMPLETE_SCRIPT =
+            "redis.call('DEL', KEYS[1]) "
+            + "for i = 1, #ARGV, 2 do "
+            + "if redis.call('HINCRBY', KEYS[2], ARGV[i], -tonumber(ARGV[i + 1])) <= 0 then "
+            + "redis.call('HDEL', KEYS[2], ARGV[i]) end "
+            + "end "
+            + "return 0";
+
+    // KEYS: queue, processing / ARGV: batch size
+    private static final String RESERVE_SCRIPT =
+            "local entries = {} "
+            + "for i = 1, tonumber(ARGV[1]) do "
+            + "local entry = redis.call('RPOPLPUSH', KEYS[1], KEYS[2]) "
+            + "if not entry then break end "
+            + "entries[i] = entry "
+            + "end "
+            + "return entries";
+
+    private final RedissonClient redissonClient;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final BalanceLedgerService balanceLedgerService;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final Set<String> hotAccounts;
+    private final int batchSize;
+    private final long flushInterval;
+    private final Path journalDir;
+    private final DataSize journalSegmentSize;
+    private final long journalSyncInterval;
+
+    private final String nodeMarkerKey = NODE_MARKER_KEY_PREFIX + UUID.randomUUID();
+    private ScheduledExecutorService writer;
+    private TransactionJournal journal;
+
+    public HotBalanceLedger(RedissonClient redissonClient,
+                            TransactionRepository transactionRepository,
+                            AccountRepository accountRepository,
+                            BalanceLedgerService balanceLedgerService,
+                            TransactionIdGenerator transactionIdGenerator,
+                            PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher applicationEventPublisher,
+                            @Value("${account.ledger.accounts:}") Set<String> hotAccounts,
+                            @Value("${account.ledger.batch-size:500}") int batchSize,
+                            @Value("${account.ledger.flush-interval:50}") long flushInterval,
+                            @Value("${account.journal.dir:./journal}") Path journalDir,
+                            @Value("${account.journal.segment-size:64MB}") DataSize journalSegmentSize,
+                            @Value("${account.journal.sync-interval:5}") long journalSyncInterval) {
+        this.redissonClient = redissonClient;
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.balanceLedgerService = balanceLedgerService;
+        this.transactionIdGenerator = transactionIdGenerator;
+        //계좌 해지 트랜잭션 안에서 반영해도 먼저 commit해야 processing을 비울 수 있다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.hotAccounts = Collections.unmodifiableSet(new HashSet<>(hotAccounts));
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.journalDir = journalDir;
+        this.journalSegmentSize = journalSegmentSize;
+        this.journalSyncInterval = journalSyncInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (hotAccounts.isEmpty()) {
+            return;
+        }
+        journal = new TransactionJournal(journalDir, journalSegmentSize.toBytes(), journalSyncInterval);
+        int replayed = journal.replay(this::applyJournal);
+        if (replayed > 0) {
+            log.info("Replayed {} journal entries", replayed);
+        }
+        nodeMarker().set("1", NODE_MARKER_TTL_HOURS, TimeUnit.HOURS);
+
+        writer = Executors.newSingleThreadScheduledExecutor();
+        writer.scheduleWithFixedDelay(this::flushQuietly,
+                flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    public boolean isHot(String accountNumber) {
+        return hotAccounts.contains(accountNumber);
+    }
+
+    public TransactionDto useBalance(Long userId, String accountNumber, Long amount) {
+        String transactionId = transactionIdGenerator.nextTransactionId();
+        LocalDateTime transactedAt = LocalDateTime.now();
+        String entryPrefix = entryPrefix(transactionId, accountNumber, USE, amount, transactedAt);
+
+        long result = debit(userId, accountNumber, amount, entryPrefix);
+        if (result == NOT_LOADED) {
+            load(accountNumber);
+            result = debit(userId, accountNumber, amount, entryPrefix);
+        }
+
+        if (result == USER_ACCOUNT_UNMATCH) {
+            throw new AccountException(ErrorCode.USER_ACCOUNT_UNMACH);
+        }
+        if (result == ACCOUNT_UNREGISTERED) {
+            throw new AccountException(ErrorCode.ACCOUNT_ALREADY_UNREGISTERD);
+        }
+        if (result == AMOUNT_EXCEED_BALANCE) {
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+
+        appendJournal(transactionId, accountNumber, USE, amount, transactedAt, result, entryPrefix);
+        return toTransactionDto(transactionId, accountNumber, USE, amount, result, transactedAt);
+    }
+
+    //원거래는 writer가 방금 반영했을 수 있으므로 primary에서 읽는다.
+    public TransactionDto cancelBalance(String transactionId, String accountNumber, Long amount) {
+        Transaction transaction = ReplicationRoutingDataSource.usePrimary(() ->
+                        transactionRepository.findByTransactionId(transactionId))
+                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+
+        if (!transaction.getAccount().getAccountNumber().equals(accountNumber)) {
+            throw new AccountException(ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH);
+        }
+        if (!transaction.getAmount().equals(amount)) {
+            throw new AccountException(ErrorCode.CANCEL_MUST_FULLY);
+        }
+        if (transaction.getTransactedAt().isBefore(LocalDateTime.now().minusYears(1))) {
+            throw new AccountException(ErrorCode.TOO_OLD_FOR_CANCEL);
+        }
+
+        String cancelTransactionId = transactionIdGenerator.nextTransactionId();
+        LocalDateTime transactedAt = LocalDateTime.now();
+        String entryPrefix = entryPrefix(cancelTransactionId, accountNumber, CANCEL, amount, transactedAt);
+
+        long result = credit(accountNumber, amount, entryPrefix);
+        if (result == NOT_LOADED) {
+            load(accountNumber);
+            result = credit(accountNumber, amount, entryPrefix);
+        }
+
+        appendJournal(cancelTransactionId, accountNumber, CANCEL, amount, transactedAt, result, entryPrefix);
+        return toTransactionDto(cancelTransactionId, accountNumber, CANCEL, amount, result, transactedAt);
+    }
+
+    /*
+    * 계좌 해지 : Redis 잔액이 0이고 DB에 반영되지 않은 기록이 없을때 Redis 상태를 해지로 바꾼다.
+    * 이후 차감은 Lua script에서 거절된다.
+    * 남은 기록은 별도 트랜잭션으로 먼저 반영하므로 호출한 쪽은 이후에 계좌를 읽어야 반영된 잔액을 본다.
+    * 해지 트랜잭션이 commit되면 Redis 잔액을 지우고(다시 채우면 DB의 해지 상태를 읽는다), rollback되면 되돌린다.
+    * */
+    public void closeAccount(Long userId, String accountNumber) {
+        long result = NOT_LOADED;
+        for (int attempt = 0; attempt < MAX_DRAIN_ATTEMPTS; attempt++) {
+            result = script().eval(RScript.Mode.READ_WRITE, CLOSE_SCRIPT, RScript.ReturnType.INTEGER,
+                    Arrays.asList(getBalanceKey(accountNumber), PENDING_KEY),
+                    userId.toString(), accountNumber);
+            if (result == NOT_LOADED) {
+                load(accountNumber);
+            } else if (result == ENTRIES_PENDING) {
+                flush();
+            } else {
+                break;
+            }
+        }
+
+        if (result == USER_ACCOUNT_UNMATCH) {
+            throw new AccountException(ErrorCode.USER_ACCOUNT_UNMACH);
+        }
+        if (result == ACCOUNT_UNREGISTERED) {
+            throw new AccountException(ErrorCode.ACCOUNT_ALREADY_UNREGISTERD);
+        }
+        if (result == BALANCE_NOT_EMPTY) {
+            throw new AccountException(ErrorCode.BALANCE_NOT_EMPTY);
+        }
+        if (result != 0) {
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        redissonClient.getKeys().delete(getBalanceKey(accountNumber));
+                    } else {
+                        script().eval(RScript.Mode.READ_WRITE, REOPEN_SCRIPT, RScript.ReturnType.INTEGER,
+                                Collections.singletonList(getBalanceKey(accountNumber)));
+                    }
+                }
+            });
+        }
+    }
+
+    private long debit(Long userId, String accountNumber, Long amount, String entryPrefix) {
+        return script().eval(RScript.Mode.READ_WRITE, DEBIT_SCRIPT, RScript.ReturnType.INTEGER,
+                Arrays.asList(getBalanceKey(accountNumber), QUEUE_KEY, PENDING_KEY),
+                userId.toString(), amount.toString(), entryPrefix, accountNumber);
+    }
+
+    private long credit(String accountNumber, Long amount, String entryPrefix) {
+        return script().eval(RScript.Mode.READ_WRITE, CREDIT_SCRIPT, RScript.ReturnType.INTEGER,
+                Arrays.asList(getBalanceKey(accountNumber), QUEUE_KEY, PENDING_KEY),
+                amount.toString(), entryPrefix, accountNumber);
+    }
+
+    /*
+    * fsync가 끝나야 응답한다.
+    * 실패하면 writer가 아직 가져가지 않은 Redis 기록을 되돌리고 요청을 실패시킨다.
+    * 되돌린 거래는 실패 거래로 저장해 두어 journal에 남은 기록을 재반영할 때 건너뛴다.
+    * 이미 가져갔으면 DB commit이 기록을 남기므로 DB 반영을 확인하고 응답하고, 확인하지 못하면 실패시킨다.
+    * */
+    private void appendJournal(String transactionId, String accountNumber,
+                               TransactionType transactionType, Long amount,
+                               LocalDateTime transactedAt, long balanceSnapshot, String entryPrefix) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(new TransactionJournal.Entry(transactionId, accountNumber,
+                    transactionType, amount, transactedAt, balanceSnapshot)).join();
+            return;
+        } catch (CompletionException e) {
+            log.error("Failed to sync journal, transactionId: {}", transactionId, e);
+        }
+
+        long delta = transactionType == USE ? amount : -amount;
+        long reverted = script().eval(RScript.Mode.READ_WRITE, REVERT_SCRIPT, RScript.ReturnType.INTEGER,
+                Arrays.asList(getBalanceKey(accountNumber), QUEUE_KEY, PENDING_KEY),
+                entryPrefix + balanceSnapshot, String.valueOf(delta), accountNumber);
+        if (reverted == 1) {
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.save(Transaction.builder()
+                    .transactionType(transactionType)
+                    .transactionResultType(F)
+                    .account(accountRepository.findByAccountNumber(accountNumber)
+                            .orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST)))
+                    .amount(amount)
+                    .balanceSnapshot(balanceSnapshot + delta)
+                    .transactionId(transactionId)
+                    .transactedAt(transactedAt)
+                    .build()));
+        } else {
+            for (int attempt = 0; attempt < MAX_DRAIN_ATTEMPTS; attempt++) {
+                flush();
+                if (!ReplicationRoutingDataSource.usePrimary(() ->
+                        transactionRepository.findTransactionIds(List.of(transactionId))).isEmpty()) {
+                    return;
+                }
+            }
+        }
+        throw new AccountException(ErrorCode.JOURNAL_SYNC_FAILED);
+    }
+
+    /*
+    * 노드 marker가 없으면 Redis가 기록(queue, processing, 잔액)을 잃은 것이다.
+    * 이 노드의 journal 전체를 DB에 반영한 뒤 marker를 다시 만든다. (다시 적재하기 전, writer 주기마다 확인)
+    * marker가 만료되어 다시 반영해도 DB에 없는 거래만 저장하므로 결과는 같다.
+    * */
+    synchronized void recoverIfRedisLost() {
+        if (journal == null || nodeMarker().expire(Duration.ofHours(NODE_MARKER_TTL_HOURS))) {
+            return;
+        }
+        log.warn("Redis ledger marker is gone, replaying journal before reloading balances");
+        try {
+            int replayed = journal.replayAll(this::applyJournal);
+            log.info("Replayed {} journal entries after Redis loss", replayed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nodeMarker().set("1", NODE_MARKER_TTL_HOURS, TimeUnit.HOURS);
+    }
+
+    private RBucket<String> nodeMarker() {
+        return redissonClient.getBucket(nodeMarkerKey, StringCodec.INSTANCE);
+    }
+
+    /*
+    * replica는 writer 반영보다 늦을 수 있으므로 primary(쓰기 트랜잭션)에서 읽는다.
+    * DB에 반영되지 않은 기록이 있으면 먼저 반영하고 다시 읽는다. (다른 노드가 writer lock을 잡고 있어 끝내 비우지 못하면 거절)
+    * */
+    private void load(String accountNumber) {
+        recoverIfRedisLost();
+        for (int attempt = 0; attempt < MAX_DRAIN_ATTEMPTS; attempt++) {
+            Account account = transactionTemplate.execute(status ->
+                    accountRepository.findByAccountNumber(accountNumber)
+                            .orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST)));
+
+            long result = script().eval(RScript.Mode.READ_WRITE, LOAD_SCRIPT, RScript.ReturnType.INTEGER,
+                    Arrays.asList(getBalanceKey(accountNumber), PENDING_KEY),
+                    account.getBalance().toString(),
+                    account.getAccountUser().getId().toString(),
+                    account.getAccountStatus().name(),
+                    accountNumber);
+            if (result != ENTRIES_PENDING) {
+                return;
+            }
+            flush();
+        }
+        log.warn("Ledger entries still pending, refusing to reload balance. accountNumber:{}", accountNumber);
+        throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+    }
+
+    private void flushQuietly() {
+        try {
+            recoverIfRedisLost();
+            flush();
+        } catch (Exception e) {
+            log.error("Ledger flush failed, will retry", e);
+        }
+    }
+
+    /*
+    * processing에 남은 기록(이전 writer가 죽은 경우)이 있으면 그것부터, 없으면 queue에서 새로 가져와 반영
+    * writer lock으로 한 순간에 한 노드만 반영한다.
+    * */
+    int flush() {
+        RLock writerLock = redissonClient.getLock(WRITER_LOCK_KEY);
+        if (!writerLock.tryLock()) {
+            return 0;
+        }
+        try {
+            List<String> entries = pendingEntries();
+            if (entries.isEmpty()) {
+                entries = reserveBatch();
+            }
+            if (entries.isEmpty()) {
+                return 0;
+            }
+
+            persist(entries);
+            complete(entries);
+            releaseJournal();
+            return entries.size();
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    //processing을 비우면서 계좌별 pending 수를 반영한 만큼 줄인다.
+    private void complete(List<String> entries) {
+        Map<String, Long> counts = entries.stream()
+                .collect(Collectors.groupingBy(entry -> parseEntry(entry).getAccountNumber(),
+                        Collectors.counting()));
+        List<Object> args = new ArrayList<>();
+        counts.forEach((accountNumber, count) -> {
+            args.add(accountNumber);
+            args.add(count.toString());
+        });
+        script().eval(RScript.Mode.READ_WRITE, COMPLETE_SCRIPT, RScript.ReturnType.INTEGER,
+                Arrays.asList(PROCESSING_KEY, PENDING_KEY), args.toArray());
+    }
+
+    private void releaseJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.release(transactionIds -> ReplicationRoutingDataSource.usePrimary(() ->
+                    transactionRepository.findTransactionIds(transactionIds)).size() == transactionIds.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //processing list는 최근 기록이 앞에 있으므로 뒤집어서 오래된 순서로 돌려준다.
+    List<String> pendingEntries() {
+        List<String> entries = new ArrayList<>(
+                redissonClient.<String>getList(PROCESSING_KEY, StringCodec.INSTANCE).readAll());
+        Collections.reverse(entries);
+        return entries;
+    }
+
+    List<String> reserveBatch() {
+        return script().eval(RScript.Mode.READ_WRITE, RESERVE_SCRIPT, RScript.ReturnType.MULTI,
+                Arrays.asList(QUEUE_KEY, PROCESSING_KEY), String.valueOf(batchSize));
+    }
+
+    void persist(List<String> entries) {
+        transactionTemplate.executeWithoutResult(status -> saveEntries(entries.stream()
+                .map(HotBalanceLedger::parseEntry)
+                .collect(Collectors.toList()))
+                .values().stream()
+                .map(account -> account.getAccountUser().getId())
+                .distinct()
+                .forEach(userId -> applicationEventPublisher.publishEvent(new AccountChangedEvent(userId))));
+    }
+
+    //journal 재반영 (시작할 때, Redis 유실시)
+    void applyJournal(List<TransactionJournal.Entry> entries) {
+        transactionTemplate.executeWithoutResult(status -> saveEntries(entries));
+    }
+
+    /*
+    * DB에 없는 거래만 저장하고 계좌 잔액에는 증감분을 더한다.
+    * writer 재실행(processing), 여러 노드의 journal 재반영이 어떤 순서로 겹쳐도 같은 잔액이 되도록
+    * 기록의 잔액 snapshot으로 덮어쓰지 않는다. 거래가 저장된 계좌를 돌려준다.
+    * */
+    private Map<String, Account> saveEntries(List<TransactionJournal.Entry> entries) {
+        Set<String> persisted = new HashSet<>(transactionRepository.findTransactionIds(
+                entries.stream().map(TransactionJournal.Entry::getTransactionId)
+                        .collect(Collectors.toList())));
+
+        Map<String, Account> accounts = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        for (TransactionJournal.Entry entry : entries) {
+            if (!persisted.add(entry.getTransactionId())) {
+                continue;
+            }
+            Account account = accounts.computeIfAbsent(entry.getAccountNumber(),
+                    accountNumber -> accountRepository.findByAccountNumber(accountNumber)
+                            .orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST)));
+            account.setBalance(account.getBalance() + (entry.getTransactionType() == USE
+                    ? -entry.getAmount() : entry.getAmount()));
+
+            transactions.add(Transaction.builder()
+                    .transactionType(entry.getTransactionType())
+                    .transactionResultType(S)
+                    .account(account)
+                    .amount(entry.getAmount())
+                    .balanceSnapshot(entry.getBalanceSnapshot())
+                    .transactionId(entry.getTransactionId())
+                    .transactedAt(entry.getTransactedAt())
+                    .settlementStatus(entry.getTransactionType() == USE
+                            ? SettlementStatus.PENDING : null)
+                    .build());
+        }
+
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        balanceLedgerService.invalidateLateSnapshots(saved);
+        saved.forEach(transaction -> applicationEventPublisher.publishEvent(
+                new TransactionSavedEvent(TransactionDto.fromEntity(transaction))));
+        return accounts;
+    }
+
+    private RScript script() {
+        return redissonClient.getScript(StringCodec.INSTANCE);
+    }
+
+    private static String getBalanceKey(String accountNumber) {
+        return BALANCE_KEY_PREFIX + accountNumber;
+    }
+
+    private static String entryPrefix(String transactionId, String accountNumber,
+                                      TransactionType transactionType, Long amount,
+                                      LocalDateTime transactedAt) {
+        return transactionId + ENTRY_SEPARATOR + accountNumber + ENTRY_SEPARATOR
+                + transactionType.name() + ENTRY_SEPARATOR + amount + ENTRY_SEPARATOR
+                + transactedAt + ENTRY_SEPARATOR;
+    }
+
+    private static TransactionDto toTransactionDto(String transactionId, String accountNumber,
+                                                   TransactionType transactionType, Long amount,
+                                                   long balanceSnapshot, LocalDateTime transactedAt) {
+        return TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(transactionType)
+                .transactionResultType(S)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .build();
+    }
+
+    //transactionId|accountNumber|transactionType|amount|transactedAt|balanceSnapshot
+    private static TransactionJournal.Entry parseEntry(String entry) {
+        String[] fields = entry.split("\\" + ENTRY_SEPARATOR);
+        return new TransactionJournal.Entry(fields[0], fields[1], TransactionType.valueOf(fields[2]),
+                Long.valueOf(fields[3]), LocalDateTime.parse(fields[4]), Long.valueOf(fields[5]));
+    }
+}
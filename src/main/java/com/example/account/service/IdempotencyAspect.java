@@ -0,0 +1,70 @@
+package com.example.account.service;
+
+import com.example.account.aop.IdempotencyScopeInterface;
+import com.example.account.aop.Idempotent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/*
+* LockAopAspect(기본 order, 가장 안쪽)보다 바깥에서 실행되어야 재요청이 lock을 잡지 않는다.
+* HIGHEST_PRECEDENCE는 ExposeInvocationInterceptor보다 앞서 args 바인딩이 깨지므로 쓰지 않는다.
+* 저장 키는 API + 요청자(사용자 id 또는 계좌번호) + Idempotency-Key이고,
+* 요청 본문의 hash를 함께 저장해서 같은 키로 다른 본문이 오면 거절한다.
+* */
+@Aspect
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class IdempotencyAspect {
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    @Around("@annotation(idempotent) && args(request)")
+    public Object aroundMethod(ProceedingJoinPoint pjp, Idempotent idempotent,
+                               IdempotencyScopeInterface request) throws Throwable {
+        String idempotencyKey = getIdempotencyKey();
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return pjp.proceed();
+        }
+
+        Class<?> responseType = ((MethodSignature) pjp.getSignature()).getReturnType();
+        return idempotencyStore.execute(
+                idempotent.value() + ":" + request.getIdempotencyScope() + ":" + idempotencyKey,
+                fingerprint(request), responseType, pjp::proceed);
+    }
+
+    //요청 본문(JSON)의 SHA-256
+    private String fingerprint(Object request) throws JsonProcessingException {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String getIdempotencyKey() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        return ((ServletRequestAttributes) requestAttributes).getRequest()
+                .getHeader(IDEMPOTENCY_KEY_HEADER);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+* Idempotency-Key별 첫 응답 저장소
+* 1. 로컬 캐시 -> Redis 순서로 저장된 응답을 찾는다.
+* 2. 없으면 Redis에 처리중 표시를 남기고 실행한다. (같은 노드의 중복요청은 로컬 future로, 다른 노드는 Redis를 보며 기다린다)
+* 3. 정상 응답과 AccountException은 저장하고, lock 실패나 예상하지 못한 오류는 저장하지 않아 재시도할 수 있게 한다.
+* 4. 요청 본문 hash(fingerprint)를 처리중 표시, 응답과 함께 저장하고 같은 키에 다른 본문이 오면 IDEMPOTENCY_KEY_REUSED
+* 5. 실행이 끝난 뒤 Redis 저장이 실패해도 응답은 그대로 돌려주고, 처리중 표시가 만료되기 전까지 저장을 다시 시도한다.
+*    (표시가 만료되면 다른 노드의 재요청이 다시 실행하게 되므로)
+* */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    private static final String KEY_PREFIX = "IDEM:";
+    // P:fingerprint, R:fingerprint:응답 JSON, E:fingerprint:ErrorCode
+    private static final String IN_PROGRESS = "P";
+    private static final String RESPONSE = "R";
+    private static final String ERROR = "E";
+    private static final String SEPARATOR = ":";
+    private static final long POLL_INTERVAL = 20L;
+    private static final long STORE_RETRY_INTERVAL = 1000L;
+
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, StoredResult> localCache;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final Duration inProgressTtl;
+    private final Duration waitTimeout;
+
+    public IdempotencyStore(RedissonClient redissonClient, ObjectMapper objectMapper,
+                            @Value("${account.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${account.idempotency.in-progress-ttl:30s}") Duration inProgressTtl,
+                            @Value("${account.idempotency.wait-timeout:5s}") Duration waitTimeout,
+                            @Value("${account.idempotency.local-maximum-size:10000}") long localMaximumSize,
+                            @Value("${account.idempotency.local-ttl:10m}") Duration localTtl) {
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.inProgressTtl = inProgressTtl;
+        this.waitTimeout = waitTimeout;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localTtl)
+                .build();
+    }
+
+    public Object execute(String key, String fingerprint, Class<?> responseType, IdempotentTask task)
+            throws Throwable {
+        StoredResult stored = localCache.getIfPresent(key);
+        if (stored != null) {
+            return stored.replay(fingerprint);
+        }
+
+        InFlight mine = new InFlight(fingerprint, new CompletableFuture<>());
+        InFlight original = inFlight.putIfAbsent(key, mine);
+        if (original != null) {
+            if (!original.fingerprint.equals(fingerprint)) {
+                throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+            }
+            return awaitLocal(original.result).replay(fingerprint);
+        }
+
+        try {
+            StoredResult result = executeOnce(key, fingerprint, responseType, task);
+            mine.result.complete(result);
+            return result.replay(fingerprint);
+        } catch (Throwable e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private StoredResult executeOnce(String key, String fingerprint, Class<?> responseType,
+                                     IdempotentTask task) throws Throwable {
+        RBucket<String> bucket = redissonClient.getBucket(KEY_PREFIX + key, StringCodec.INSTANCE);
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        String inProgress = IN_PROGRESS + SEPARATOR + fingerprint;
+
+        while (!bucket.trySet(inProgress, inProgressTtl.toMillis(), TimeUnit.MILLISECONDS)) {
+            String value = bucket.get();
+            if (value != null && !value.startsWith(IN_PROGRESS + SEPARATOR)) {
+                StoredResult result = decode(value, responseType);
+                localCache.put(key, result);
+                return result;
+            }
+            if (value != null && !value.equals(inProgress)) {
+                throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+            }
+            //다른 노드에서 처리중
+            if (System.nanoTime() > deadline) {
+                throw new AccountException(ErrorCode.REQUEST_IN_PROGRESS);
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+
+        StoredResult result;
+        try {
+            result = new StoredResult(fingerprint, task.run(), null);
+        } catch (AccountException e) {
+            if (e.getErrorCode() == ErrorCode.ACCOUNT_TRANSACTION_LOCK) {
+                bucket.delete();
+                throw e;
+            }
+            result = new StoredResult(fingerprint, null, e.getErrorCode());
+        } catch (Throwable e) {
+            bucket.delete();
+            throw e;
+        }
+
+        localCache.put(key, result);
+        store(bucket, encode(result), System.nanoTime() + inProgressTtl.toNanos());
+        return result;
+    }
+
+    //업무 처리는 이미 끝났으므로 저장 실패로 응답을 바꾸지 않는다.
+    private void store(RBucket<String> bucket, String value, long deadline) {
+        try {
+            bucket.set(value, ttl.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            if (System.nanoTime() > deadline) {
+                log.error("Failed to store idempotent response, key: {}", bucket.getName(), e);
+                return;
+            }
+            log.warn("Failed to store idempotent response, will retry. key: {}", bucket.getName(), e);
+            CompletableFuture.runAsync(() -> store(bucket, value, deadline),
+                    CompletableFuture.delayedExecutor(STORE_RETRY_INTERVAL, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private StoredResult awaitLocal(CompletableFuture<StoredResult> original) throws Throwable {
+        try {
+            return original.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (TimeoutException e) {
+            throw new AccountException(ErrorCode.REQUEST_IN_PROGRESS);
+        }
+    }
+
+    private String encode(StoredResult result) throws JsonProcessingException {
+        if (result.errorCode != null) {
+            return ERROR + SEPARATOR + result.fingerprint + SEPARATOR + result.errorCode.name();
+        }
+        return RESPONSE + SEPARATOR + result.fingerprint + SEPARATOR
+                + objectMapper.writeValueAsString(result.response);
+    }
+
+    private StoredResult decode(String value, Class<?> responseType) throws JsonProcessingException {
+        String[] fields = value.split(SEPARATOR, 3);
+        if (ERROR.equals(fields[0])) {
+            return new StoredResult(fields[1], null, ErrorCode.valueOf(fields[2]));
+        }
+        return new StoredResult(fields[1], objectMapper.readValue(fields[2], responseType), null);
+    }
+
+    @FunctionalInterface
+    public interface IdempotentTask {
+        Object run() throws Throwable;
+    }
+
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class InFlight {
+        private final String fingerprint;
+        private final CompletableFuture<StoredResult> result;
+    }
+
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class StoredResult {
+        private final String fingerprint;
+        private final Object response;
+        private final ErrorCode errorCode;
+
+        Object replay(String requestFingerprint) {
+            if (!fingerprint.equals(requestFingerprint)) {
+                throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+            }
+            if (errorCode != null) {
+                throw new AccountException(errorCode);
+            }
+            return response;
+        }
+    }
+}
@@ -1,32 +1,157 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
 import com.example.account.aop.AccountLockIdInterface;
-import lombok.RequiredArgsConstructor;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.LockStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Pointcut;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
 @Aspect
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class LockAopAspect {
 
-    private final LockService lockService;
+    private final Map<LockStrategy, AccountLockHandler> lockHandlers =
+            new EnumMap<>(LockStrategy.class);
+
+    //strategy별 요청 전체의 lock 대기(성공/실패)와 보유 시간
+    private final Map<LockStrategy, Timer> waitAcquired = new EnumMap<>(LockStrategy.class);
+    private final Map<LockStrategy, Timer> waitFailed = new EnumMap<>(LockStrategy.class);
+    private final Map<LockStrategy, Timer> held = new EnumMap<>(LockStrategy.class);
+
+    private final AccountShardExecutor accountShardExecutor;
+    private final HotBalanceLedger hotBalanceLedger;
+
+    public LockAopAspect(List<AccountLockHandler> lockHandlers,
+                         AccountShardExecutor accountShardExecutor,
+                         HotBalanceLedger hotBalanceLedger,
+                         MeterRegistry meterRegistry) {
+        lockHandlers.forEach(handler -> this.lockHandlers.put(handler.getStrategy(), handler));
+        this.accountShardExecutor = accountShardExecutor;
+        this.hotBalanceLedger = hotBalanceLedger;
+        //SHARDED는 handler가 없지만 shard 대기시간과 실행시간을 같은 이름으로 남긴다.
+        List<LockStrategy> measuredStrategies = new ArrayList<>(this.lockHandlers.keySet());
+        measuredStrategies.add(LockStrategy.SHARDED);
+        for (LockStrategy strategy : measuredStrategies) {
+            waitAcquired.put(strategy, waitTimer(meterRegistry, strategy, "acquired"));
+            waitFailed.put(strategy, waitTimer(meterRegistry, strategy, "failed"));
+            held.put(strategy, Timer.builder("account.lock.held")
+                    .description("lock을 잡고 있던 시간")
+                    .tag("strategy", strategy.name())
+                    .register(meterRegistry));
+        }
+    }
 
-    @Around("@annotation(com.example.account.aop.AccountLock) && args(request)")
-    public Object aroundMethod(ProceedingJoinPoint pjp, AccountLockIdInterface request) throws Throwable {
-        //lock취득
+    @Around("@annotation(accountLock) && args(request)")
+    public Object aroundMethod(ProceedingJoinPoint pjp, AccountLock accountLock,
+                               AccountLockIdInterface request) throws Throwable {
+        List<String> accountNumbers = request.getAccountNumbers();
+
+        //Redis ledger 계좌는 Lua script가 원자적으로 처리하므로 lock이 필요없다.
+        if (accountNumbers.stream().allMatch(hotBalanceLedger::isHot)) {
+            return pjp.proceed();
+        }
+
+        //sharded 모드는 lock없이 계좌의 shard 스레드에서 실행 (계좌 하나짜리 요청만 가능)
+        if (accountLock.strategy() == LockStrategy.SHARDED) {
+            if (accountNumbers.size() > 1) {
+                throw new AccountException(ErrorCode.INVALID_REQUEST);
+            }
+            return proceedOnShard(pjp, accountLock, request);
+        }
 
-        lockService.lock(request.getAccountNumber());
+        //optimistic 모드는 lock없이 실행하고 Account @Version 충돌을 TransactionService가 재시도한다.
+        if (accountLock.strategy() == LockStrategy.OPTIMISTIC) {
+            return pjp.proceed();
+        }
+
+        AccountLockHandler lockHandler = lockHandlers.get(accountLock.strategy());
+
+        //lock취득 (여러 계좌는 handler가 정한 순서로 잡고 역순으로 푼다)
+        List<String> lockOrder = accountNumbers.size() == 1 ? accountNumbers
+                : accountNumbers.stream()
+                .distinct()
+                .sorted(lockHandler.lockOrder())
+                .collect(Collectors.toList());
+        List<String> lockedAccountNumbers = new ArrayList<>(lockOrder.size());
+        long startedAt = System.nanoTime();
+        long acquiredAt = 0L;
         try {
+            try {
+                for (String accountNumber : lockOrder) {
+                    lockHandler.lock(accountNumber,
+                            accountLock.tryLockTime(), accountLock.leaseTime());
+                    lockedAccountNumbers.add(accountNumber);
+                }
+            } catch (RuntimeException e) {
+                waitFailed.get(accountLock.strategy())
+                        .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+            acquiredAt = System.nanoTime();
+            waitAcquired.get(accountLock.strategy()).record(acquiredAt - startedAt, TimeUnit.NANOSECONDS);
 
             return pjp.proceed();
         }finally {
-            lockService.unlock(request.getAccountNumber());
+            for (int i = lockedAccountNumbers.size() - 1; i >= 0; i--) {
+                lockHandler.unlock(lockedAccountNumbers.get(i));
+            }
+            if (acquiredAt != 0L) {
+                held.get(accountLock.strategy()).record(System.nanoTime() - acquiredAt, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static Timer waitTimer(MeterRegistry meterRegistry, LockStrategy strategy, String outcome) {
+        return Timer.builder("account.lock.wait")
+                .description("요청의 모든 계좌 lock을 잡기까지 걸린 시간")
+                .tag("strategy", strategy.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /*
+    * shard 스레드에서 실행하고 요청 스레드는 결과를 기다린다. (async MVC로 풀어주지 않음)
+    * 요청 스레드를 줄이는 효과는 없고, 같은 계좌 요청을 lock 대기 없이 줄세우는 용도
+    * shard에서 tryLockTime 안에 시작되지 못하면 lock 실패로 처리한다.
+    * wait : 넘긴 시점부터 shard에서 시작될때까지, held : shard에서 실행된 시간
+    * */
+    private Object proceedOnShard(ProceedingJoinPoint pjp, AccountLock accountLock,
+                                  AccountLockIdInterface request) throws Throwable {
+        long submittedAt = System.nanoTime();
+        AtomicBoolean started = new AtomicBoolean();
+        try {
+            return accountShardExecutor.call(request.getAccountNumber(), () -> {
+                started.set(true);
+                long startedAt = System.nanoTime();
+                waitAcquired.get(LockStrategy.SHARDED).record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return pjp.proceed();
+                } finally {
+                    held.get(LockStrategy.SHARDED).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }, accountLock.tryLockTime());
+        } catch (AccountException e) {
+            if (!started.get()) {
+                waitFailed.get(LockStrategy.SHARDED)
+                        .record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            }
+            throw e;
         }
     }
 }
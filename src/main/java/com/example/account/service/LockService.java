@@ -2,41 +2,159 @@ package com.example.account.service;
 
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
-import lombok.RequiredArgsConstructor;
+import com.example.account.type.LockStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
+/*
+* 계좌 lock 2단계
+* 1. JVM 내부 stripe lock (같은 노드의 경쟁은 여기서 대기, Redis까지 가지 않음)
+* 2. Redisson lock (stripe를 잡은 요청만 노드간 경쟁)
+* 단계(stage)와 결과(outcome)별로 lock 취득 시간을 기록한다.
+* */
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class LockService {
+public class LockService implements AccountLockHandler {
+    private static final int LOCAL_LOCK_STRIPES = 1024;
+
     private final RedissonClient redissonClient;
+    private final ReentrantLock[] localLocks = createLocalLocks();
+
+    private final Timer localAcquired;
+    private final Timer localTimeout;
+    private final Timer localInterrupted;
+    private final Timer redisAcquired;
+    private final Timer redisTimeout;
+    private final Timer redisError;
+    //Redisson은 connection pool 지표를 내보내지 않으므로 Redis lock 요청 중인 수로 포화를 본다.
+    private final AtomicInteger redisInFlight;
+
+    public LockService(RedissonClient redissonClient, MeterRegistry meterRegistry) {
+        this.redissonClient = redissonClient;
+        this.localAcquired = acquireTimer(meterRegistry, "local", "acquired");
+        this.localTimeout = acquireTimer(meterRegistry, "local", "timeout");
+        this.localInterrupted = acquireTimer(meterRegistry, "local", "interrupted");
+        this.redisAcquired = acquireTimer(meterRegistry, "redis", "acquired");
+        this.redisTimeout = acquireTimer(meterRegistry, "redis", "timeout");
+        this.redisError = acquireTimer(meterRegistry, "redis", "error");
+        this.redisInFlight = meterRegistry.gauge("account.lock.redis.inflight", new AtomicInteger());
+    }
+
+    @Override
+    public LockStrategy getStrategy() {
+        return LockStrategy.REDIS;
+    }
+
+    @Override
+    public void lock(String accountNumber, long tryLockTime, long leaseTime) {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(tryLockTime);
+        ReentrantLock localLock = getLocalLock(accountNumber);
+        log.debug("Trying local lock for accountNuber:{}",accountNumber);
+        try {
+            if(!localLock.tryLock(tryLockTime, TimeUnit.MILLISECONDS)) {
+                record(localTimeout, startedAt);
+                log.warn("Local lock acquisition failed. accountNumber:{}", accountNumber);
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+        } catch (InterruptedException e) {
+            record(localInterrupted, startedAt);
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+        long localAcquiredAt = record(localAcquired, startedAt);
 
-    public void lock(String accountNumber) {
         RLock lock = redissonClient.getLock(getLockKey(accountNumber));
         log.debug("Trying lock for accountNuber:{}",accountNumber);
+        boolean isLock = false;
+        redisInFlight.incrementAndGet();
         try {
-            boolean isLock = lock.tryLock(1, 15, TimeUnit.SECONDS);
+            long remainingMillis = Math.max(0L,
+                    TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            isLock = lock.tryLock(remainingMillis, leaseTime, TimeUnit.MILLISECONDS);
             if(!isLock) {
-                log.error("======Lock acquisition failed=====");
+                record(redisTimeout, localAcquiredAt);
+                log.warn("Lock acquisition failed. accountNumber:{}", accountNumber);
                 throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
             }
+            record(redisAcquired, localAcquiredAt);
         } catch (AccountException e) {
             throw e;
-        }catch (Exception e) {
-            log.error("Redis lock failed");
+        } catch (InterruptedException e) {
+            record(redisError, localAcquiredAt);
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        } catch (Exception e) {
+            //Redis 장애시 lock없이 진행하면 안되므로 실패로 처리한다.
+            record(redisError, localAcquiredAt);
+            log.error("Redis lock failed. accountNumber:{}", accountNumber, e);
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        } finally {
+            redisInFlight.decrementAndGet();
+            if (!isLock) {
+                localLock.unlock();
+            }
         }
     }
 
+    //stripe lock을 먼저 잡으므로 stripe 순서, 같은 stripe 안에서는 계좌번호 순서
+    @Override
+    public Comparator<String> lockOrder() {
+        return Comparator.comparingInt(LockService::getLocalLockIndex)
+                .thenComparing(Comparator.naturalOrder());
+    }
+
+    @Override
     public void unlock(String accountNumber){
         log.debug("Unlock for accountNumber : {}",accountNumber);
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();
+        try {
+            redissonClient.getLock(getLockKey(accountNumber)).unlock();
+        } finally {
+            getLocalLock(accountNumber).unlock();
+        }
     }
+    //기록한 시각을 돌려줘서 다음 단계의 시작 시각으로 쓴다.
+    private static long record(Timer timer, long startedAt) {
+        long now = System.nanoTime();
+        timer.record(now - startedAt, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private static Timer acquireTimer(MeterRegistry meterRegistry, String stage, String outcome) {
+        return Timer.builder("account.lock.acquire")
+                .description("lock 단계별 취득 대기 시간")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
     private static String getLockKey(String accountNumber) {
         return "ACLK:" + accountNumber;
     }
+
+    private ReentrantLock getLocalLock(String accountNumber) {
+        return localLocks[getLocalLockIndex(accountNumber)];
+    }
+
+    private static int getLocalLockIndex(String accountNumber) {
+        int hash = accountNumber.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCAL_LOCK_STRIPES - 1);
+    }
+
+    private static ReentrantLock[] createLocalLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCAL_LOCK_STRIPES];
+        for (int i = 0; i < LOCAL_LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
 }
@@ -0,0 +1,30 @@
+package com.example.account.service;
+
+import com.example.account.type.LockStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/*
+* 별도 lock 없이 TransactionService가 계좌를 SELECT ... FOR UPDATE로 읽도록 한다.
+* lock은 계좌 조회시점에 잡히고 transaction이 끝나면 풀린다.
+* */
+@Slf4j
+@Component
+public class PessimisticLockHandler implements AccountLockHandler {
+
+    @Override
+    public LockStrategy getStrategy() {
+        return LockStrategy.PESSIMISTIC;
+    }
+
+    @Override
+    public void lock(String accountNumber, long tryLockTime, long leaseTime) {
+        log.debug("Row lock requested for accountNumber:{}", accountNumber);
+        RowLockContext.setLockTimeout(tryLockTime);
+    }
+
+    @Override
+    public void unlock(String accountNumber) {
+        RowLockContext.clear();
+    }
+}
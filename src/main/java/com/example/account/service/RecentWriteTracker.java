@@ -0,0 +1,41 @@
+package com.example.account.service;
+
+import com.example.account.event.AccountChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/*
+* 최근에 계좌가 바뀐 사용자 (read-your-writes)
+* replica 지연(read-your-writes-window) 동안은 해당 사용자 조회를 primary에서 한다.
+* commit 전에 기록하므로 commit 직후 캐시 무효화 -> 재조회가 replica로 가는 틈이 없다.
+* 노드마다 따로 가지므로 다른 노드는 캐시 무효화 메시지를 받을 때 기록한다. (AccountListCache)
+* */
+@Component
+public class RecentWriteTracker {
+    private final Cache<Long, Boolean> recentWrites;
+
+    public RecentWriteTracker(@Value("${account.datasource.read-your-writes-window:1s}") Duration window) {
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public boolean isRecentlyWritten(Long userId) {
+        return recentWrites.getIfPresent(userId) != null;
+    }
+
+    public void markWritten(Long userId) {
+        recentWrites.put(userId, Boolean.TRUE);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onAccountChanged(AccountChangedEvent event) {
+        markWritten(event.getUserId());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.account.service;
+
+/*
+* PESSIMISTIC 전략일때 현재 요청이 계좌 row lock을 사용해야 하는지와
+* lock 대기시간을 TransactionService에 전달한다.
+* */
+final class RowLockContext {
+    private static final ThreadLocal<Long> LOCK_TIMEOUT = new ThreadLocal<>();
+
+    private RowLockContext() {
+    }
+
+    static void setLockTimeout(long lockTimeout) {
+        LOCK_TIMEOUT.set(lockTimeout);
+    }
+
+    static Long getLockTimeout() {
+        return LOCK_TIMEOUT.get();
+    }
+
+    static void clear() {
+        LOCK_TIMEOUT.remove();
+    }
+}
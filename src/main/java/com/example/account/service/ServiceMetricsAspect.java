@@ -0,0 +1,62 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+* AccountService, TransactionService public 메소드별 처리 시간 (결과별로 나눠서 기록)
+* retry, @Transactional(commit 포함)보다 바깥에서 측정해야 호출자가 기다린 시간이 된다.
+* 같은 클래스 안에서의 호출(self invocation)은 proxy를 거치지 않으므로 기록되지 않는다.
+* */
+@Aspect
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class ServiceMetricsAspect {
+    private static final String SUCCESS = "success";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Map<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    @Around("execution(public * com.example.account.service.AccountService.*(..))"
+            + " || execution(public * com.example.account.service.TransactionService.*(..))")
+    public Object aroundMethod(ProceedingJoinPoint pjp) throws Throwable {
+        long startedAt = System.nanoTime();
+        String outcome = SUCCESS;
+        try {
+            return pjp.proceed();
+        } catch (AccountException e) {
+            outcome = e.getErrorCode().name();
+            throw e;
+        } catch (Throwable t) {
+            outcome = t.getClass().getSimpleName();
+            throw t;
+        } finally {
+            getTimer(((MethodSignature) pjp.getSignature()).getMethod(), outcome)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer getTimer(Method method, String outcome) {
+        return timers.computeIfAbsent(method, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(outcome, key -> Timer.builder("account.service")
+                        .description("서비스 메소드 처리 시간")
+                        .tag("class", method.getDeclaringClass().getSimpleName())
+                        .tag("method", method.getName())
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.account.service;
+
+import com.example.account.config.ReplicationRoutingDataSource;
+import com.example.account.domain.TransactionIdCodec;
+import com.example.account.dto.TransactionDto;
+import com.example.account.event.TransactionSavedEvent;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.SettlementStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+
+/*
+* 잔액사용 이후 하위시스템 정산
+* 1. 잔액사용이 commit되면 정산작업을 크기가 제한된 executor에 넘긴다. (계좌 lock은 이미 해제)
+* 2. 실패하거나 executor가 가득 차면 retry 대기열에서 지연 후 재시도
+* 3. 결과는 거래내역의 settlementStatus에 기록
+* 4. 재시도 대기열은 메모리에만 있으므로 재시작/재시도 소진으로 남은 PENDING 거래는
+*    주기적으로 DB에서 찾아 다시 넘긴다. (여러 노드중 Redis lock을 잡은 노드 하나만)
+* */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SettlementService {
+    private static final String SWEEP_LOCK_KEY = "ACSETTLE:sweep";
+
+    private final TransactionRepository transactionRepository;
+    private final RedissonClient redissonClient;
+
+    @Value("${account.settlement.pool-size:4}")
+    private int poolSize;
+
+    @Value("${account.settlement.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${account.settlement.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${account.settlement.retry-delay:1000}")
+    private long retryDelay;
+
+    @Value("${account.settlement.downstream-delay:3000}")
+    private long downstreamDelay;
+
+    @Value("${account.settlement.sweep-interval:1m}")
+    private Duration sweepInterval;
+
+    //이 시간보다 오래된 PENDING 거래만 다시 넘긴다. (다른 노드가 아직 처리중인 거래는 건드리지 않도록)
+    @Value("${account.settlement.sweep-stale-after:10m}")
+    private Duration sweepStaleAfter;
+
+    private ThreadPoolExecutor settlementExecutor;
+    private ScheduledExecutorService retryScheduler;
+
+    //이 노드에서 정산중(대기열, 재시도 대기 포함)인 거래
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void start() {
+        settlementExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor();
+        //기동 직후 한번, 이후 sweep-interval마다
+        retryScheduler.scheduleWithFixedDelay(this::sweepPendingQuietly,
+                0L, sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        settlementExecutor.shutdown();
+        retryScheduler.shutdown();
+    }
+
+    @TransactionalEventListener
+    public void onTransactionSaved(TransactionSavedEvent event) {
+        TransactionDto transaction = event.getTransaction();
+        if (transaction.getTransactionType() != USE
+                || transaction.getTransactionResultType() != S) {
+            return;
+        }
+
+        if (inFlight.add(transaction.getTransactionId())) {
+            submit(transaction.getTransactionId(), 1);
+        }
+    }
+
+    /*
+    * executor가 가득 차서 못 넘긴 경우도 시도 횟수에 넣는다.
+    * 횟수를 다 쓰면 FAILED로 바꾸지 않고 PENDING으로 두어 sweep이 다시 넘기게 한다.
+    * */
+    private void submit(String transactionId, int attempt) {
+        try {
+            settlementExecutor.execute(() -> settle(transactionId, attempt));
+        } catch (RejectedExecutionException e) {
+            if (attempt >= maxAttempts) {
+                log.warn("Settlement queue is full, left for sweep transactionId:{}", transactionId);
+                inFlight.remove(transactionId);
+                return;
+            }
+            log.warn("Settlement queue is full, retry later transactionId:{}", transactionId);
+            scheduleRetry(transactionId, attempt + 1);
+        }
+    }
+
+    private void settle(String transactionId, int attempt) {
+        try {
+            callDownstream(transactionId);
+            transactionRepository.updateSettlementStatus(transactionId, SettlementStatus.SETTLED);
+            inFlight.remove(transactionId);
+        } catch (Exception e) {
+            if (attempt >= maxAttempts) {
+                log.error("Settlement failed transactionId:{}", transactionId, e);
+                markFailed(transactionId);
+                return;
+            }
+            log.warn("Settlement attempt {} failed transactionId:{}", attempt, transactionId);
+            scheduleRetry(transactionId, attempt + 1);
+        }
+    }
+
+    private void markFailed(String transactionId) {
+        try {
+            transactionRepository.updateSettlementStatus(transactionId, SettlementStatus.FAILED);
+        } finally {
+            inFlight.remove(transactionId);
+        }
+    }
+
+    private void scheduleRetry(String transactionId, int attempt) {
+        if (retryScheduler.isShutdown()) {
+            inFlight.remove(transactionId);
+            return;
+        }
+        retryScheduler.schedule(() -> submit(transactionId, attempt),
+                retryDelay * attempt, TimeUnit.MILLISECONDS);
+    }
+
+    /*
+    * 오래된 PENDING 거래를 transactionId 순서로 batch 단위로 읽어 다시 넘긴다.
+    * 대기열 크기만큼만 넘기고 나머지는 다음 sweep에서 처리
+    * replica가 늦으면 이미 정산된 거래를 다시 넘기므로 primary에서 읽는다.
+    * */
+    public int sweepPending() {
+        RLock lock = redissonClient.getLock(SWEEP_LOCK_KEY);
+        if (!lock.tryLock()) {
+            return 0;
+        }
+
+        int submitted = 0;
+        try {
+            LocalDateTime before = LocalDateTime.now().minus(sweepStaleAfter);
+            String after = TransactionIdCodec.format(0L);
+            List<String> transactionIds;
+            do {
+                String from = after;
+                transactionIds = ReplicationRoutingDataSource.usePrimary(() ->
+                        transactionRepository.findSettlementTransactionIds(
+                                SettlementStatus.PENDING, before, from, PageRequest.of(0, queueCapacity)));
+                for (String transactionId : transactionIds) {
+                    if (submitted >= queueCapacity) {
+                        return submitted;
+                    }
+                    if (inFlight.add(transactionId)) {
+                        submit(transactionId, 1);
+                        submitted++;
+                    }
+                }
+                if (!transactionIds.isEmpty()) {
+                    after = transactionIds.get(transactionIds.size() - 1);
+                }
+            } while (transactionIds.size() == queueCapacity);
+            return submitted;
+        } finally {
+            if (submitted > 0) {
+                log.info("Resubmitted {} pending settlements", submitted);
+            }
+            lock.unlock();
+        }
+    }
+
+    private void sweepPendingQuietly() {
+        try {
+            sweepPending();
+        } catch (Exception e) {
+            log.error("Failed to sweep pending settlements", e);
+        }
+    }
+
+    //하위시스템 호출 자리
+    private void callDownstream(String transactionId) throws InterruptedException {
+        log.debug("Settle transactionId:{}", transactionId);
+        Thread.sleep(downstreamDelay);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.event.TransactionSavedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/*
+* 거래내역 조회 캐시
+* 저장된 거래(S/F)는 바뀌지 않으므로 commit 이후 그대로 캐시에 넣는다.
+* 같은 아이디로 동시에 miss가 나면 한 요청만 DB를 조회하고 나머지는 그 결과를 기다린다.
+* */
+@Component
+public class TransactionCache {
+    private final Cache<String, TransactionDto> cache;
+
+    public TransactionCache(@Value("${account.transaction-cache.maximum-size:100000}") long maximumSize,
+                            @Value("${account.transaction-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    //loader가 null을 반환하면(없는 거래) 캐시하지 않는다.
+    public TransactionDto get(String transactionId, Function<String, TransactionDto> loader) {
+        return cache.get(transactionId, loader);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @TransactionalEventListener
+    public void onTransactionSaved(TransactionSavedEvent event) {
+        TransactionDto transaction = event.getTransaction();
+        cache.put(transaction.getTransactionId(), transaction);
+    }
+}
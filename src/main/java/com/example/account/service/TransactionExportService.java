@@ -0,0 +1,115 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionExport;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/*
+* 거래내역 export
+* DB cursor에서 한 행씩 읽어 바로 내보내므로 결과 건수와 상관없이 메모리 사용량이 일정하다.
+* */
+@Slf4j
+@Service
+public class TransactionExportService {
+    private static final String CSV_HEADER = "transactionId,accountNumber,transactionType,"
+            + "transactionResultType,amount,balanceSnapshot,transactedAt\n";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public TransactionExportService(TransactionRepository transactionRepository,
+                                    AccountRepository accountRepository,
+                                    ObjectMapper objectMapper,
+                                    @Value("${account.export.fetch-size:1000}") int fetchSize) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    //조건에 맞는 거래를 거래시각 순서로 consumer에 넘긴다. (consumer는 DB transaction 안에서 호출됨)
+    public long exportTransactions(TransactionExport.Request condition,
+                                   Consumer<TransactionExport.Row> consumer) {
+        Long accountId = null;
+        if (condition.getAccountNumber() != null) {
+            accountId = accountRepository.findByAccountNumber(condition.getAccountNumber())
+                    .orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST))
+                    .getId();
+        }
+
+        return transactionRepository.exportTransactions(accountId, condition, fetchSize, consumer);
+    }
+
+    //condition.format(NDJSON, CSV)으로 outputStream에 쓴다.
+    public long exportTransactions(TransactionExport.Request condition,
+                                   OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        boolean csv = condition.getFormat() == ExportFormat.CSV;
+        if (csv) {
+            writer.write(CSV_HEADER);
+        }
+
+        long count;
+        try {
+            count = exportTransactions(condition, row -> {
+                try {
+                    if (csv) {
+                        writeCsv(writer, row);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(row));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+
+        log.info("Exported {} transactions", count);
+        return count;
+    }
+
+    private static void writeCsv(Writer writer, TransactionExport.Row row) throws IOException {
+        writer.write(row.getTransactionId());
+        writer.write(',');
+        writer.write(row.getAccountNumber());
+        writer.write(',');
+        writer.write(String.valueOf(row.getTransactionType()));
+        writer.write(',');
+        writer.write(String.valueOf(row.getTransactionResultType()));
+        writer.write(',');
+        writer.write(toCsv(row.getAmount()));
+        writer.write(',');
+        writer.write(toCsv(row.getBalanceSnapshot()));
+        writer.write(',');
+        writer.write(toCsv(row.getTransactedAt()));
+        writer.write('\n');
+    }
+
+    private static String toCsv(Object value) {
+        return value == null ? "" : value.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.account.service;
+
+import com.example.account.domain.TransactionIdCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 거래 아이디 발급 (timestamp 41bit + node 10bit + sequence 12bit)
+* 노드 안에서는 항상 증가하므로 transactionId 인덱스에 순서대로 쌓인다.
+* DB에는 long으로 저장하고 API에는 19자리 고정길이 문자열로 보여준다. (TransactionIdCodec)
+* node-id는 노드마다 달라야 하므로 기본값이 없다. (dev profile만 0)
+* */
+@Component
+public class TransactionIdGenerator {
+    private static final long EPOCH = 1640995200000L; // 2022-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    // (timestamp << SEQUENCE_BITS) | sequence
+    private final AtomicLong lastState = new AtomicLong();
+
+    public TransactionIdGenerator(@Value("${account.transaction-id.node-id:#{null}}") Long nodeId) {
+        if (nodeId == null) {
+            throw new IllegalStateException("account.transaction-id.node-id must be set for each node");
+        }
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public String nextTransactionId() {
+        return TransactionIdCodec.format(nextId());
+    }
+
+    public long nextId() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH;
+            long last = lastState.get();
+            // 같은 ms이거나 시계가 뒤로 가면 이전 값에서 증가 (sequence가 넘치면 다음 ms로 넘어간다)
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (lastState.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.account.service;
+
+import com.example.account.domain.TransactionIdCodec;
+import com.example.account.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/*
+* Redis ledger 거래의 로컬 write-ahead journal (append-only)
+* 고정 길이 record를 memory-mapped segment 파일에 이어 쓰고, segment가 차면 다음 파일로 넘어간다.
+* fsync(force)는 sync-interval마다 쌓인 기록을 한번에 한다. (group commit)
+* append는 자신을 포함하는 force가 끝나면 완료되는 future를 돌려준다.
+*
+* record(64 byte) : crc32(4) | type(1) | transactionId(8) | amount(8) | balance(8)
+*                   | epochSecond(8) | nano(4) | accountNumber(16) | padding(7)
+* type 0은 아직 쓰지 않은 자리(= segment의 끝), crc는 type부터 record 끝까지
+* */
+@Slf4j
+public class TransactionJournal implements Closeable {
+    static final int RECORD_SIZE = 64;
+    private static final int ACCOUNT_NUMBER_SIZE = 16;
+    private static final int REPLAY_CHUNK_SIZE = 500;
+    private static final long RELEASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final List<Path> recoveredSegments;
+    private final ScheduledExecutorService syncer;
+
+    private final Object appendLock = new Object();
+    private Segment active;
+    private long nextSegmentId;
+    private final List<Segment> unsynced = new ArrayList<>();
+    private CompletableFuture<Void> pendingSync = new CompletableFuture<>();
+    private boolean dirty;
+
+    //force까지 끝나 DB 반영 확인만 남은 segment (오래된 순서)
+    private final Deque<Segment> closed = new ArrayDeque<>();
+    private long lastReleaseNanos;
+
+    public TransactionJournal(Path directory, long segmentSize, long syncIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.recordsPerSegment = (int) (segmentSize / RECORD_SIZE);
+        Files.createDirectories(directory);
+
+        try (var files = Files.list(directory)) {
+            recoveredSegments = files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        nextSegmentId = recoveredSegments.isEmpty() ? 0
+                : segmentId(recoveredSegments.get(recoveredSegments.size() - 1)) + 1;
+        active = openSegment();
+        lastReleaseNanos = System.nanoTime() - RELEASE_INTERVAL_NANOS;
+
+        syncer = Executors.newSingleThreadScheduledExecutor();
+        syncer.scheduleWithFixedDelay(this::syncQuietly,
+                syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Void> append(Entry entry) {
+        byte[] record = encode(entry);
+        synchronized (appendLock) {
+            if (active.count == recordsPerSegment) {
+                unsynced.add(active);
+                active = openSegment();
+            }
+            active.write(record, entry.getTransactionId());
+            dirty = true;
+            return pendingSync;
+        }
+    }
+
+    /*
+    * 이전 실행에서 남은 segment를 오래된 순서로 읽어 applier에 넘긴다.
+    * crc가 맞지 않는 record(쓰다가 죽은 마지막 기록)에서 해당 segment 읽기를 멈춘다.
+    * applier가 모두 성공하면 segment를 지운다. (applier는 이미 반영된 기록을 건너뛰어야 한다)
+    * */
+    public int replay(Consumer<List<Entry>> applier) throws IOException {
+        int replayed = 0;
+        for (Path segment : recoveredSegments) {
+            List<Entry> entries = read(segment);
+            for (int from = 0; from < entries.size(); from += REPLAY_CHUNK_SIZE) {
+                applier.accept(entries.subList(from, Math.min(entries.size(), from + REPLAY_CHUNK_SIZE)));
+            }
+            replayed += entries.size();
+            Files.delete(segment);
+        }
+        recoveredSegments.clear();
+        return replayed;
+    }
+
+    /*
+    * Redis 유실시 : 이전 실행에서 남은 segment와 이번 실행의 segment를 모두 오래된 순서로 applier에 넘긴다.
+    * 이번 실행의 segment는 지우지 않는다. (DB 반영이 확인되면 release가 지운다)
+    * */
+    public int replayAll(Consumer<List<Entry>> applier) throws IOException {
+        sync();
+        int replayed = replay(applier);
+
+        List<Path> live = new ArrayList<>();
+        synchronized (appendLock) {
+            synchronized (closed) {
+                closed.forEach(segment -> live.add(segment.path));
+            }
+            unsynced.forEach(segment -> live.add(segment.path));
+            live.add(active.path);
+        }
+        for (Path segment : live) {
+            List<Entry> entries;
+            try {
+                entries = read(segment);
+            } catch (NoSuchFileException e) {
+                //그 사이 release된 segment는 모두 DB에 반영되어 있다.
+                continue;
+            }
+            for (int from = 0; from < entries.size(); from += REPLAY_CHUNK_SIZE) {
+                applier.accept(entries.subList(from, Math.min(entries.size(), from + REPLAY_CHUNK_SIZE)));
+            }
+            replayed += entries.size();
+        }
+        return replayed;
+    }
+
+    /*
+    * 다 찬 segment 중 모든 기록이 DB에 반영된 것(allApplied)을 지운다.
+    * 반영은 다른 노드의 writer가 할 수도 있으므로 DB에서 확인하고, 확인한 위치는 기억해서 다시 읽지 않는다.
+    * */
+    public int release(Predicate<List<String>> allApplied) throws IOException {
+        List<Segment> candidates;
+        synchronized (closed) {
+            long now = System.nanoTime();
+            if (closed.isEmpty() || now - lastReleaseNanos < RELEASE_INTERVAL_NANOS) {
+                return 0;
+            }
+            lastReleaseNanos = now;
+            candidates = new ArrayList<>(closed);
+        }
+
+        int released = 0;
+        for (Segment segment : candidates) {
+            while (segment.verified < segment.count) {
+                int to = Math.min(segment.count, segment.verified + REPLAY_CHUNK_SIZE);
+                if (!allApplied.test(segment.transactionIds.subList(segment.verified, to))) {
+                    return released;
+                }
+                segment.verified = to;
+            }
+            synchronized (closed) {
+                closed.remove(segment);
+            }
+            Files.delete(segment.path);
+            released++;
+        }
+        return released;
+    }
+
+    //쌓인 기록을 force하고 기다리던 append를 완료시킨다.
+    void sync() {
+        CompletableFuture<Void> completing;
+        List<Segment> forcing;
+        synchronized (appendLock) {
+            if (!dirty) {
+                return;
+            }
+            completing = pendingSync;
+            pendingSync = new CompletableFuture<>();
+            dirty = false;
+            forcing = new ArrayList<>(unsynced);
+            forcing.add(active);
+            unsynced.clear();
+        }
+
+        try {
+            forcing.forEach(this::force);
+        } catch (RuntimeException e) {
+            log.error("Journal sync failed", e);
+            //force하지 못한 segment는 다음 sync에서 다시 force하고 replayAll에도 남도록 되돌린다.
+            synchronized (appendLock) {
+                unsynced.addAll(0, forcing.subList(0, forcing.size() - 1));
+                dirty = true;
+            }
+            completing.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (closed) {
+            forcing.stream().filter(segment -> segment.count == recordsPerSegment)
+                    .forEach(closed::add);
+        }
+        completing.complete(null);
+    }
+
+    void force(Segment segment) {
+        segment.buffer.force();
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.error("Journal sync will be retried", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sync();
+    }
+
+    private Segment openSegment() {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) recordsPerSegment * RECORD_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<Entry> read(Path segment) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] record = new byte[RECORD_SIZE];
+            while (buffer.remaining() >= RECORD_SIZE) {
+                buffer.get(record);
+                if (record[4] == 0) {
+                    break;
+                }
+                if (ByteBuffer.wrap(record).getInt() != checksum(record)) {
+                    log.warn("Journal record checksum mismatch, stop reading {}", segment);
+                    break;
+                }
+                entries.add(decode(record));
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] encode(Entry entry) {
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.position(4);
+        buffer.put((byte) (entry.getTransactionType().ordinal() + 1));
+        buffer.putLong(TransactionIdCodec.parse(entry.getTransactionId()));
+        buffer.putLong(entry.getAmount());
+        buffer.putLong(entry.getBalanceSnapshot());
+        buffer.putLong(entry.getTransactedAt().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(entry.getTransactedAt().getNano());
+        byte[] accountNumber = entry.getAccountNumber().getBytes(StandardCharsets.US_ASCII);
+        buffer.put(accountNumber, 0, Math.min(accountNumber.length, ACCOUNT_NUMBER_SIZE));
+        buffer.putInt(0, checksum(record));
+        return record;
+    }
+
+    private static Entry decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.position(4);
+        TransactionType transactionType = TransactionType.values()[buffer.get() - 1];
+        String transactionId = TransactionIdCodec.format(buffer.getLong());
+        long amount = buffer.getLong();
+        long balanceSnapshot = buffer.getLong();
+        LocalDateTime transactedAt = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        byte[] accountNumber = new byte[ACCOUNT_NUMBER_SIZE];
+        buffer.get(accountNumber);
+        return new Entry(transactionId, new String(accountNumber, StandardCharsets.US_ASCII).trim(),
+                transactionType, amount, transactedAt, balanceSnapshot);
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(record, 4, RECORD_SIZE - 4);
+        return (int) crc32.getValue();
+    }
+
+    private static long segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final String transactionId;
+        private final String accountNumber;
+        private final TransactionType transactionType;
+        private final Long amount;
+        private final LocalDateTime transactedAt;
+        private final Long balanceSnapshot;
+    }
+
+    static class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final List<String> transactionIds = new ArrayList<>();
+        private int count;
+        private int verified;
+
+        Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        void write(byte[] record, String transactionId) {
+            buffer.position(count * RECORD_SIZE);
+            buffer.put(record);
+            transactionIds.add(transactionId);
+            count++;
+        }
+    }
+}
@@ -4,23 +4,41 @@ import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.dto.UseBalance;
+import com.example.account.event.AccountChangedEvent;
+import com.example.account.event.TransactionSavedEvent;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountuserRepository;
 import com.example.account.repository.TransactionRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.SettlementStatus;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Recover;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
-
-import javax.transaction.Transactional;
-import javax.transaction.TransactionalException;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.example.account.type.TransactionResultType.*;
 import static com.example.account.type.TransactionType.*;
@@ -32,29 +50,55 @@ public class TransactionService {
     private final TransactionRepository transactionRepository;
     private final AccountuserRepository accountuserRepository;
     private final AccountRepository accountRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionCache transactionCache;
+    private final BalanceLedgerService balanceLedgerService;
 
     /*
     사용자 없는 경우, 사용자 아이디와 계좌 소유주가 다른 경우,
     계좌가 이미 해지 상태인 경우, 거래금액이 잔액보다 큰 경우,
     거래금액이 너무 작거나 큰 경우 실패 응답
+    Account version 충돌(optimistic 모드)시 backoff 후 재시도
     */
     @Transactional
+    @Retryable(value = OptimisticLockingFailureException.class, recover = "recoverUseBalance",
+            maxAttempts = 3, backoff = @Backoff(delay = 20, multiplier = 2, maxDelay = 100))
     public TransactionDto useBalance(Long userId, String accountNumber, Long amount){
         AccountUser user = accountuserRepository.findById(userId)
                 .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
 
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST));
+        Account account = getAccountForUpdate(accountNumber);
 
         validateUseBalance(user,account,amount);
 
         account.useBalance(amount);
 
         Transaction save = saveandGetTransaction(USE,S, account, amount);
+        balanceLedgerService.rejectLate(List.of(save));
+        applicationEventPublisher.publishEvent(
+                new AccountChangedEvent(account.getAccountUser().getId()));
 
         return TransactionDto.fromEntity(save);
     }
 
+    /*
+    PESSIMISTIC 전략이면 SELECT ... FOR UPDATE로 계좌를 읽어 lock과 조회를 한번에 처리
+    */
+    private Account getAccountForUpdate(String accountNumber) {
+        Long rowLockTimeout = RowLockContext.getLockTimeout();
+        try {
+            Optional<Account> account = rowLockTimeout == null
+                    ? accountRepository.findByAccountNumber(accountNumber)
+                    : accountRepository.findByAccountNumberForUpdate(accountNumber, rowLockTimeout);
+
+            return account.orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST));
+        } catch (PessimisticLockingFailureException e) {
+            log.error("======Row lock acquisition failed=====");
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
     private void validateUseBalance(AccountUser user,Account account,Long amount) {
         if (user.getId() != account.getAccountUser().getId()) {
             throw new AccountException(ErrorCode.USER_ACCOUNT_UNMACH);
@@ -78,38 +122,229 @@ public class TransactionService {
 
     }
 
+    /*
+    대량 잔액사용 (계좌 lock은 BatchUseBalanceService에서 계좌별로 한번만 잡는다)
+    요청 순서대로 검증/차감하고 성공(S), 실패(F) 거래를 한번에 저장(batch insert)
+    계좌가 없는 요청은 거래내역 없이 실패로 돌려준다.
+    PESSIMISTIC 전략이면 계좌번호 순서로 row lock을 잡으며 읽는다.
+    */
+    @Transactional
+    public List<UseBalance.BatchResponse> useBalanceChunk(List<UseBalance.Request> requests) {
+        Map<Long, AccountUser> users = accountuserRepository.findAllById(requests.stream()
+                        .map(UseBalance.Request::getUserId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(AccountUser::getId, Function.identity()));
+        Map<String, Account> accounts = RowLockContext.getLockTimeout() == null
+                ? getAccountsByNumber(requests)
+                : getAccountsForUpdate(requests);
+
+        List<Transaction> transactions = new ArrayList<>();
+        List<ErrorCode> errorCodes = new ArrayList<>();
+        for (UseBalance.Request request : requests) {
+            Account account = accounts.get(request.getAccountNumber());
+            if (account == null) {
+                transactions.add(null);
+                errorCodes.add(ErrorCode.NOT_ACCOUNT_EXIST);
+                continue;
+            }
+
+            ErrorCode errorCode = null;
+            try {
+                AccountUser user = users.get(request.getUserId());
+                if (user == null) {
+                    throw new AccountException(ErrorCode.USER_NOT_FOUND);
+                }
+                validateUseBalance(user, account, request.getAmount());
+                account.useBalance(request.getAmount());
+            } catch (AccountException e) {
+                errorCode = e.getErrorCode();
+            }
+            transactions.add(newTransaction(USE, errorCode == null ? S : F, account, request.getAmount()));
+            errorCodes.add(errorCode);
+        }
+
+        return saveAllAndGetResponses(requests, transactions, errorCodes);
+    }
+
+    //chunk 전체가 실패한 경우(lock 실패, DB 오류 등) F 거래를 한번에 저장
+    @Transactional
+    public List<UseBalance.BatchResponse> saveFailedUseTransactions(List<UseBalance.Request> requests,
+                                                                    List<ErrorCode> errorCodes) {
+        Map<String, Account> accounts = getAccountsByNumber(requests);
+
+        List<Transaction> transactions = new ArrayList<>();
+        List<ErrorCode> responseErrorCodes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Account account = accounts.get(requests.get(i).getAccountNumber());
+            transactions.add(account == null ? null
+                    : newTransaction(USE, F, account, requests.get(i).getAmount()));
+            responseErrorCodes.add(account == null ? ErrorCode.NOT_ACCOUNT_EXIST : errorCodes.get(i));
+        }
+
+        return saveAllAndGetResponses(requests, transactions, responseErrorCodes);
+    }
+
+    private Map<String, Account> getAccountsForUpdate(List<UseBalance.Request> requests) {
+        Map<String, Account> accounts = new HashMap<>();
+        requests.stream()
+                .map(UseBalance.Request::getAccountNumber)
+                .distinct()
+                .sorted()
+                .forEach(accountNumber -> {
+                    try {
+                        accounts.put(accountNumber, getAccountForUpdate(accountNumber));
+                    } catch (AccountException e) {
+                        if (e.getErrorCode() != ErrorCode.NOT_ACCOUNT_EXIST) {
+                            throw e;
+                        }
+                    }
+                });
+        return accounts;
+    }
+
+    private Map<String, Account> getAccountsByNumber(List<UseBalance.Request> requests) {
+        return accountRepository.findByAccountNumberIn(requests.stream()
+                        .map(UseBalance.Request::getAccountNumber).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Account::getAccountNumber, Function.identity()));
+    }
+
+    private List<UseBalance.BatchResponse> saveAllAndGetResponses(List<UseBalance.Request> requests,
+                                                                  List<Transaction> transactions,
+                                                                  List<ErrorCode> errorCodes) {
+        balanceLedgerService.rejectLate(transactionRepository.saveAll(transactions.stream()
+                .filter(Objects::nonNull).collect(Collectors.toList())));
+
+        List<UseBalance.BatchResponse> responses = new ArrayList<>(requests.size());
+        Set<Long> changedUsers = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction == null) {
+                responses.add(UseBalance.BatchResponse.failed(requests.get(i).getAccountNumber(),
+                        requests.get(i).getAmount(), errorCodes.get(i)));
+                continue;
+            }
+
+            TransactionDto transactionDto = TransactionDto.fromEntity(transaction);
+            applicationEventPublisher.publishEvent(new TransactionSavedEvent(transactionDto));
+            if (transaction.getTransactionResultType() == S) {
+                changedUsers.add(transaction.getAccount().getAccountUser().getId());
+            }
+            responses.add(UseBalance.BatchResponse.from(transactionDto, errorCodes.get(i)));
+        }
+        changedUsers.forEach(userId ->
+                applicationEventPublisher.publishEvent(new AccountChangedEvent(userId)));
+        return responses;
+    }
+
     private Transaction saveandGetTransaction(TransactionType transactionType, TransactionResultType transactionResultType, Account account, Long amount) {
-        return transactionRepository.save(
-                Transaction.builder()
-                        .transactionType(transactionType)
-                        .transactionResultType(transactionResultType)
-                        .account(account)
-                        .amount(amount)
-                        .balanceSnapshot(account.getBalance())
-                        .transactionId(UUID.randomUUID().toString().replace("-", ""))
-                        .transactedAt(LocalDateTime.now())
-                        .build()
-        );
+        Transaction transaction = transactionRepository.save(
+                newTransaction(transactionType, transactionResultType, account, amount));
+
+        applicationEventPublisher.publishEvent(
+                new TransactionSavedEvent(TransactionDto.fromEntity(transaction)));
+        return transaction;
     }
+
+    private Transaction newTransaction(TransactionType transactionType, TransactionResultType transactionResultType, Account account, Long amount) {
+        return Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .account(account)
+                .amount(amount)
+                .balanceSnapshot(account.getBalance())
+                .transactionId(transactionIdGenerator.nextTransactionId())
+                .transactedAt(LocalDateTime.now())
+                .settlementStatus(transactionType == USE && transactionResultType == S
+                        ? SettlementStatus.PENDING : null)
+                .build();
+    }
+    /*
+    이체 : 출금/입금 계좌를 한 DB 트랜잭션에서 처리하고 두 거래(TRANSFER_OUT, TRANSFER_IN)를 한번에 저장
+    계좌 lock은 LockAopAspect가 정해진 순서로 잡고, row lock(PESSIMISTIC)도 계좌번호 순서로 잡는다.
+    Redis ledger 계좌는 DB 잔액이 최신이 아니므로 이체할 수 없다.
+    */
     @Transactional
+    @Retryable(value = OptimisticLockingFailureException.class, recover = "recoverTransferBalance",
+            maxAttempts = 3, backoff = @Backoff(delay = 20, multiplier = 2, maxDelay = 100))
+    public TransactionDto transferBalance(Long userId, String fromAccountNumber,
+                                          String toAccountNumber, Long amount) {
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+
+        AccountUser user = accountuserRepository.findById(userId)
+                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+
+        Account fromAccount;
+        Account toAccount;
+        if (fromAccountNumber.compareTo(toAccountNumber) < 0) {
+            fromAccount = getAccountForUpdate(fromAccountNumber);
+            toAccount = getAccountForUpdate(toAccountNumber);
+        } else {
+            toAccount = getAccountForUpdate(toAccountNumber);
+            fromAccount = getAccountForUpdate(fromAccountNumber);
+        }
+
+        validateUseBalance(user, fromAccount, amount);
+        if (toAccount.getAccountStatus() != AccountStatus.IN_USE) {
+            throw new AccountException(ErrorCode.ACCOUNT_ALREADY_UNREGISTERD);
+        }
+
+        fromAccount.useBalance(amount);
+        toAccount.cancelBalance(amount);
+
+        List<Transaction> transactions = transactionRepository.saveAll(List.of(
+                newTransaction(TRANSFER_OUT, S, fromAccount, amount),
+                newTransaction(TRANSFER_IN, S, toAccount, amount)));
+        balanceLedgerService.rejectLate(transactions);
+        transactions.forEach(transaction -> applicationEventPublisher.publishEvent(
+                new TransactionSavedEvent(TransactionDto.fromEntity(transaction))));
+        applicationEventPublisher.publishEvent(
+                new AccountChangedEvent(fromAccount.getAccountUser().getId()));
+        if (!fromAccount.getAccountUser().getId().equals(toAccount.getAccountUser().getId())) {
+            applicationEventPublisher.publishEvent(
+                    new AccountChangedEvent(toAccount.getAccountUser().getId()));
+        }
+
+        return TransactionDto.fromEntity(transactions.get(0));
+    }
+
+    @Transactional
+    public void saveFailedTransferTransaction(String fromAccountNumber, Long amount) {
+        Account account=accountRepository.findByAccountNumber(fromAccountNumber)
+                .orElseThrow(()-> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST));
+
+        saveandGetTransaction(TRANSFER_OUT,F, account, amount);
+    }
+
+    @Transactional
+    @Retryable(value = OptimisticLockingFailureException.class, recover = "recoverCancelBalance",
+            maxAttempts = 3, backoff = @Backoff(delay = 20, multiplier = 2, maxDelay = 100))
     public TransactionDto cancelBalance(String transactionId, String accountNumber, Long amount) {
 
         Transaction transaction = transactionRepository.findByTransactionId(transactionId)
                 .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
 
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST));
+        Account account = getAccountForUpdate(accountNumber);
 
         validateCancelBalance(transaction,account,amount);
 
         account.cancelBalance(amount);
 
         Transaction save = saveandGetTransaction(CANCEL,S, account, amount);
+        balanceLedgerService.rejectLate(List.of(save));
+        applicationEventPublisher.publishEvent(
+                new AccountChangedEvent(account.getAccountUser().getId()));
 
         return TransactionDto.fromEntity(save);
     }
 
     private void validateCancelBalance(Transaction transaction, Account account, Long amount) {
+        //이체는 상대 계좌까지 되돌려야 하므로 잔액사용취소 대상이 아니다.
+        if(transaction.getTransactionType()==TRANSFER_OUT
+                || transaction.getTransactionType()==TRANSFER_IN){
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+
         if(transaction.getAccount().getId()!=account.getId()){
             throw  new AccountException(ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH);
         }
@@ -124,6 +359,38 @@ public class TransactionService {
 
 
     }
+    /*
+    * recover 이름을 지정하면 spring-retry는 이름이 같은 메서드 중 처음 맞는 것을 고르므로
+    * 예외 타입별 overload를 두지 않고 한 메서드에서 나눈다.
+    * version 충돌 재시도가 소진되면 lock 실패, 그 외(AccountException 등)는 그대로 던진다.
+    * */
+    @Recover
+    public TransactionDto recoverUseBalance(RuntimeException e,
+                                            Long userId, String accountNumber, Long amount) {
+        throw toRecoveredException(e, accountNumber);
+    }
+
+    @Recover
+    public TransactionDto recoverCancelBalance(RuntimeException e,
+                                               String transactionId, String accountNumber, Long amount) {
+        throw toRecoveredException(e, accountNumber);
+    }
+
+    @Recover
+    public TransactionDto recoverTransferBalance(RuntimeException e, Long userId,
+                                                 String fromAccountNumber, String toAccountNumber,
+                                                 Long amount) {
+        throw toRecoveredException(e, fromAccountNumber + "," + toAccountNumber);
+    }
+
+    private static RuntimeException toRecoveredException(RuntimeException e, String accountNumber) {
+        if (!(e instanceof OptimisticLockingFailureException)) {
+            return e;
+        }
+        log.error("Optimistic lock retry exhausted for accountNumber:{}", accountNumber);
+        return new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+    }
+
     @Transactional
     public void saveFailedCancelTransaction(String accountNumber, Long amount) {
         Account account=accountRepository.findByAccountNumber(accountNumber)
@@ -132,11 +399,49 @@ public class TransactionService {
         saveandGetTransaction(CANCEL,F, account, amount);
     }
 
-    @Transactional
+    /*
+    계좌 거래내역 (최신순, keyset pagination)
+    size+1건을 읽어서 다음 페이지가 있는지 판단한다.
+    */
+    @Transactional(readOnly = true)
+    public TransactionHistory.Response getTransactionHistory(String accountNumber,
+                                                             TransactionHistory.Request request) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.NOT_ACCOUNT_EXIST));
+
+        TransactionHistory.Cursor cursor = null;
+        if (request.getCursor() != null && !request.getCursor().isBlank()) {
+            try {
+                cursor = TransactionHistory.Cursor.decode(request.getCursor());
+            } catch (IllegalArgumentException e) {
+                throw new AccountException(ErrorCode.INVALID_REQUEST);
+            }
+        }
+
+        List<TransactionHistory.Item> items = transactionRepository.findHistory(
+                account.getId(), request, cursor, request.getSize() + 1);
+        String nextCursor = null;
+        if (items.size() > request.getSize()) {
+            items = items.subList(0, request.getSize());
+            nextCursor = TransactionHistory.Cursor.from(items.get(items.size() - 1)).encode();
+        }
+
+        return TransactionHistory.Response.builder()
+                .accountNumber(accountNumber)
+                .transactions(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    //방금 저장된 거래는 commit 이후 캐시에 들어가므로 replica 지연과 관계없이 조회된다.
+    @Transactional(readOnly = true)
     public TransactionDto queryTransaction(String transactionId) {
-        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+        TransactionDto transaction = transactionCache.get(transactionId,
+                id -> transactionRepository.findDtoByTransactionId(id).orElse(null));
+        if (transaction == null) {
+            throw new AccountException(ErrorCode.TRANSACTION_NOT_FOUND);
+        }
 
-        return TransactionDto.fromEntity(transaction);
+        return transaction;
     }
 }
@@ -19,7 +19,11 @@ public enum ErrorCode {
     TOO_OLD_FOR_CANCEL("1년이상 지난 거래는 취소되지 않습니다"),
     INVALID_REQUEST("불가능한 요청입니다"),
     INTERNAL_SERVER_ERROR("내부 에러 발생"),
-    ACCOUNT_TRANSACTION_LOCK("해당계좌는 사용중입니다");
+    ACCOUNT_TRANSACTION_LOCK("해당계좌는 사용중입니다"),
+    ACCOUNT_NUMBER_EXHAUSTED("발급 가능한 계좌번호가 없습니다"),
+    REQUEST_IN_PROGRESS("같은 요청을 처리중입니다"),
+    IDEMPOTENCY_KEY_REUSED("같은 Idempotency-Key로 다른 요청을 보낼 수 없습니다"),
+    JOURNAL_SYNC_FAILED("거래 기록에 실패했습니다");
 
     private final String description;
 
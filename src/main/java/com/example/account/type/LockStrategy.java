@@ -0,0 +1,8 @@
+package com.example.account.type;
+
+public enum LockStrategy {
+    REDIS,
+    PESSIMISTIC,
+    OPTIMISTIC,
+    SHARDED
+}
@@ -1,6 +1,6 @@
-insert into account_user(id, name, created_at,updated_at)
-values(1,'Pororo',now(),now());
-insert into account_user(id, name, created_at,updated_at)
-values(2,'Lupi',now(),now());
-insert into account_user(id, name, created_at,updated_at)
-values(3,'Eddie',now(),now());
\ No newline at end of file
+insert into account_user(id, name, account_count, created_at,updated_at)
+values(1,'Pororo',0,now(),now());
+insert into account_user(id, name, account_count, created_at,updated_at)
+values(2,'Lupi',0,now(),now());
+insert into account_user(id, name, account_count, created_at,updated_at)
+values(3,'Eddie',0,now(),now());
\ No newline at end of file
@@ -0,0 +1,101 @@
+package com.example.account.config;
+
+import com.example.account.event.AccountChangedEvent;
+import com.example.account.repository.AccountRepository;
+import com.example.account.service.RecentWriteTracker;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* 로컬 replica는 같은 in-memory H2를 쓰는 별도 pool이므로 pool 사용량으로 어느 쪽으로 갔는지 확인한다.
+* */
+@SpringBootTest
+class ReplicationRoutingDataSourceTest {
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Autowired
+    private RecentWriteTracker recentWriteTracker;
+
+    private TransactionTemplate readOnlyTemplate;
+    private TransactionTemplate readWriteTemplate;
+
+    @BeforeEach
+    void setUp() {
+        readOnlyTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate.setReadOnly(true);
+        readWriteTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    @DisplayName("readOnly 트랜잭션은 replica, 쓰기 트랜잭션은 primary")
+    void routeByReadOnly() {
+        //given
+        //when
+        int readOnlyConnections = readOnlyTemplate.execute(status -> {
+            accountRepository.findById(1L);
+            return activeReplicaConnections();
+        });
+        int readWriteConnections = readWriteTemplate.execute(status -> {
+            accountRepository.findById(1L);
+            return activeReplicaConnections();
+        });
+
+        //then
+        assertEquals(1, readOnlyConnections);
+        assertEquals(0, readWriteConnections);
+    }
+
+    @Test
+    @DisplayName("usePrimary 안에서는 readOnly 트랜잭션도 primary")
+    void usePrimary() {
+        //given
+        //when
+        int connections = readOnlyTemplate.execute(status ->
+                ReplicationRoutingDataSource.usePrimary(() -> {
+                    accountRepository.findById(1L);
+                    return activeReplicaConnections();
+                }));
+
+        //then
+        assertEquals(0, connections);
+    }
+
+    @Test
+    @DisplayName("계좌가 바뀐 사용자는 commit 전에 최근 기록으로 남음")
+    void trackRecentWrite() {
+        //given
+        //when
+        boolean trackedBeforeCommit = readWriteTemplate.execute(status -> {
+            applicationEventPublisher.publishEvent(new AccountChangedEvent(987L));
+            return recentWriteTracker.isRecentlyWritten(987L);
+        });
+
+        //then
+        assertFalse(trackedBeforeCommit);
+        assertTrue(recentWriteTracker.isRecentlyWritten(987L));
+        assertFalse(recentWriteTracker.isRecentlyWritten(988L));
+    }
+
+    private int activeReplicaConnections() {
+        HikariPoolMXBean pool = replicaDataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.account.config;
+
+import com.example.account.type.SqlStatementType;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+* Hibernate가 준비하는 SQL을 현재 스레드 기준으로 기록
+* 테스트 설정(src/test/resources/config/application.yml)의 statement_inspector로만 등록한다.
+* start()로 기록을 시작한 스레드만 기록하고, 나머지는 ThreadLocal 조회 한번으로 끝난다.
+* 요청별 SQL 수/종류를 확인할 때 사용한다. (SqlBudgetTest, PooledSequenceGeneratorTest)
+* */
+public class SqlStatementRecorder implements StatementInspector {
+    private static final ThreadLocal<Recording> RECORDING = new ThreadLocal<>();
+
+    public static Recording start() {
+        Recording recording = new Recording();
+        RECORDING.set(recording);
+        return recording;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Recording recording = RECORDING.get();
+        if (recording != null) {
+            recording.statements.add(sql);
+        }
+        return sql;
+    }
+
+    public static class Recording implements AutoCloseable {
+        private final List<String> statements = new ArrayList<>();
+
+        //종류별 SQL 수 (sequence 할당은 allocation size마다 한번이므로 따로 센다)
+        public Map<SqlStatementType, Integer> counts() {
+            Map<SqlStatementType, Integer> counts = new EnumMap<>(SqlStatementType.class);
+            statements.forEach(sql -> counts.merge(SqlStatementType.of(sql), 1, Integer::sum));
+            return counts;
+        }
+
+        @Override
+        public void close() {
+            if (RECORDING.get() == this) {
+                RECORDING.remove();
+            }
+        }
+    }
+}
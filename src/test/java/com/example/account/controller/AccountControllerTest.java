@@ -6,11 +6,14 @@ import com.example.account.dto.CreateAccount;
 import com.example.account.dto.DeleteAccount;
 import com.example.account.type.AccountStatus;
 import com.example.account.service.AccountService;
+import com.example.account.service.BalanceLedgerService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -18,20 +21,27 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AccountController.class)
+//GlobalExceptionHandler의 오류 건수 지표용
+@Import(SimpleMeterRegistry.class)
 class AccountControllerTest {
     @MockBean
     private AccountService accountService;
 
+    @MockBean
+    private BalanceLedgerService balanceLedgerService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -109,4 +119,43 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$[0].accountNumber").value("1234567890"))
                 .andExpect(jsonPath("$[0].balance").value(1000L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAccount() throws Exception {
+        //given
+        given(accountService.getAccount(anyLong()))
+                .willReturn(AccountDto.builder()
+                        .userId(1L)
+                        .accountNumber("1234567890")
+                        .balance(1000L)
+                        .build());
+
+        //when
+
+        //then
+        mockMvc.perform(get("/account/876"))
+                .andDo(print())
+                .andExpect(jsonPath("$.userId").value(1))
+                .andExpect(jsonPath("$.accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$.balance").value(1000L))
+                .andExpect(jsonPath("$.accountUser").doesNotExist());
+    }
+
+    @Test
+    void getBalanceAsOf() throws Exception {
+        //given
+        given(balanceLedgerService.getBalanceAsOf(eq("1234567890"),any()))
+                .willReturn(700L);
+
+        //when
+
+        //then
+        mockMvc.perform(get("/account/1234567890/balance?asOf=2022-03-01T10:00:00"))
+                .andDo(print())
+                .andExpect(jsonPath("$.accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$.balance").value(700L))
+                .andExpect(jsonPath("$.asOf").value("2022-03-01T10:00:00"));
+        verify(balanceLedgerService).getBalanceAsOf("1234567890",
+                LocalDateTime.of(2022, 3, 1, 10, 0));
+    }
+}
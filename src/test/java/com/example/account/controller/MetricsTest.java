@@ -0,0 +1,97 @@
+package com.example.account.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+/*
+* 요청 한번이 lock, 서비스, 오류 지표에 모두 기록되는지 확인
+* 같은 context를 쓰는 다른 테스트도 기록하므로 요청 전후의 차이로 비교한다.
+* */
+@SpringBootTest
+class MetricsTest {
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("잔액사용 실패 한번이 lock 대기/보유, 서비스 처리시간(결과별), ErrorCode 건수에 기록됨")
+    void useBalance_recorded() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        long lockWait = count(meterRegistry.find("account.lock.wait")
+                .tags("strategy", "REDIS", "outcome", "acquired"));
+        long lockHeld = count(meterRegistry.find("account.lock.held").tag("strategy", "REDIS"));
+        long redisAcquire = count(meterRegistry.find("account.lock.acquire")
+                .tags("stage", "redis", "outcome", "acquired"));
+        long service = count(meterRegistry.find("account.service")
+                .tags("method", "useBalance", "outcome", "USER_NOT_FOUND"));
+        double errors = errorCount();
+
+        //when
+        //서비스는 USER_NOT_FOUND, 실패 거래 저장에서 계좌가 없어 NOT_ACCOUNT_EXIST로 응답
+        mockMvc.perform(post("/transaction/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of(
+                                "userId", 9_999L, "accountNumber", "9300000001", "amount", 100L))))
+                .andExpect(jsonPath("$.errorCode").value("NOT_ACCOUNT_EXIST"));
+
+        //then
+        assertEquals(lockWait + 1, count(meterRegistry.find("account.lock.wait")
+                .tags("strategy", "REDIS", "outcome", "acquired")));
+        assertEquals(lockHeld + 1, count(meterRegistry.find("account.lock.held")
+                .tag("strategy", "REDIS")));
+        assertEquals(redisAcquire + 1, count(meterRegistry.find("account.lock.acquire")
+                .tags("stage", "redis", "outcome", "acquired")));
+        assertEquals(service + 1, count(meterRegistry.find("account.service")
+                .tags("method", "useBalance", "outcome", "USER_NOT_FOUND")));
+        assertEquals(errors + 1, errorCount());
+    }
+
+    @Test
+    @DisplayName("account.* timer는 백분위를 내고 DB pool 포화 지표가 등록됨")
+    void distributionAndPoolMetrics() {
+        //given
+        Timer timer = meterRegistry.get("account.lock.acquire")
+                .tags("stage", "local", "outcome", "acquired").timer();
+
+        //when
+        timer.record(Duration.ofMillis(1));
+
+        //then
+        assertEquals(4, timer.takeSnapshot().percentileValues().length);
+        for (String pool : new String[]{"primary", "replica"}) {
+            assertNotNull(meterRegistry.find("hikaricp.connections.pending").tag("pool", pool).gauge());
+            assertNotNull(meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer());
+        }
+        assertNotNull(meterRegistry.find("account.lock.redis.inflight").gauge());
+    }
+
+    private double errorCount() {
+        return meterRegistry.get("account.errors").tag("errorCode", "NOT_ACCOUNT_EXIST").counter().count();
+    }
+
+    private static long count(Search search) {
+        Timer timer = search.timer();
+        return timer == null ? 0L : timer.count();
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.account.controller;
+
+import com.example.account.config.SqlStatementRecorder;
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionExport;
+import com.example.account.event.AccountChangedEvent;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.service.AccountListCache;
+import com.example.account.service.AccountNumberGenerator;
+import com.example.account.service.BalanceLedgerService;
+import com.example.account.service.TransactionIdGenerator;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.SqlStatementType;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.account.type.SqlStatementType.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*
+* endpoint별 SQL 예산 (실행되는 SQL 수와 종류)
+* 변경으로 SQL이 늘거나 줄면 실패하므로 의도한 변경이면 예산을 같이 고친다.
+* sequence 할당(allocation size마다 한번)은 예산에서 빼고 보고서에만 남긴다.
+* 스트리밍 응답(NDJSON batch, export)은 MockMvc에서 다른 스레드로 실행되므로 controller를 직접 호출해서 잰다.
+* 보고서 : 표준출력, build/reports/sql-budget.txt
+* */
+@SpringBootTest
+class SqlBudgetTest {
+    private static final long USER_ID = 100L;
+    private static final long NEW_ACCOUNT_USER_ID = 101L;
+    private static final AtomicInteger ACCOUNT_SEQUENCE = new AtomicInteger();
+    private static final Map<String, Map<SqlStatementType, Integer>> REPORT = new LinkedHashMap<>();
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+    @Autowired
+    private TransactionController transactionController;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+    @Autowired
+    private AccountListCache accountListCache;
+    @Autowired
+    private AccountNumberGenerator accountNumberGenerator;
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    @BeforeAll
+    static void clearReport() {
+        REPORT.clear();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        //계좌 수 제한(10개)에 걸리지 않도록 이 테스트 전용 사용자를 쓴다.
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("merge into account_user(id, name, created_at, updated_at)"
+                + " key(id) values(?, 'Budget', now(), now())", USER_ID);
+        jdbcTemplate.update("merge into account_user(id, name, created_at, updated_at)"
+                + " key(id) values(?, 'Budget2', now(), now())", NEW_ACCOUNT_USER_ID);
+
+        //계좌번호 발급 block을 미리 받아둔다. (처음 한번만 마지막 계좌번호를 조회)
+        accountNumberGenerator.nextAccountNumber();
+    }
+
+    @AfterAll
+    static void printReport() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-44s %6s %6s %6s %6s %6s %6s", "endpoint",
+                "select", "insert", "update", "delete", "seq", "total"));
+        REPORT.forEach((endpoint, counts) -> lines.add(String.format(
+                "%-44s %6d %6d %6d %6d %6d %6d", endpoint,
+                counts.getOrDefault(SELECT, 0), counts.getOrDefault(INSERT, 0),
+                counts.getOrDefault(UPDATE, 0), counts.getOrDefault(DELETE, 0),
+                counts.getOrDefault(SEQUENCE, 0),
+                counts.values().stream().mapToInt(Integer::intValue).sum())));
+
+        lines.forEach(System.out::println);
+        Path report = Path.of("build", "reports", "sql-budget.txt");
+        Files.createDirectories(report.getParent());
+        Files.write(report, lines, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("POST /account")
+    void createAccount() throws Exception {
+        //given
+        //when
+        Map<SqlStatementType, Integer> counts = record("POST /account", () ->
+                perform(post("/account"), Map.of("userId", NEW_ACCOUNT_USER_ID, "intialBalance", 1000L)));
+
+        //then
+        //계좌 수 예약(조건부 update), 사용자 조회 / 계좌, 개설 snapshot 저장
+        assertBudget(Map.of(SELECT, 1, INSERT, 2, UPDATE, 1), counts);
+    }
+
+    @Test
+    @DisplayName("DELETE /account")
+    void deleteAccount() throws Exception {
+        //given
+        Account account = saveAccount(0L);
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("DELETE /account", () ->
+                perform(delete("/account"),
+                        Map.of("userId", USER_ID, "accountNumber", account.getAccountNumber())));
+
+        //then
+        //계좌 상태, 계좌 수 감소
+        assertBudget(Map.of(SELECT, 2, UPDATE, 2), counts);
+    }
+
+    @Test
+    @DisplayName("GET /account?user_id= (캐시 miss)")
+    void getAccountsByUserId() throws Exception {
+        //given
+        saveAccount(1000L);
+        accountListCache.onAccountChanged(new AccountChangedEvent(USER_ID));
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("GET /account?user_id= (cache miss)", () ->
+                perform(get("/account").param("user_id", String.valueOf(USER_ID))));
+
+        //then
+        //사용자 존재 확인 + 계좌목록 projection
+        assertBudget(Map.of(SELECT, 2), counts);
+    }
+
+    @Test
+    @DisplayName("GET /account/{id}")
+    void getAccount() throws Exception {
+        //given
+        Account account = saveAccount(1000L);
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("GET /account/{id}", () ->
+                perform(get("/account/" + account.getId())));
+
+        //then
+        assertBudget(Map.of(SELECT, 1), counts);
+    }
+
+    @Test
+    @DisplayName("GET /account/{accountNumber}/balance")
+    void getBalance() throws Exception {
+        //given
+        Account account = saveAccount(1000L);
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("GET /account/{accountNumber}/balance", () ->
+                perform(get("/account/" + account.getAccountNumber() + "/balance")));
+
+        //then
+        //계좌, 직전 snapshot, 이후 거래 합계
+        assertBudget(Map.of(SELECT, 3), counts);
+    }
+
+    @Test
+    @DisplayName("POST /transaction/use")
+    void useBalance() throws Exception {
+        //given
+        Account account = saveAccount(1000L);
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("POST /transaction/use", () ->
+                perform(post("/transaction/use"), Map.of("userId", USER_ID,
+                        "accountNumber", account.getAccountNumber(), "amount", 100L)));
+
+        //then
+        //사용자, 계좌 조회 / 거래 저장 / 잔액 변경
+        assertBudget(Map.of(SELECT, 2, INSERT, 1, UPDATE, 1), counts);
+    }
+
+    @Test
+    @DisplayName("POST /transaction/use (잔액부족)")
+    void useBalance_failed() throws Exception {
+        //given
+        Account account = saveAccount(50L);
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("POST /transaction/use (exceed balance)", () ->
+                perform(post("/transaction/use"), Map.of("userId", USER_ID,
+                        "accountNumber", account.getAccountNumber(), "amount", 100L)));
+
+        //then
+        //실패 거래 저장은 새 트랜잭션에서 계좌를 다시 읽는다.
+        assertBudget(Map.of(SELECT, 3, INSERT, 1), counts);
+    }
+
+    @Test
+    @DisplayName("POST /transaction/cancel")
+    void cancelBalance() throws Exception {
+        //given
+        Account account = saveAccount(900L);
+        Transaction used = saveTransaction(account, 100L);
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("POST /transaction/cancel", () ->
+                perform(post("/transaction/cancel"), Map.of("transactionId", used.getTransactionId(),
+                        "accountNumber", account.getAccountNumber(), "amount", 100L)));
+
+        //then
+        //원거래(+계좌) 조회 / 취소 거래 저장 / 잔액 변경
+        assertBudget(Map.of(SELECT, 1, INSERT, 1, UPDATE, 1), counts);
+    }
+
+    @Test
+    @DisplayName("POST /transaction/transfer")
+    void transferBalance() throws Exception {
+        //given
+        Account from = saveAccount(1000L);
+        Account to = saveAccount(1000L);
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("POST /transaction/transfer", () ->
+                perform(post("/transaction/transfer"), Map.of("userId", USER_ID,
+                        "fromAccountNumber", from.getAccountNumber(),
+                        "toAccountNumber", to.getAccountNumber(), "amount", 100L)));
+
+        //then
+        //사용자, 두 계좌 조회 / 거래 두건 저장(batch) / 두 계좌 잔액 변경(batch)
+        assertBudget(Map.of(SELECT, 3, INSERT, 1, UPDATE, 1), counts);
+    }
+
+    @Test
+    @DisplayName("GET /account/{accountNumber}/transactions")
+    void getTransactionHistory() throws Exception {
+        //given
+        Account account = saveAccount(900L);
+        saveTransaction(account, 100L);
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("GET /account/{accountNumber}/transactions", () ->
+                perform(get("/account/" + account.getAccountNumber() + "/transactions")));
+
+        //then
+        assertBudget(Map.of(SELECT, 2), counts);
+    }
+
+    @Test
+    @DisplayName("GET /transaction/{transactionId}")
+    void queryTransaction() throws Exception {
+        //given
+        Account account = saveAccount(900L);
+        Transaction transaction = saveTransaction(account, 100L);
+
+        //when
+        Map<SqlStatementType, Integer> miss = record("GET /transaction/{id} (cache miss)", () ->
+                perform(get("/transaction/" + transaction.getTransactionId())));
+        Map<SqlStatementType, Integer> hit = record("GET /transaction/{id} (cache hit)", () ->
+                perform(get("/transaction/" + transaction.getTransactionId())));
+
+        //then
+        assertBudget(Map.of(SELECT, 1), miss);
+        assertBudget(Map.of(), hit);
+    }
+
+    @Test
+    @DisplayName("POST /transaction/use/batch")
+    void useBalanceBatch() throws Exception {
+        //given
+        Account first = saveAccount(1000L);
+        Account second = saveAccount(1000L);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            Account account = i % 2 == 0 ? first : second;
+            body.append(objectMapper.writeValueAsString(Map.of("userId", USER_ID,
+                    "accountNumber", account.getAccountNumber(), "amount", 10L))).append('\n');
+        }
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("POST /transaction/use/batch (10 lines)", () ->
+                transactionController.useBalanceBatch(new ByteArrayInputStream(
+                                body.toString().getBytes(StandardCharsets.UTF_8)))
+                        .writeTo(new ByteArrayOutputStream()));
+
+        //then
+        //chunk당 사용자, 계좌 조회 / 거래 저장(batch) / 계좌 잔액 변경(batch)
+        assertBudget(Map.of(SELECT, 2, INSERT, 1, UPDATE, 1), counts);
+    }
+
+    @Test
+    @DisplayName("GET /transaction/export")
+    void exportTransactions() throws Exception {
+        //given
+        Account account = saveAccount(800L);
+        saveTransaction(account, 100L);
+        saveTransaction(account, 100L);
+        TransactionExport.Request request = new TransactionExport.Request();
+        request.setAccountNumber(account.getAccountNumber());
+
+        //when
+        Map<SqlStatementType, Integer> counts = record("GET /transaction/export", () ->
+                transactionController.exportTransactions(request).getBody()
+                        .writeTo(new ByteArrayOutputStream()));
+
+        //then
+        assertBudget(Map.of(SELECT, 2), counts);
+    }
+
+    private void perform(MockHttpServletRequestBuilder request) throws Exception {
+        mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+    }
+
+    private void perform(MockHttpServletRequestBuilder request, Map<String, Object> body) throws Exception {
+        mockMvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().is2xxSuccessful());
+    }
+
+    private Map<SqlStatementType, Integer> record(String endpoint, Call call) throws Exception {
+        try (SqlStatementRecorder.Recording recording = SqlStatementRecorder.start()) {
+            call.run();
+            Map<SqlStatementType, Integer> counts = recording.counts();
+            REPORT.put(endpoint, counts);
+            return counts;
+        }
+    }
+
+    private static void assertBudget(Map<SqlStatementType, Integer> expected,
+                                     Map<SqlStatementType, Integer> counts) {
+        Map<SqlStatementType, Integer> actual = new EnumMap<>(counts);
+        actual.remove(SEQUENCE);
+        assertEquals(expected.isEmpty() ? Map.of() : new EnumMap<>(expected), actual);
+    }
+
+    private Account saveAccount(Long balance) {
+        AccountUser user = accountuserRepository.findById(USER_ID).get();
+        Account account = accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(String.valueOf(9_100_000_000L + ACCOUNT_SEQUENCE.incrementAndGet()))
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(balance)
+                .regiteredAt(LocalDateTime.now())
+                .build());
+        balanceLedgerService.openLedger(account);
+        return account;
+    }
+
+    private Transaction saveTransaction(Account account, Long amount) {
+        return transactionRepository.save(Transaction.builder()
+                .account(account)
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(amount)
+                .balanceSnapshot(account.getBalance())
+                .transactionId(transactionIdGenerator.nextTransactionId())
+                .transactedAt(LocalDateTime.now())
+                .build());
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run() throws Exception;
+    }
+}
@@ -2,40 +2,66 @@ package com.example.account.controller;
 
 import com.example.account.domain.Account;
 import com.example.account.dto.*;
+import com.example.account.service.BatchUseBalanceService;
+import com.example.account.service.HotBalanceLedger;
+import com.example.account.service.TransactionExportService;
 import com.example.account.service.TransactionService;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static com.example.account.type.TransactionResultType.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TransactionController.class)
+//GlobalExceptionHandler의 오류 건수 지표용
+@Import(SimpleMeterRegistry.class)
 class TransactionControllerTest {
 
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private HotBalanceLedger hotBalanceLedger;
+
+    @MockBean
+    private BatchUseBalanceService batchUseBalanceService;
+
+    @MockBean
+    private TransactionExportService transactionExportService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -68,6 +94,39 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.amount").value(12345L));
     }
 
+    @Test
+    void useBalanceBatchTest() throws Exception {
+        //given
+        given(batchUseBalanceService.useBalance(anyList()))
+                .willReturn(List.of(UseBalance.BatchResponse.builder()
+                        .accountNumber("2000000000")
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .amount(1000L)
+                        .build()));
+        String body = objectMapper.writeValueAsString(new UseBalance.Request(1L, "2000000000", 1000L))
+                + "\n{broken\n\n"
+                + objectMapper.writeValueAsString(new UseBalance.Request(1L, "200", 1000L)) + "\n";
+
+        //when
+        MvcResult result = mockMvc.perform(post("/transaction/use/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"index\":1,\"accountNumber\":null,\"transactionResultType\":\"F\",\"transactionId\":null,"
+                                + "\"amount\":null,\"transactedAt\":null,\"errorCode\":\"INVALID_REQUEST\"}\n"
+                                + "{\"index\":2,\"accountNumber\":\"200\",\"transactionResultType\":\"F\",\"transactionId\":null,"
+                                + "\"amount\":1000,\"transactedAt\":null,\"errorCode\":\"INVALID_REQUEST\"}\n"
+                                + "{\"index\":0,\"accountNumber\":\"2000000000\",\"transactionResultType\":\"S\",\"transactionId\":\"transactionId\","
+                                + "\"amount\":1000,\"transactedAt\":null,\"errorCode\":null}\n"));
+    }
+
     @Test
     void cancelBalanceTest() throws Exception {
         //given
@@ -94,6 +153,83 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.amount").value(12345L));
     }
 
+    @Test
+    void transferBalanceTest() throws Exception {
+        //given
+        given(transactionService.transferBalance(anyLong(),anyString(),anyString(),anyLong()))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(1000L)
+                        .transactionId("transactionId")
+                        .transactionResultType(S)
+                        .transactionType(TransactionType.TRANSFER_OUT)
+                        .build());
+
+        //when
+
+        //then
+        mockMvc.perform(post("/transaction/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new TransferBalance.Request(1L,"1000000000","2000000000",1000L)
+                        ))
+                ).andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fromAccountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.toAccountNumber").value("2000000000"))
+                .andExpect(jsonPath("$.transactionId").value("transactionId"));
+    }
+
+    @Test
+    void getTransactionHistoryTest() throws Exception {
+        //given
+        given(transactionService.getTransactionHistory(anyString(),any()))
+                .willReturn(TransactionHistory.Response.builder()
+                        .accountNumber("1000000000")
+                        .transactions(List.of(new TransactionHistory.Item(1L, "transactionId",
+                                TransactionType.USE, S, 1000L, 0L, LocalDateTime.now())))
+                        .nextCursor("nextCursor")
+                        .build());
+
+        //when
+
+        //then
+        mockMvc.perform(get("/account/1000000000/transactions")
+                        .param("transactionType", "USE")
+                        .param("from", "2022-03-01T00:00:00")
+                        .param("size", "10"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.transactions[0].id").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("nextCursor"));
+    }
+
+    @Test
+    void exportTransactionsCsvTest() throws Exception {
+        //given
+        given(transactionExportService.exportTransactions(any(), any(OutputStream.class)))
+                .willAnswer(invocation -> {
+                    OutputStream outputStream = invocation.getArgument(1);
+                    outputStream.write("transactionId\n".getBytes(StandardCharsets.UTF_8));
+                    return 0L;
+                });
+
+        //when
+        MvcResult result = mockMvc.perform(get("/transaction/export")
+                        .param("format", "CSV")
+                        .param("from", "2022-03-01T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andExpect(content().string("transactionId\n"));
+    }
+
     @Test
     void getQueryTransaction() throws Exception {
         //given
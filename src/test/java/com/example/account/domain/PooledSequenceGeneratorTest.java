@@ -0,0 +1,131 @@
+package com.example.account.domain;
+
+import com.example.account.config.SqlStatementRecorder;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.service.TransactionIdGenerator;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.SqlStatementType;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* pooled-lo id 발급과 JDBC batch insert (allocation size 50, batch size 50)
+* */
+@SpringBootTest
+class PooledSequenceGeneratorTest {
+    private static final String ACCOUNT_NUMBER = "9400000001";
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        account = accountRepository.findByAccountNumber(ACCOUNT_NUMBER)
+                .orElseGet(() -> accountRepository.save(Account.builder()
+                        .accountUser(accountuserRepository.findById(3L).get())
+                        .accountNumber(ACCOUNT_NUMBER)
+                        .accountStatus(AccountStatus.IN_USE)
+                        .balance(0L)
+                        .regiteredAt(LocalDateTime.now())
+                        .build()));
+    }
+
+    @Test
+    @DisplayName("여러 스레드가 각자 block을 받아 발급해도 id가 겹치지 않음")
+    void uniqueIdsAcrossBlocks() throws Exception {
+        //given
+        int threads = 4;
+        int perThread = ALLOCATION_SIZE + 10;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        //when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    ids.add(transactionRepository.save(newTransaction()).getId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(threads * perThread, ids.size());
+        assertTrue(ids.stream().mapToLong(Long::longValue).max().getAsLong()
+                - ids.stream().mapToLong(Long::longValue).min().getAsLong() >= ALLOCATION_SIZE);
+    }
+
+    @Test
+    @DisplayName("한 트랜잭션의 insert 120건은 statement 하나로 batch 실행, sequence 조회는 block마다 한번")
+    void batchInsert() {
+        //given
+        int count = 120;
+        List<Transaction> transactions = IntStream.range(0, count)
+                .mapToObj(i -> newTransaction())
+                .collect(Collectors.toList());
+
+        //when
+        Map<SqlStatementType, Integer> counts;
+        try (SqlStatementRecorder.Recording recording = SqlStatementRecorder.start()) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    transactionRepository.saveAll(transactions));
+            counts = recording.counts();
+        }
+
+        //then
+        //batch가 꺼져 있으면 insert마다 statement를 새로 준비하므로 120이 된다.
+        assertEquals(1, counts.get(SqlStatementType.INSERT));
+        assertTrue(counts.getOrDefault(SqlStatementType.SEQUENCE, 0) <= count / ALLOCATION_SIZE + 1);
+        assertEquals(count, transactions.stream().map(Transaction::getId).distinct().count());
+    }
+
+    private Transaction newTransaction() {
+        return Transaction.builder()
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.F)
+                .account(account)
+                .amount(1L)
+                .balanceSnapshot(0L)
+                .transactionId(transactionIdGenerator.nextTransactionId())
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
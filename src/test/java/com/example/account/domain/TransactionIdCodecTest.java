@@ -0,0 +1,39 @@
+package com.example.account.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIdCodecTest {
+
+    @Test
+    @DisplayName("고정길이 문자열로 변환")
+    void formatAndParse() {
+        //given
+        long id = 1234567890123456789L;
+
+        //when
+        String transactionId = TransactionIdCodec.format(id);
+
+        //then
+        assertEquals(TransactionIdCodec.ID_LENGTH, transactionId.length());
+        assertEquals("0000000000000000042", TransactionIdCodec.format(42L));
+        assertEquals(id, TransactionIdCodec.parse(transactionId));
+        assertEquals(42L, TransactionIdCodec.parse("0000000000000000042"));
+    }
+
+    @Test
+    @DisplayName("형식이 맞지 않는 아이디")
+    void parseMalformed() {
+        //given
+        //when
+        //then
+        assertEquals(TransactionIdCodec.UNKNOWN_ID, TransactionIdCodec.parse(""));
+        assertEquals(TransactionIdCodec.UNKNOWN_ID, TransactionIdCodec.parse("42"));
+        assertEquals(TransactionIdCodec.UNKNOWN_ID, TransactionIdCodec.parse("ddddd"));
+        assertEquals(TransactionIdCodec.UNKNOWN_ID, TransactionIdCodec.parse("000000000000000004d"));
+        assertEquals(TransactionIdCodec.UNKNOWN_ID, TransactionIdCodec.parse("99999999999999999999"));
+        assertEquals(TransactionIdCodec.UNKNOWN_ID, TransactionIdCodec.parse("9999999999999999999"));
+    }
+}
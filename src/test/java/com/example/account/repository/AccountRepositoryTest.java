@@ -0,0 +1,115 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountDto;
+import com.example.account.type.AccountStatus;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AccountRepositoryTest {
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("계좌번호 조회는 natural id cache를 탄다")
+    void findByAccountNumber_naturalIdCache() {
+        //given
+        AccountUser user = accountuserRepository.findById(3L).get();
+        accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber("9000000001")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .regiteredAt(LocalDateTime.now())
+                .build());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        //when
+        Account first = accountRepository.findByAccountNumber("9000000001").get();
+        Account second = accountRepository.findByAccountNumber("9000000001").get();
+
+        //then
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1000L, second.getBalance());
+        assertEquals(2, statistics.getNaturalIdCacheHitCount());
+        assertEquals(0, statistics.getNaturalIdQueryExecutionCount());
+        assertFalse(accountRepository.findByAccountNumber("9999999999").isPresent());
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    @DisplayName("사용자 계좌목록 projection은 AccountUser를 읽지 않음")
+    void findDtosByAccountUserId_projection() {
+        //given
+        AccountUser user = accountuserRepository.findById(2L).get();
+        Account account = accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber("9000000002")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(500L)
+                .regiteredAt(LocalDateTime.now())
+                .build());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        //when
+        List<AccountDto> accounts = accountRepository.findDtosByAccountUserId(2L);
+        AccountDto byId = accountRepository.findDtoById(account.getId()).get();
+
+        //then
+        assertTrue(accounts.stream().anyMatch(dto -> dto.getAccountNumber().equals("9000000002")));
+        assertTrue(accounts.stream().allMatch(dto -> dto.getUserId().equals(2L)));
+        assertEquals(2L, byId.getUserId());
+        assertEquals(500L, byId.getBalance());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    @DisplayName("계좌번호로 row lock을 잡고 조회 (PESSIMISTIC)")
+    void findByAccountNumberForUpdate() {
+        //given
+        AccountUser user = accountuserRepository.findById(3L).get();
+        accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber("9000000003")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(300L)
+                .regiteredAt(LocalDateTime.now())
+                .build());
+
+        //when
+        Account account = new TransactionTemplate(transactionManager).execute(status ->
+                accountRepository.findByAccountNumberForUpdate("9000000003", 3000L).get());
+
+        //then
+        assertEquals(300L, account.getBalance());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.account.repository;
+
+import com.example.account.AccountApplication;
+import com.example.account.dto.TransactionExport;
+import com.example.account.service.TransactionExportService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* 전체 거래내역 500만건 export를 작은 heap(-Xmx96m)의 별도 JVM에서 실행
+* 결과를 모으거나 persistence context에 쌓으면 OutOfMemoryError로 JVM이 종료된다.
+* 테스트 JVM의 in-memory H2에 500만건을 넣을 수 없으므로 파일 H2를 쓴다.
+* NDJSON 변환, 쓰기까지 포함하도록 TransactionExportService로 내보낸다.
+* 몇 분 걸리므로 기본 test task에서 빼고 slowTest task로 실행한다.
+* */
+@Tag("slow")
+class TransactionExportMemoryTest {
+    private static final long ROWS = 5_000_000L;
+    private static final long INSERT_CHUNK = 500_000L;
+    private static final long ACCOUNT_ID = 5_000_000_000L;
+
+    @Test
+    @DisplayName("500만건 export를 -Xmx96m에서 끝까지 처리")
+    void exportTransactions_constantMemory(@TempDir Path dir) throws Exception {
+        //given
+        Path output = dir.resolve("export.log");
+        Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx96m",
+                "-XX:+ExitOnOutOfMemoryError",
+                "-cp", System.getProperty("java.class.path"),
+                TransactionExportMemoryTest.class.getName(),
+                dir.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(output.toFile())
+                .start();
+
+        //when
+        boolean finished = process.waitFor(10, TimeUnit.MINUTES);
+        if (!finished) {
+            process.destroyForcibly();
+        }
+
+        //then
+        String log = Files.readString(output, StandardCharsets.UTF_8);
+        assertTrue(finished, "export timed out");
+        assertEquals(0, process.exitValue(), log);
+        assertTrue(log.contains("exported=" + ROWS), log);
+    }
+
+    //-Xmx96m JVM에서 실행 (args[0] : H2 파일, journal 디렉터리)
+    public static void main(String[] args) {
+        String url = "jdbc:h2:file:" + new File(args[0], "export").getAbsolutePath();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.redis.port=6399",
+                        "--spring.profiles.active=dev",
+                        "--spring.datasource.url=" + url,
+                        "--account.datasource.replica.url=" + url,
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--account.settlement.downstream-delay=0",
+                        "--account.journal.dir=" + args[0]);
+        int exitCode = 1;
+        try {
+            //파일 H2는 data.sql이 실행되지 않는다.
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            jdbcTemplate.update("insert into account_user(id, name, account_count, created_at, updated_at)"
+                    + " values(1, 'export', 1, now(), now())");
+            jdbcTemplate.update("insert into account(id, account_user_id, account_number, account_status,"
+                    + " balance, version, regitered_at, created_at, updated_at)"
+                    + " values(?, 1, ?, 'IN_USE', 0, 0, now(), now(), now())", ACCOUNT_ID, "5000000000");
+            for (long from = 0; from < ROWS; from += INSERT_CHUNK) {
+                jdbcTemplate.update("insert into transaction(id, account_id, transaction_type,"
+                                + " transaction_result_type, amount, balance_snapshot, transaction_id,"
+                                + " transacted_at, created_at, updated_at)"
+                                + " select ? + x, ?, 'USE', 'S', 1, 0, x,"
+                                + " dateadd('SECOND', x, timestamp '2022-01-01 00:00:00'), now(), now()"
+                                + " from system_range(?, ?)",
+                        ACCOUNT_ID, ACCOUNT_ID, from, Math.min(from + INSERT_CHUNK, ROWS) - 1);
+            }
+
+            long count = context.getBean(TransactionExportService.class).exportTransactions(
+                    new TransactionExport.Request(), OutputStream.nullOutputStream());
+            System.out.println("exported=" + count);
+            exitCode = 0;
+        } catch (RuntimeException | IOException e) {
+            e.printStackTrace();
+        } finally {
+            context.close();
+            System.exit(exitCode);
+        }
+    }
+}
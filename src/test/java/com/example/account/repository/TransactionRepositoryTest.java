@@ -0,0 +1,149 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistory;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TransactionRepositoryTest {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2022, 3, 1, 0, 0);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Account account;
+    private String transactionId;
+
+    @BeforeEach
+    void setUp() {
+        AccountUser user = accountuserRepository.findById(3L).get();
+        account = accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(String.valueOf(5_000_000_000L + SEQUENCE.incrementAndGet()))
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .regiteredAt(LocalDateTime.now())
+                .build());
+
+        //같은 시각의 거래가 여러건이어도 id로 순서가 정해져야 한다.
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            transactions.add(Transaction.builder()
+                    .account(account)
+                    .transactionType(i % 5 == 0 ? TransactionType.CANCEL : TransactionType.USE)
+                    .transactionResultType(TransactionResultType.S)
+                    .amount(10L + i)
+                    .balanceSnapshot(1000L)
+                    .transactionId(String.format("%019d", 1_000_000L * SEQUENCE.get() + i))
+                    .transactedAt(BASE_TIME.plusMinutes(i / 3))
+                    .build());
+        }
+        transactionRepository.saveAll(transactions);
+        transactionId = transactions.get(0).getTransactionId();
+    }
+
+    @Test
+    @DisplayName("cursor를 따라가면 최신순으로 빠짐없이 중복없이 읽힌다")
+    void findHistory_keyset() {
+        //given
+        TransactionHistory.Request condition = new TransactionHistory.Request();
+        List<TransactionHistory.Item> read = new ArrayList<>();
+        TransactionHistory.Cursor cursor = null;
+
+        //when
+        List<TransactionHistory.Item> page;
+        do {
+            page = transactionRepository.findHistory(account.getId(), condition, cursor, 10);
+            read.addAll(page);
+            cursor = page.isEmpty() ? null : TransactionHistory.Cursor.from(page.get(page.size() - 1));
+        } while (page.size() == 10);
+
+        //then
+        assertEquals(25, read.size());
+        assertEquals(25, read.stream().map(TransactionHistory.Item::getId).distinct().count());
+        for (int i = 1; i < read.size(); i++) {
+            TransactionHistory.Item prev = read.get(i - 1);
+            TransactionHistory.Item current = read.get(i);
+            assertTrue(prev.getTransactedAt().isAfter(current.getTransactedAt())
+                    || (prev.getTransactedAt().isEqual(current.getTransactedAt())
+                    && prev.getId() > current.getId()));
+        }
+        assertEquals(34L, read.get(0).getAmount());
+    }
+
+    @Test
+    @DisplayName("거래종류, 기간 조건")
+    void findHistory_condition() {
+        //given
+        TransactionHistory.Request condition = new TransactionHistory.Request();
+        condition.setTransactionType(TransactionType.CANCEL);
+        condition.setFrom(BASE_TIME.plusMinutes(1));
+        condition.setTo(BASE_TIME.plusMinutes(7));
+
+        //when
+        List<TransactionHistory.Item> items =
+                transactionRepository.findHistory(account.getId(), condition, null, 100);
+
+        //then
+        assertEquals(List.of(30L, 25L, 20L, 15L),
+                items.stream().map(TransactionHistory.Item::getAmount).collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("거래 조회 projection은 엔티티를 만들지 않고 쿼리 한번")
+    void findDtoByTransactionId_projection() {
+        //given
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        //when
+        statistics.clear();
+        TransactionDto fromEntity = TransactionDto.fromEntity(
+                transactionRepository.findByTransactionId(transactionId).get());
+        long entityStatements = statistics.getPrepareStatementCount();
+        long entityLoads = statistics.getEntityLoadCount();
+
+        statistics.clear();
+        TransactionDto projected = transactionRepository.findDtoByTransactionId(transactionId).get();
+        long projectionStatements = statistics.getPrepareStatementCount();
+        long projectionLoads = statistics.getEntityLoadCount();
+        statistics.setStatisticsEnabled(false);
+
+        //then
+        assertEquals(fromEntity.getAccountNumber(), projected.getAccountNumber());
+        assertEquals(fromEntity.getAmount(), projected.getAmount());
+        assertEquals(fromEntity.getTransactedAt(), projected.getTransactedAt());
+        assertEquals(1, entityStatements);
+        assertEquals(2, entityLoads);
+        assertEquals(1, projectionStatements);
+        assertEquals(0, projectionLoads);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* 같은 사용자의 계좌 생성을 동시에 실행
+* count 조회 후 저장하는 방식이면 여러 요청이 9개를 보고 통과해 10개를 넘긴다.
+* */
+@SpringBootTest
+class AccountCountConcurrencyTest {
+    private static final long USER_ID = 200L;
+    private static final int THREAD_COUNT = 16;
+    private static final int REQUEST_COUNT = 100;
+
+    @Autowired
+    private AccountService accountService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    @DisplayName("100개를 동시에 생성해도 사용자당 계좌는 10개까지만 생성됨")
+    void concurrentCreate_limitHolds() throws Exception {
+        //given
+        new JdbcTemplate(dataSource).update("merge into account_user(id, name, account_count,"
+                + " created_at, updated_at) key(id) values(?, 'Crowd', 0, now(), now())", USER_ID);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        ConcurrentLinkedQueue<ErrorCode> failures = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            futures.add(executorService.submit(() -> {
+                startLatch.await();
+                try {
+                    accountService.createAccount(USER_ID, 1000L);
+                    succeeded.incrementAndGet();
+                } catch (AccountException e) {
+                    failures.add(e.getErrorCode());
+                }
+                return null;
+            }));
+        }
+
+        //when
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        //then
+        assertEquals(10, succeeded.get());
+        assertEquals(REQUEST_COUNT - 10, failures.size());
+        assertTrue(failures.stream().allMatch(code -> code == ErrorCode.MAX_ACCOUNT_PER_USER_10));
+        assertEquals(10, accountRepository.findDtosByAccountUserId(USER_ID).size());
+        assertEquals(10, accountuserRepository.findById(USER_ID).get().getAccountCount());
+    }
+}
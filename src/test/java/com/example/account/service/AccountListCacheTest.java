@@ -0,0 +1,113 @@
+package com.example.account.service;
+
+import com.example.account.dto.AccountDto;
+import com.example.account.event.AccountChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.Codec;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountListCacheTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RTopic invalidationTopic;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RecentWriteTracker recentWriteTracker = new RecentWriteTracker(Duration.ofMinutes(1));
+
+    private AccountListCache accountListCache;
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        given(redissonClient.getTopic(anyString(), any(Codec.class)))
+                .willReturn(invalidationTopic);
+        accountListCache = new AccountListCache(redissonClient, meterRegistry, recentWriteTracker,
+                100L, Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("같은 사용자 재조회는 캐시에서")
+    void hit() {
+        //given
+        accountListCache.get(1L, this::load);
+
+        //when
+        List<AccountDto> accounts = accountListCache.get(1L, this::load);
+
+        //then
+        assertEquals(1, accounts.size());
+        assertEquals(1, loadCount.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", "accountList").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("commit 이후 자기 노드 캐시를 지우고 다른 노드에 알림")
+    void invalidateOnCommit() {
+        //given
+        accountListCache.get(1L, this::load);
+
+        //when
+        accountListCache.onAccountChanged(new AccountChangedEvent(1L));
+        accountListCache.get(1L, this::load);
+
+        //then
+        verify(invalidationTopic).publish(startsWith("1:"));
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    @DisplayName("다른 노드에서 온 무효화 메시지")
+    @SuppressWarnings("unchecked")
+    void invalidateFromTopic() {
+        //given
+        ArgumentCaptor<MessageListener<String>> captor = ArgumentCaptor.forClass(MessageListener.class);
+        accountListCache.start();
+        verify(invalidationTopic).addListener(eq(String.class), captor.capture());
+        accountListCache.get(1L, this::load);
+
+        assertFalse(recentWriteTracker.isRecentlyWritten(1L));
+
+        //when
+        captor.getValue().onMessage("ACINV:accountList", "1:" + (System.currentTimeMillis() - 5L));
+        accountListCache.get(1L, this::load);
+
+        //then
+        assertEquals(2, loadCount.get());
+        assertTrue(recentWriteTracker.isRecentlyWritten(1L));
+        assertEquals(1L, meterRegistry.get("account.list.cache.invalidation.lag").timer().count());
+    }
+
+    private List<AccountDto> load(Long userId) {
+        loadCount.incrementAndGet();
+        return Collections.singletonList(AccountDto.builder()
+                .userId(userId)
+                .accountNumber("1000000000")
+                .balance(1000L)
+                .build());
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountNumberGeneratorTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private RAtomicLong sequence;
+
+    @InjectMocks
+    private AccountNumberGenerator accountNumberGenerator;
+
+    private final AtomicLong redisValue = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(accountNumberGenerator, "blockSize", 10L);
+        ReflectionTestUtils.setField(accountNumberGenerator, "maxNodes", 4L);
+        given(redissonClient.getAtomicLong(anyString())).willReturn(sequence);
+        given(sequence.addAndGet(anyLong()))
+                .willAnswer(invocation -> redisValue.addAndGet(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("block 단위로만 Redis 조회")
+    void reserveByBlock() {
+        //given
+        given(sequence.isExists()).willReturn(true);
+
+        //when
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            accountNumbers.add(accountNumberGenerator.nextAccountNumber());
+        }
+
+        //then
+        assertEquals("1000000000", accountNumbers.get(0));
+        assertEquals("1000000024", accountNumbers.get(24));
+        verify(sequence, times(3)).addAndGet(10L);
+    }
+
+    @Test
+    @DisplayName("Redis에 값이 없으면 기존 마지막 계좌번호 다음 + 노드별 block 만큼 건너뛰고")
+    void seedFromLastAccount() {
+        //given
+        given(sequence.isExists()).willReturn(false);
+        given(accountRepository.findFirstByOrderByAccountNumberDesc())
+                .willReturn(Optional.of(Account.builder()
+                        .accountNumber("1000000012")
+                        .build()));
+        given(sequence.compareAndSet(0L, 53L))
+                .willAnswer(invocation -> redisValue.compareAndSet(0L, 53L));
+
+        //when
+        String accountNumber = accountNumberGenerator.nextAccountNumber();
+
+        //then
+        assertEquals("1000000053", accountNumber);
+    }
+
+    @Test
+    @DisplayName("Redis 값이 사라져도 다른 노드가 들고 있는 block과 겹치지 않음")
+    void reseedAfterRedisLoss() {
+        //given
+        //다른 노드가 1000000030~1000000039 block을 받아 1000000030까지 발급한 뒤 Redis 값이 사라짐
+        long otherNodeLast = 1_000_000_039L;
+        given(sequence.isExists()).willReturn(false);
+        given(accountRepository.findFirstByOrderByAccountNumberDesc())
+                .willReturn(Optional.of(Account.builder()
+                        .accountNumber("1000000030")
+                        .build()));
+        given(sequence.compareAndSet(0L, 71L))
+                .willAnswer(invocation -> redisValue.compareAndSet(0L, 71L));
+
+        //when
+        String accountNumber = accountNumberGenerator.nextAccountNumber();
+
+        //then
+        assertTrue(Long.parseLong(accountNumber) > otherNodeLast);
+        assertEquals("1000000071", accountNumber);
+    }
+
+    @Test
+    @DisplayName("int 범위를 넘는 계좌번호도 발급")
+    void overIntRange() {
+        //given
+        given(sequence.isExists()).willReturn(true);
+        redisValue.set(2_000_000_000L);
+
+        //when
+        String accountNumber = accountNumberGenerator.nextAccountNumber();
+
+        //then
+        assertEquals("3000000000", accountNumber);
+    }
+
+    @Test
+    @DisplayName("10자리 계좌번호 소진")
+    void exhausted() {
+        //given
+        given(sequence.isExists()).willReturn(true);
+        redisValue.set(9_000_000_000L);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountNumberGenerator.nextAccountNumber());
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_NUMBER_EXHAUSTED, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("동시 발급시 중복 없음")
+    void noDuplicateUnderConcurrency() throws Exception {
+        //given
+        given(sequence.isExists()).willReturn(true);
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        Set<String> accountNumbers = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 16; i++) {
+            futures.add(executorService.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    accountNumbers.add(accountNumberGenerator.nextAccountNumber());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        //then
+        assertEquals(16 * 500, accountNumbers.size());
+    }
+}
@@ -3,6 +3,7 @@ package com.example.account.service;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountDto;
+import com.example.account.event.AccountChangedEvent;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountuserRepository;
 import com.example.account.type.AccountStatus;
@@ -12,17 +13,23 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -33,6 +40,21 @@ class AccountServiceTest {
 
     @Mock
     private AccountuserRepository accountuserRepository;
+
+    @Mock
+    private AccountNumberGenerator accountNumberGenerator;
+
+    @Mock
+    private AccountListCache accountListCache;
+
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private BalanceLedgerService balanceLedgerService;
+    @Mock
+    private RecentWriteTracker recentWriteTracker;
+    @Mock
+    private HotBalanceLedger hotBalanceLedger;
     @InjectMocks
     private AccountService accountService;
 
@@ -44,14 +66,13 @@ class AccountServiceTest {
                 .build();
 
         pobi.setId(12L);
+        given(accountuserRepository.increaseAccountCount(anyLong(), anyInt()))
+                .willReturn(1);
         given(accountuserRepository.findById(anyLong()))
                 .willReturn(Optional.of(pobi));
 
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.of(Account.builder()
-                        .accountNumber("1000000012")
-                        .accountUser(pobi)
-                        .build()));
+        given(accountNumberGenerator.nextAccountNumber())
+                .willReturn("1000000013");
         given(accountRepository.save(any()))
                 .willReturn(Account.builder()
                         .accountUser(pobi)
@@ -67,6 +88,7 @@ class AccountServiceTest {
         verify(accountRepository,times((1))).save(captor.capture());
         assertEquals(12L,accountDto.getUserId());
         assertEquals("1000000013",accountDto.getAccountNumber());
+        assertEquals("1000000013",captor.getValue().getAccountNumber());
     }
 
     @Test
@@ -76,11 +98,13 @@ class AccountServiceTest {
                 .name("Pobi")
                 .build();
         pobi.setId(12L);
+        given(accountuserRepository.increaseAccountCount(anyLong(), anyInt()))
+                .willReturn(1);
         given(accountuserRepository.findById(anyLong()))
                 .willReturn(Optional.of(pobi));
 
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.empty());
+        given(accountNumberGenerator.nextAccountNumber())
+                .willReturn("1000000000");
         given(accountRepository.save(any()))
                 .willReturn(Account.builder()
                         .accountUser(pobi)
@@ -123,8 +147,8 @@ class AccountServiceTest {
         pobi.setId(15L);
         given(accountuserRepository.findById(anyLong()))
                 .willReturn(Optional.of(pobi));
-        given(accountRepository.countByAccountUser(any()))
-                .willReturn(10);
+        given(accountuserRepository.increaseAccountCount(anyLong(), anyInt()))
+                .willReturn(0);
 
         //when
         AccountException exception=assertThrows(AccountException.class,
@@ -160,6 +184,7 @@ class AccountServiceTest {
 
         //then
         verify(accountRepository,times(1)).save(captor.capture());
+        verify(accountuserRepository,times(1)).decreaseAccountCount(12L);
         assertEquals(AccountStatus.UNREGISTERED,captor.getValue().getAccountStatus());
     }
 
@@ -263,6 +288,62 @@ class AccountServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Redis 잔액 계좌는 Redis에서 해지(남은 기록 반영)한 뒤에 DB 계좌를 읽음")
+    void deleteHotAccount(){
+        //given
+        AccountUser pobi = AccountUser.builder()
+                .name("Pobi")
+                .build();
+
+        pobi.setId(12L);
+        given(accountuserRepository.findById(anyLong()))
+                .willReturn(Optional.of(pobi));
+
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(pobi)
+                        .accountNumber("1000000012")
+                        .balance(0L)
+                        .build()));
+        given(hotBalanceLedger.isHot("1000000012")).willReturn(true);
+
+        //when
+        AccountDto accountDto = accountService.deleteAccount(12L, "1000000012");
+
+        //then
+        InOrder inOrder = inOrder(hotBalanceLedger, accountRepository);
+        inOrder.verify(hotBalanceLedger).closeAccount(12L, "1000000012");
+        inOrder.verify(accountRepository).findByAccountNumber("1000000012");
+        verify(accountuserRepository,times(1)).decreaseAccountCount(12L);
+        assertEquals("1000000012", accountDto.getAccountNumber());
+    }
+
+    @Test
+    @DisplayName("Redis 잔액이 남아 있으면 해지 실패")
+    void deleteHotAccount_balanceLeft(){
+        //given
+        AccountUser pobi = AccountUser.builder()
+                .name("Pobi")
+                .build();
+
+        pobi.setId(12L);
+        given(accountuserRepository.findById(anyLong()))
+                .willReturn(Optional.of(pobi));
+
+        given(hotBalanceLedger.isHot("1000000012")).willReturn(true);
+        willThrow(new AccountException(ErrorCode.BALANCE_NOT_EMPTY))
+                .given(hotBalanceLedger).closeAccount(12L, "1000000012");
+
+        //when
+        AccountException exception=assertThrows(AccountException.class,
+                ()->accountService.deleteAccount(12L, "1000000012"));
+
+        //then
+        assertEquals(ErrorCode.BALANCE_NOT_EMPTY,exception.getErrorCode());
+        verify(accountRepository,times(0)).findByAccountNumber(anyString());
+    }
+
     @Test
     @DisplayName("계좌가 이미 해제됨")
     void delteFail_AlreayUnregistered(){
@@ -314,10 +395,11 @@ class AccountServiceTest {
                         .accountUser(pobi)
                         .build()
         );
-        given(accountuserRepository.findById(anyLong()))
-                .willReturn(Optional.of(pobi));
-        given(accountRepository.findByAccountUser(any()))
-                .willReturn(accounts);
+        givenAccountListCacheLoads();
+        given(accountuserRepository.existsById(anyLong()))
+                .willReturn(true);
+        given(accountRepository.findDtosByAccountUserId(anyLong()))
+                .willReturn(accounts.stream().map(AccountDto::fromEntity).collect(Collectors.toList()));
         //when
         List<AccountDto> accountDtos = accountService.getAccountsByUserId(1L);
         //then
@@ -329,8 +411,9 @@ class AccountServiceTest {
     @Test
     void failedToGetAccounts(){
         //given
-        given(accountuserRepository.findById(anyLong()))
-                .willReturn(Optional.empty());
+        givenAccountListCacheLoads();
+        given(accountuserRepository.existsById(anyLong()))
+                .willReturn(false);
         //when
         AccountException exception=assertThrows(AccountException.class,
                 ()->accountService.getAccountsByUserId(1L));
@@ -338,5 +421,37 @@ class AccountServiceTest {
         assertEquals(ErrorCode.USER_NOT_FOUND,exception.getErrorCode());
     }
 
+    @Test
+    @DisplayName("계좌 생성시 계좌목록 캐시 무효화 이벤트 발행")
+    void createAccount_publishAccountChanged(){
+        //given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        given(accountuserRepository.increaseAccountCount(anyLong(), anyInt()))
+                .willReturn(1);
+        given(accountuserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountNumberGenerator.nextAccountNumber())
+                .willReturn("1000000013");
+        given(accountRepository.save(any()))
+                .willReturn(Account.builder()
+                        .accountUser(user)
+                        .accountNumber("1000000013").build());
+        ArgumentCaptor<AccountChangedEvent> captor = ArgumentCaptor.forClass(AccountChangedEvent.class);
+
+        //when
+        accountService.createAccount(12L, 1000L);
 
+        //then
+        verify(applicationEventPublisher, times(1)).publishEvent(captor.capture());
+        assertEquals(12L, captor.getValue().getUserId());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenAccountListCacheLoads() {
+        given(accountListCache.get(anyLong(), any()))
+                .willAnswer(invocation -> invocation.<Function<Long, List<AccountDto>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountShardExecutorTest {
+
+    private final AccountShardExecutor accountShardExecutor = new AccountShardExecutor(4, 1000);
+
+    @AfterEach
+    void tearDown() {
+        accountShardExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("같은 계좌는 같은 스레드에서 순서대로 실행")
+    void sameAccountSameThread() {
+        //given
+        List<Integer> executed = new ArrayList<>();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 100; i++) {
+            int order = i;
+            futures.add(accountShardExecutor.submit("1000000000", () -> {
+                executed.add(order);
+                return Thread.currentThread().getName();
+            }));
+        }
+
+        //then
+        String threadName = futures.get(0).join();
+        for (CompletableFuture<String> future : futures) {
+            assertEquals(threadName, future.join());
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, executed.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("shard 스레드 안에서 같은 shard로 넘기면 바로 실행")
+    void nestedSubmitRunInline() {
+        //given
+        //when
+        String result = accountShardExecutor.submit("1000000000",
+                () -> accountShardExecutor.submit("1000000000", () -> "nested").join()).join();
+
+        //then
+        assertEquals("nested", result);
+    }
+
+    @Test
+    void completeExceptionally() {
+        //given
+        //when
+        CompletableFuture<Object> future = accountShardExecutor.submit("1000000000", () -> {
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        });
+
+        //then
+        Throwable cause = assertThrows(Exception.class, future::join).getCause();
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, ((AccountException) cause).getErrorCode());
+    }
+
+    @Test
+    @DisplayName("shard 대기열이 가득 차면 lock 실패와 같은 에러")
+    void failWhenQueueFull() throws InterruptedException {
+        //given
+        AccountShardExecutor smallExecutor = new AccountShardExecutor(1, 1);
+        CountDownLatch latch = new CountDownLatch(1);
+        smallExecutor.submit("1000000000", () -> {
+            latch.await();
+            return null;
+        });
+        smallExecutor.submit("1000000000", () -> null);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> smallExecutor.submit("1000000000", () -> null));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        latch.countDown();
+        smallExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("shard에서 제한시간 안에 시작되지 못한 작업은 실행하지 않음")
+    void callTimeoutBeforeStart() throws Throwable {
+        //given
+        AccountShardExecutor smallExecutor = new AccountShardExecutor(1, 10);
+        CountDownLatch latch = new CountDownLatch(1);
+        smallExecutor.submit("1000000000", () -> {
+            latch.await();
+            return null;
+        });
+        AtomicBoolean executed = new AtomicBoolean();
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> smallExecutor.call("1000000000", () -> {
+                    executed.set(true);
+                    return null;
+                }, 50L));
+        latch.countDown();
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals("done", smallExecutor.call("1000000000", () -> "done", 1000L));
+        assertFalse(executed.get());
+        smallExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("이미 시작된 작업은 제한시간이 지나도 끝날때까지 기다림")
+    void callWaitStartedTask() throws Throwable {
+        //given
+        //when
+        String result = accountShardExecutor.call("1000000000", () -> {
+            Thread.sleep(100L);
+            return "slow";
+        }, 10L);
+
+        //then
+        assertEquals("slow", result);
+    }
+}
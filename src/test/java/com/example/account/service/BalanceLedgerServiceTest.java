@@ -0,0 +1,248 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.BalanceSnapshot;
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.repository.BalanceSnapshotRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class BalanceLedgerServiceTest {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    @Autowired
+    private RedissonClient redissonClient;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("개설 snapshot + 성공 거래로 시점별 잔액 계산")
+    void getBalanceAsOf() {
+        //given
+        LocalDateTime openedAt = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        Account account = openAccount(openedAt);
+
+        //when
+        //then
+        assertEquals(1000L, balanceLedgerService.getBalanceAsOf(account.getAccountNumber(), openedAt));
+        assertEquals(900L, balanceLedgerService.getBalanceAsOf(
+                account.getAccountNumber(), openedAt.plusMinutes(1)));
+        assertEquals(950L, balanceLedgerService.getBalanceAsOf(
+                account.getAccountNumber(), openedAt.plusMinutes(3)));
+        assertEquals(1150L, balanceLedgerService.getBalanceAsOf(
+                account.getAccountNumber(), LocalDateTime.now()));
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceLedgerService.getBalanceAsOf(
+                        account.getAccountNumber(), openedAt.minusSeconds(1)));
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("주기 snapshot은 safety-lag 이전 거래를 접고, 새 거래가 없으면 만들지 않음")
+    void takeSnapshots() {
+        //given
+        LocalDateTime openedAt = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        Account account = openAccount(openedAt);
+
+        //when
+        balanceLedgerService.takeSnapshots();
+        BalanceSnapshot first = balanceSnapshotRepository
+                .findFirstByAccount_IdOrderBySnapshotAtDesc(account.getId()).get();
+        balanceLedgerService.takeSnapshots();
+        BalanceSnapshot second = balanceSnapshotRepository
+                .findFirstByAccount_IdOrderBySnapshotAtDesc(account.getId()).get();
+
+        //then
+        assertEquals(1150L, first.getBalance());
+        assertTrue(first.getSnapshotAt().isAfter(openedAt.plusMinutes(4)));
+        assertEquals(first.getId(), second.getId());
+        assertEquals(950L, balanceLedgerService.getBalanceAsOf(
+                account.getAccountNumber(), openedAt.plusMinutes(3)));
+        assertEquals(1150L, balanceLedgerService.getBalanceAsOf(
+                account.getAccountNumber(), LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("snapshot이 없는 기존 계좌는 현재 잔액에서 이후 거래를 되돌림")
+    void getBalanceAsOf_withoutSnapshot() {
+        //given
+        LocalDateTime openedAt = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        Account account = saveAccount(1150L, openedAt);
+        saveTransactions(account, openedAt);
+
+        //when
+        //then
+        assertEquals(950L, balanceLedgerService.getBalanceAsOf(
+                account.getAccountNumber(), openedAt.plusMinutes(3)));
+        assertEquals(1150L, balanceLedgerService.getBalanceAsOf(
+                account.getAccountNumber(), LocalDateTime.now()));
+    }
+
+    @Test
+    @DisplayName("Account.balance와 원장 잔액 대사")
+    void reconcile() {
+        //given
+        LocalDateTime openedAt = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        Account account = openAccount(openedAt);
+        Account legacy = saveAccount(777L, openedAt);
+        Account drifted = openAccount(openedAt);
+        drifted.setBalance(5L);
+
+        //when
+        //then
+        assertTrue(balanceLedgerService.reconcile(account));
+        //snapshot이 없는 기존 계좌는 비교하지 않음
+        assertTrue(balanceLedgerService.reconcile(legacy));
+        assertFalse(balanceLedgerService.reconcile(drifted));
+    }
+
+    @Test
+    @DisplayName("다른 노드가 snapshot 작업중이면 건너뜀")
+    void takeSnapshots_lockedByOtherNode() throws Exception {
+        //given
+        Account account = openAccount(LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS));
+        RLock lock = redissonClient.getLock("ACLEDGER:snapshot");
+        CompletableFuture.runAsync(lock::lock).get();
+
+        //when
+        int taken;
+        try {
+            taken = balanceLedgerService.takeSnapshots();
+        } finally {
+            lock.forceUnlock();
+        }
+
+        //then
+        assertEquals(0, taken);
+        assertEquals(account.getRegiteredAt(), balanceSnapshotRepository
+                .findFirstByAccount_IdOrderBySnapshotAtDesc(account.getId()).get().getSnapshotAt());
+    }
+
+    @Test
+    @DisplayName("safety-lag보다 오래 걸린 실시간 거래는 거절")
+    void rejectLate() {
+        //given
+        Account account = openAccount(LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS));
+        Transaction late = newTransaction(account, TransactionType.USE, TransactionResultType.S, 10L,
+                LocalDateTime.now().minusMinutes(6));
+        Transaction failed = newTransaction(account, TransactionType.USE, TransactionResultType.F, 10L,
+                LocalDateTime.now().minusMinutes(6));
+        Transaction current = newTransaction(account, TransactionType.USE, TransactionResultType.S, 10L,
+                LocalDateTime.now());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceLedgerService.rejectLate(List.of(current, late)));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertDoesNotThrow(() -> balanceLedgerService.rejectLate(List.of(current, failed)));
+    }
+
+    @Test
+    @DisplayName("snapshot보다 이전 거래가 늦게 들어오면 그 이후 snapshot을 지우고 다시 만듦")
+    void invalidateLateSnapshots() {
+        //given
+        LocalDateTime openedAt = LocalDateTime.now().minusHours(2).truncatedTo(ChronoUnit.SECONDS);
+        Account account = openAccount(openedAt);
+        balanceLedgerService.takeSnapshots();
+        Transaction late = transactionRepository.save(newTransaction(account, TransactionType.USE,
+                TransactionResultType.S, 100L, openedAt.plusMinutes(5)));
+
+        //when
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                balanceLedgerService.invalidateLateSnapshots(List.of(late)));
+
+        //then
+        BalanceSnapshot remaining = balanceSnapshotRepository
+                .findFirstByAccount_IdOrderBySnapshotAtDesc(account.getId()).get();
+        assertEquals(openedAt, remaining.getSnapshotAt());
+        assertEquals(1050L, balanceLedgerService.getBalanceAsOf(
+                account.getAccountNumber(), LocalDateTime.now()));
+
+        balanceLedgerService.takeSnapshots();
+        BalanceSnapshot rebuilt = balanceSnapshotRepository
+                .findFirstByAccount_IdOrderBySnapshotAtDesc(account.getId()).get();
+        assertEquals(1050L, rebuilt.getBalance());
+    }
+
+    private Account saveAccount(Long balance, LocalDateTime registeredAt) {
+        AccountUser user = accountuserRepository.findById(1L).get();
+        return accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(String.valueOf(3_000_000_000L + SEQUENCE.incrementAndGet()))
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(balance)
+                .regiteredAt(registeredAt)
+                .build());
+    }
+
+    //1000원으로 개설하고 거래 후 잔액 1150
+    private Account openAccount(LocalDateTime openedAt) {
+        Account account = saveAccount(1000L, openedAt);
+        balanceLedgerService.openLedger(account);
+        saveTransactions(account, openedAt);
+        account.setBalance(1150L);
+        return accountRepository.save(account);
+    }
+
+    //+1m USE 100, +2m CANCEL 50, +3m USE 30 실패, +4m TRANSFER_IN 200
+    private void saveTransactions(Account account, LocalDateTime openedAt) {
+        transactionRepository.saveAll(List.of(
+                newTransaction(account, TransactionType.USE, TransactionResultType.S, 100L,
+                        openedAt.plusMinutes(1)),
+                newTransaction(account, TransactionType.CANCEL, TransactionResultType.S, 50L,
+                        openedAt.plusMinutes(2)),
+                newTransaction(account, TransactionType.USE, TransactionResultType.F, 30L,
+                        openedAt.plusMinutes(3)),
+                newTransaction(account, TransactionType.TRANSFER_IN, TransactionResultType.S, 200L,
+                        openedAt.plusMinutes(4))));
+    }
+
+    private Transaction newTransaction(Account account, TransactionType transactionType,
+                                       TransactionResultType transactionResultType, Long amount,
+                                       LocalDateTime transactedAt) {
+        return Transaction.builder()
+                .account(account)
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .amount(amount)
+                .transactionId(String.format("%019d", 10_000L * SEQUENCE.incrementAndGet()))
+                .transactedAt(transactedAt)
+                .build();
+    }
+}
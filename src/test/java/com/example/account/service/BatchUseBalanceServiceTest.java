@@ -0,0 +1,276 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.UseBalance;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class BatchUseBalanceServiceTest {
+    private static final AtomicInteger ACCOUNT_SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private BatchUseBalanceService batchUseBalanceService;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionService transactionService;
+    @Autowired
+    private LockService lockService;
+
+    private String firstAccountNumber;
+    private String secondAccountNumber;
+
+    @BeforeEach
+    void setUp() {
+        firstAccountNumber = saveAccount(1000L);
+        secondAccountNumber = saveAccount(500L);
+    }
+
+    @Test
+    @DisplayName("계좌별로 묶어서 처리하고 결과는 요청 순서대로")
+    void useBalance_groupByAccount() {
+        //given
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(1L, firstAccountNumber, 300L),
+                new UseBalance.Request(1L, secondAccountNumber, 200L),
+                new UseBalance.Request(1L, firstAccountNumber, 400L),
+                new UseBalance.Request(1L, secondAccountNumber, 400L));
+
+        //when
+        List<UseBalance.BatchResponse> responses = batchUseBalanceService.useBalance(requests);
+
+        //then
+        assertEquals(4, responses.size());
+        assertEquals(TransactionResultType.S, responses.get(0).getTransactionResultType());
+        assertEquals(TransactionResultType.S, responses.get(1).getTransactionResultType());
+        assertEquals(TransactionResultType.S, responses.get(2).getTransactionResultType());
+        assertEquals(TransactionResultType.F, responses.get(3).getTransactionResultType());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, responses.get(3).getErrorCode());
+        assertEquals(secondAccountNumber, responses.get(3).getAccountNumber());
+        assertNotNull(responses.get(3).getTransactionId());
+
+        assertEquals(300L, accountRepository.findByAccountNumber(firstAccountNumber).get().getBalance());
+        assertEquals(300L, accountRepository.findByAccountNumber(secondAccountNumber).get().getBalance());
+        assertEquals(4, transactionRepository.findTransactionIds(responses.stream()
+                .map(UseBalance.BatchResponse::getTransactionId)
+                .collect(Collectors.toList())).size());
+    }
+
+    @Test
+    @DisplayName("사용자 불일치, 없는 계좌는 해당 항목만 실패")
+    void useBalance_partialFailure() {
+        //given
+        List<UseBalance.Request> requests = List.of(
+                new UseBalance.Request(2L, firstAccountNumber, 100L),
+                new UseBalance.Request(1L, "0999999999", 100L),
+                new UseBalance.Request(1L, firstAccountNumber, 100L));
+
+        //when
+        List<UseBalance.BatchResponse> responses = batchUseBalanceService.useBalance(requests);
+
+        //then
+        assertEquals(ErrorCode.USER_ACCOUNT_UNMACH, responses.get(0).getErrorCode());
+        assertNotNull(responses.get(0).getTransactionId());
+        assertEquals(ErrorCode.NOT_ACCOUNT_EXIST, responses.get(1).getErrorCode());
+        assertNull(responses.get(1).getTransactionId());
+        assertEquals(TransactionResultType.S, responses.get(2).getTransactionResultType());
+        assertEquals(900L, accountRepository.findByAccountNumber(firstAccountNumber).get().getBalance());
+    }
+
+    @Test
+    @DisplayName("다른 요청이 lock을 잡고 있는 계좌만 실패하고 나머지 계좌는 처리")
+    void useBalance_lockFailedAccountOnly() throws Exception {
+        //given
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            lockService.lock(secondAccountNumber, 1000L, 15000L);
+            try {
+                locked.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lockService.unlock(secondAccountNumber);
+            }
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        //when
+        List<UseBalance.BatchResponse> responses;
+        try {
+            responses = batchUseBalanceService.useBalance(List.of(
+                    new UseBalance.Request(1L, firstAccountNumber, 100L),
+                    new UseBalance.Request(1L, secondAccountNumber, 100L)));
+        } finally {
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+        }
+
+        //then
+        assertEquals(TransactionResultType.S, responses.get(0).getTransactionResultType());
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, responses.get(1).getErrorCode());
+        assertEquals(900L, accountRepository.findByAccountNumber(firstAccountNumber).get().getBalance());
+        assertEquals(500L, accountRepository.findByAccountNumber(secondAccountNumber).get().getBalance());
+    }
+
+    @Test
+    @DisplayName("chunk 처리가 실패하면 계좌별로 다시 처리해서 실패한 계좌만 실패")
+    void useBalance_isolateFailurePerAccount() {
+        //given
+        Object target = AopTestUtils.getUltimateTargetObject(batchUseBalanceService);
+        TransactionService failing = mock(TransactionService.class);
+        failChunkContaining(failing, secondAccountNumber);
+        ReflectionTestUtils.setField(target, "transactionService", failing);
+
+        //when
+        List<UseBalance.BatchResponse> responses;
+        try {
+            responses = batchUseBalanceService.useBalance(List.of(
+                    new UseBalance.Request(1L, firstAccountNumber, 100L),
+                    new UseBalance.Request(1L, secondAccountNumber, 100L),
+                    new UseBalance.Request(1L, firstAccountNumber, 200L)));
+        } finally {
+            ReflectionTestUtils.setField(target, "transactionService", transactionService);
+        }
+
+        //then
+        assertEquals(TransactionResultType.S, responses.get(0).getTransactionResultType());
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, responses.get(1).getErrorCode());
+        assertNotNull(responses.get(1).getTransactionId());
+        assertEquals(TransactionResultType.S, responses.get(2).getTransactionResultType());
+        assertEquals(700L, accountRepository.findByAccountNumber(firstAccountNumber).get().getBalance());
+        assertEquals(500L, accountRepository.findByAccountNumber(secondAccountNumber).get().getBalance());
+        //chunk 한번 + 계좌별 2번
+        verify(failing, times(3)).useBalanceChunk(anyList());
+    }
+
+    @Test
+    @DisplayName("먼저 잡는 lock일수록 뒤에 잡을 계좌 수만큼 lease를 길게 잡음")
+    void useBalance_leaseSizedByChunk() {
+        //given
+        Object target = AopTestUtils.getUltimateTargetObject(batchUseBalanceService);
+        Object realHandler = ReflectionTestUtils.getField(target, "lockHandler");
+        AccountLockHandler lockHandler = mock(AccountLockHandler.class);
+        when(lockHandler.lockOrder()).thenReturn(Comparator.naturalOrder());
+        ReflectionTestUtils.setField(target, "lockHandler", lockHandler);
+        String thirdAccountNumber = saveAccount(100L);
+
+        //when
+        try {
+            batchUseBalanceService.useBalance(List.of(
+                    new UseBalance.Request(1L, thirdAccountNumber, 10L),
+                    new UseBalance.Request(1L, firstAccountNumber, 10L),
+                    new UseBalance.Request(1L, secondAccountNumber, 10L)));
+        } finally {
+            ReflectionTestUtils.setField(target, "lockHandler", realHandler);
+        }
+
+        //then
+        ArgumentCaptor<String> accountCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Long> leaseCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(lockHandler, times(3)).lock(accountCaptor.capture(), eq(1000L), leaseCaptor.capture());
+        assertEquals(List.of(firstAccountNumber, secondAccountNumber, thirdAccountNumber),
+                accountCaptor.getAllValues());
+        assertEquals(List.of(17000L, 16000L, 15000L), leaseCaptor.getAllValues());
+        verify(lockHandler).unlock(firstAccountNumber);
+        verify(lockHandler).unlock(secondAccountNumber);
+        verify(lockHandler).unlock(thirdAccountNumber);
+    }
+
+    @Test
+    @DisplayName("max-locked-accounts개씩 묶어 lock, 처리, unlock")
+    void useBalance_lockGroupCapped() {
+        //given
+        Object target = AopTestUtils.getUltimateTargetObject(batchUseBalanceService);
+        Object realHandler = ReflectionTestUtils.getField(target, "lockHandler");
+        Object realMaxLockedAccounts = ReflectionTestUtils.getField(target, "maxLockedAccounts");
+        AccountLockHandler lockHandler = mock(AccountLockHandler.class);
+        when(lockHandler.lockOrder()).thenReturn(Comparator.naturalOrder());
+        ReflectionTestUtils.setField(target, "lockHandler", lockHandler);
+        ReflectionTestUtils.setField(target, "maxLockedAccounts", 2);
+        String thirdAccountNumber = saveAccount(100L);
+
+        //when
+        List<UseBalance.BatchResponse> responses;
+        try {
+            responses = batchUseBalanceService.useBalance(List.of(
+                    new UseBalance.Request(1L, thirdAccountNumber, 10L),
+                    new UseBalance.Request(1L, firstAccountNumber, 10L),
+                    new UseBalance.Request(1L, secondAccountNumber, 10L)));
+        } finally {
+            ReflectionTestUtils.setField(target, "lockHandler", realHandler);
+            ReflectionTestUtils.setField(target, "maxLockedAccounts", realMaxLockedAccounts);
+        }
+
+        //then
+        InOrder inOrder = inOrder(lockHandler);
+        inOrder.verify(lockHandler).lock(firstAccountNumber, 1000L, 16000L);
+        inOrder.verify(lockHandler).lock(secondAccountNumber, 1000L, 15000L);
+        inOrder.verify(lockHandler).unlock(secondAccountNumber);
+        inOrder.verify(lockHandler).unlock(firstAccountNumber);
+        inOrder.verify(lockHandler).lock(thirdAccountNumber, 1000L, 15000L);
+        inOrder.verify(lockHandler).unlock(thirdAccountNumber);
+        assertTrue(responses.stream().allMatch(response ->
+                response.getTransactionResultType() == TransactionResultType.S));
+    }
+
+    //accountNumber 요청이 섞인 chunk는 실패, 나머지는 실제 서비스로 처리
+    private void failChunkContaining(TransactionService failing, String accountNumber) {
+        when(failing.useBalanceChunk(anyList())).thenAnswer(invocation -> {
+            List<UseBalance.Request> chunk = invocation.getArgument(0);
+            if (chunk.stream().anyMatch(request -> request.getAccountNumber().equals(accountNumber))) {
+                throw new OptimisticLockingFailureException("conflict");
+            }
+            return transactionService.useBalanceChunk(chunk);
+        });
+        when(failing.saveFailedUseTransactions(anyList(), anyList())).thenAnswer(invocation ->
+                transactionService.saveFailedUseTransactions(invocation.getArgument(0), invocation.getArgument(1)));
+    }
+
+    private String saveAccount(Long balance) {
+        String accountNumber = String.valueOf(7_000_000_000L + ACCOUNT_SEQUENCE.incrementAndGet());
+        AccountUser user = accountuserRepository.findById(1L).get();
+        accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(balance)
+                .regiteredAt(LocalDateTime.now())
+                .build());
+        return accountNumber;
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/*
+* 테스트용 embedded Redis(LocalRedisConfig)에서 실제 Lua script로 확인
+* */
+@SpringBootTest
+class HotBalanceLedgerTest {
+    private static final AtomicInteger ACCOUNT_SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private RedissonClient redissonClient;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+    @Autowired
+    private BalanceLedgerService balanceLedgerService;
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @TempDir
+    Path journalDir;
+
+    private String accountNumber;
+    private HotBalanceLedger hotBalanceLedger;
+
+    @BeforeEach
+    void setUp() {
+        redissonClient.getKeys().delete("ACLEDGER:queue", "ACLEDGER:processing", "ACLEDGER:pending");
+        accountNumber = String.valueOf(8_000_000_000L + ACCOUNT_SEQUENCE.incrementAndGet());
+        AccountUser user = accountuserRepository.findById(2L).get();
+        accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .regiteredAt(LocalDateTime.now())
+                .build());
+        hotBalanceLedger = newLedger();
+    }
+
+    @Test
+    @DisplayName("Redis에서 차감하고 writer가 DB에 반영")
+    void useBalanceAndFlush() {
+        //given
+        TransactionDto first = hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+        TransactionDto second = hotBalanceLedger.useBalance(2L, accountNumber, 200L);
+
+        //when
+        long balanceBeforeFlush = getDbBalance();
+        int flushed = hotBalanceLedger.flush();
+
+        //then
+        assertEquals(900L, first.getBalanceSnapshot());
+        assertEquals(700L, second.getBalanceSnapshot());
+        assertEquals(1000L, balanceBeforeFlush);
+        assertEquals(2, flushed);
+        assertEquals(700L, getDbBalance());
+        assertEquals(2, countPersisted(first, second));
+    }
+
+    @Test
+    @DisplayName("잔액부족, 소유주 불일치는 기록을 남기지 않음")
+    void failWithoutEntry() {
+        //given
+        //when
+        AccountException exceed = assertThrows(AccountException.class,
+                () -> hotBalanceLedger.useBalance(2L, accountNumber, 1001L));
+        AccountException unmatch = assertThrows(AccountException.class,
+                () -> hotBalanceLedger.useBalance(1L, accountNumber, 100L));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exceed.getErrorCode());
+        assertEquals(ErrorCode.USER_ACCOUNT_UNMACH, unmatch.getErrorCode());
+        assertEquals(0, hotBalanceLedger.flush());
+    }
+
+    @Test
+    @DisplayName("동시 차감시 잔액 이상으로 빠지지 않음")
+    void concurrentUse() throws Exception {
+        //given
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<TransactionDto> succeeded = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 50; i++) {
+            futures.add(executorService.submit(() -> {
+                start.await();
+                try {
+                    succeeded.add(hotBalanceLedger.useBalance(2L, accountNumber, 100L));
+                } catch (AccountException e) {
+                    assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, e.getErrorCode());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+        hotBalanceLedger.flush();
+
+        //then
+        assertEquals(10, succeeded.size());
+        assertEquals(0L, getDbBalance());
+        assertEquals(10, countPersisted(succeeded.toArray(new TransactionDto[0])));
+    }
+
+    @Test
+    @DisplayName("processing으로 옮긴 뒤 DB 반영 전에 죽으면 다음 writer가 반영")
+    void recoverBeforeCommit() {
+        //given
+        TransactionDto transaction = hotBalanceLedger.useBalance(2L, accountNumber, 300L);
+        assertEquals(1, hotBalanceLedger.reserveBatch().size());
+
+        //when
+        int flushed = newLedger().flush();
+
+        //then
+        assertEquals(1, flushed);
+        assertEquals(700L, getDbBalance());
+        assertEquals(1, countPersisted(transaction));
+    }
+
+    @Test
+    @DisplayName("DB commit 이후 processing을 비우기 전에 죽어도 중복 저장 없음")
+    void recoverAfterCommit() {
+        //given
+        TransactionDto transaction = hotBalanceLedger.useBalance(2L, accountNumber, 300L);
+        hotBalanceLedger.persist(hotBalanceLedger.reserveBatch());
+
+        //when
+        int flushed = newLedger().flush();
+
+        //then
+        assertEquals(1, flushed);
+        assertEquals(0, hotBalanceLedger.flush());
+        assertEquals(700L, getDbBalance());
+        assertEquals(1, countPersisted(transaction));
+    }
+
+    @Test
+    @DisplayName("Redis 잔액이 사라지면 DB 잔액으로 다시 적재")
+    void reloadFromDb() {
+        //given
+        hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+        hotBalanceLedger.flush();
+        redissonClient.getKeys().delete("ACBAL:" + accountNumber);
+
+        //when
+        TransactionDto transaction = hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+
+        //then
+        assertEquals(800L, transaction.getBalanceSnapshot());
+    }
+
+    @Test
+    @DisplayName("DB에 반영되지 않은 기록이 있으면 먼저 반영한 뒤 DB 잔액으로 다시 적재")
+    void reloadAfterPendingFlushed() {
+        //given
+        hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+        redissonClient.getKeys().delete("ACBAL:" + accountNumber);
+
+        //when
+        TransactionDto transaction = hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+
+        //then
+        assertEquals(800L, transaction.getBalanceSnapshot());
+    }
+
+    @Test
+    @DisplayName("다른 writer가 반영중이라 기록을 비우지 못하면 다시 적재하지 않음")
+    void reloadRefusedWhilePending() throws Exception {
+        //given
+        hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+        redissonClient.getKeys().delete("ACBAL:" + accountNumber);
+        ExecutorService otherWriter = Executors.newSingleThreadExecutor();
+        otherWriter.submit(() -> redissonClient.getLock("ACLEDGER:writer").lock()).get();
+
+        //when
+        AccountException exception;
+        try {
+            exception = assertThrows(AccountException.class,
+                    () -> hotBalanceLedger.useBalance(2L, accountNumber, 100L));
+        } finally {
+            otherWriter.submit(() -> redissonClient.getLock("ACLEDGER:writer").unlock()).get();
+            otherWriter.shutdown();
+        }
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals(800L, hotBalanceLedger.useBalance(2L, accountNumber, 100L).getBalanceSnapshot());
+    }
+
+    @Test
+    @DisplayName("해지 : 남은 기록을 반영하고 Redis 잔액이 0이면 이후 차감을 거절")
+    void closeAccount() {
+        //given
+        hotBalanceLedger.useBalance(2L, accountNumber, 1000L);
+
+        //when
+        hotBalanceLedger.closeAccount(2L, accountNumber);
+        AccountException exception = assertThrows(AccountException.class,
+                () -> hotBalanceLedger.useBalance(2L, accountNumber, 100L));
+
+        //then
+        assertEquals(0L, getDbBalance());
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_UNREGISTERD, exception.getErrorCode());
+        assertEquals(0, hotBalanceLedger.flush());
+    }
+
+    @Test
+    @DisplayName("해지 : Redis 잔액이 남아 있으면 실패")
+    void closeAccount_balanceLeft() {
+        //given
+        hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> hotBalanceLedger.closeAccount(2L, accountNumber));
+
+        //then
+        assertEquals(ErrorCode.BALANCE_NOT_EMPTY, exception.getErrorCode());
+        assertEquals(800L, hotBalanceLedger.useBalance(2L, accountNumber, 100L).getBalanceSnapshot());
+    }
+
+    @Test
+    @DisplayName("해지 트랜잭션이 commit되면 Redis 잔액을 지우고, rollback되면 되돌림")
+    void closeAccount_afterCompletion() {
+        //given
+        hotBalanceLedger.useBalance(2L, accountNumber, 1000L);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            hotBalanceLedger.closeAccount(2L, accountNumber);
+            status.setRollbackOnly();
+        });
+        AccountException exceed = assertThrows(AccountException.class,
+                () -> hotBalanceLedger.useBalance(2L, accountNumber, 100L));
+        transactionTemplate.executeWithoutResult(status -> {
+            hotBalanceLedger.closeAccount(2L, accountNumber);
+            Account account = accountRepository.findByAccountNumber(accountNumber).get();
+            account.setAccountStatus(AccountStatus.UNREGISTERED);
+        });
+        long balanceKeys = redissonClient.getKeys().countExists("ACBAL:" + accountNumber);
+        AccountException unregistered = assertThrows(AccountException.class,
+                () -> hotBalanceLedger.useBalance(2L, accountNumber, 100L));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exceed.getErrorCode());
+        assertEquals(0L, balanceKeys);
+        assertEquals(ErrorCode.ACCOUNT_ALREADY_UNREGISTERD, unregistered.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("취소는 반영된 거래를 기준으로 Redis 잔액에 더함")
+    void cancelBalance() {
+        //given
+        TransactionDto use = hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+        hotBalanceLedger.flush();
+
+        //when
+        TransactionDto cancel = hotBalanceLedger.cancelBalance(use.getTransactionId(), accountNumber, 100L);
+        AccountException exception = assertThrows(AccountException.class,
+                () -> hotBalanceLedger.cancelBalance(use.getTransactionId(), accountNumber, 50L));
+        hotBalanceLedger.flush();
+
+        //then
+        assertEquals(1000L, cancel.getBalanceSnapshot());
+        assertEquals(ErrorCode.CANCEL_MUST_FULLY, exception.getErrorCode());
+        assertEquals(1000L, getDbBalance());
+    }
+
+    @Test
+    @DisplayName("시작할 때 journal에서 DB에 없는 거래만 반영")
+    void replayJournal() throws Exception {
+        //given
+        TransactionDto persisted = hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+        hotBalanceLedger.flush();
+        String lostTransactionId = transactionIdGenerator.nextTransactionId();
+        try (TransactionJournal journal = new TransactionJournal(journalDir,
+                DataSize.ofKilobytes(64).toBytes(), 5L)) {
+            journal.append(new TransactionJournal.Entry(persisted.getTransactionId(), accountNumber,
+                    TransactionType.USE, 100L, persisted.getTransactedAt(), 900L));
+            journal.append(new TransactionJournal.Entry(lostTransactionId, accountNumber,
+                    TransactionType.USE, 200L, LocalDateTime.now(), 700L)).join();
+        }
+
+        //when
+        HotBalanceLedger restarted = newLedger();
+        restarted.start();
+        restarted.stop();
+
+        //then
+        assertEquals(700L, getDbBalance());
+        assertEquals(1, countPersisted(persisted));
+        assertEquals(1, transactionRepository.findTransactionIds(List.of(lostTransactionId)).size());
+    }
+
+    @Test
+    @DisplayName("기록이 어떤 순서로 반영되어도 잔액에는 증감분이 더해짐")
+    void persistOutOfOrder() {
+        //given
+        hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+        hotBalanceLedger.useBalance(2L, accountNumber, 200L);
+        List<String> entries = hotBalanceLedger.reserveBatch();
+
+        //when
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            hotBalanceLedger.persist(List.of(entries.get(i)));
+        }
+        hotBalanceLedger.persist(entries);
+
+        //then
+        assertEquals(2, entries.size());
+        assertEquals(700L, getDbBalance());
+    }
+
+    @Test
+    @DisplayName("Redis가 기록을 잃으면 다시 적재하기 전에 journal을 DB에 반영")
+    void replayJournalOnRedisLoss() throws Exception {
+        //given
+        HotBalanceLedger started = newLedger(60_000L);
+        started.start();
+        try {
+            TransactionDto lost = started.useBalance(2L, accountNumber, 100L);
+            redissonClient.getKeys().delete("ACBAL:" + accountNumber,
+                    "ACLEDGER:queue", "ACLEDGER:processing", "ACLEDGER:pending");
+            redissonClient.getKeys().deleteByPattern("ACLEDGER:node:*");
+
+            //when
+            TransactionDto transaction = started.useBalance(2L, accountNumber, 100L);
+
+            //then
+            assertEquals(800L, transaction.getBalanceSnapshot());
+            assertEquals(1, countPersisted(lost));
+            assertEquals(900L, getDbBalance());
+        } finally {
+            started.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("journal fsync가 실패하면 Redis 기록을 되돌리고 요청을 실패시킴")
+    void journalSyncFailed() {
+        //given
+        TransactionJournal journal = mock(TransactionJournal.class);
+        given(journal.append(any())).willReturn(CompletableFuture.failedFuture(new UncheckedIOException(
+                new IOException("fsync failed"))));
+        ReflectionTestUtils.setField(hotBalanceLedger, "journal", journal);
+        ArgumentCaptor<TransactionJournal.Entry> captor = ArgumentCaptor.forClass(TransactionJournal.Entry.class);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> hotBalanceLedger.useBalance(2L, accountNumber, 100L));
+        ReflectionTestUtils.setField(hotBalanceLedger, "journal", null);
+        TransactionDto transaction = hotBalanceLedger.useBalance(2L, accountNumber, 100L);
+        hotBalanceLedger.flush();
+
+        //then
+        verify(journal).append(captor.capture());
+        assertEquals(ErrorCode.JOURNAL_SYNC_FAILED, exception.getErrorCode());
+        assertEquals(900L, transaction.getBalanceSnapshot());
+        assertEquals(900L, getDbBalance());
+        assertEquals(TransactionResultType.F, transactionRepository
+                .findByTransactionId(captor.getValue().getTransactionId()).get().getTransactionResultType());
+    }
+
+    private HotBalanceLedger newLedger() {
+        return newLedger(50L);
+    }
+
+    private HotBalanceLedger newLedger(long flushInterval) {
+        return new HotBalanceLedger(redissonClient, transactionRepository, accountRepository,
+                balanceLedgerService, transactionIdGenerator, transactionManager, applicationEventPublisher,
+                Collections.singleton(accountNumber), 100, flushInterval,
+                journalDir, DataSize.ofKilobytes(64), 5L);
+    }
+
+    private long getDbBalance() {
+        return accountRepository.findByAccountNumber(accountNumber).get().getBalance();
+    }
+
+    private int countPersisted(TransactionDto... transactions) {
+        List<String> transactionIds = new ArrayList<>();
+        for (TransactionDto transaction : transactions) {
+            transactionIds.add(transaction.getTransactionId());
+        }
+        return transactionRepository.findTransactionIds(transactionIds).size();
+    }
+}
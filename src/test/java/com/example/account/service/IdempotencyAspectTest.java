@@ -0,0 +1,117 @@
+package com.example.account.service;
+
+import com.example.account.aop.Idempotent;
+import com.example.account.dto.CancelBalance;
+import com.example.account.dto.UseBalance;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyAspectTest {
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    @Mock
+    private MethodSignature methodSignature;
+
+    @Mock
+    private Idempotent idempotent;
+
+    private IdempotencyAspect idempotencyAspect;
+    private MockHttpServletRequest httpRequest;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyAspect = new IdempotencyAspect(idempotencyStore, new ObjectMapper());
+        httpRequest = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(httpRequest));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @DisplayName("저장 키에 사용자 id를 넣고, 요청 본문이 다르면 fingerprint가 다름")
+    void keyWithUserAndFingerprint() throws Throwable {
+        //given
+        httpRequest.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "retry-1");
+        given(idempotent.value()).willReturn("use");
+        given(proceedingJoinPoint.getSignature()).willReturn(methodSignature);
+        given(methodSignature.getReturnType()).willReturn((Class) UseBalance.Response.class);
+        ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> fingerprintCaptor = ArgumentCaptor.forClass(String.class);
+
+        //when
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent,
+                new UseBalance.Request(12L, "1000000012", 1000L));
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent,
+                new UseBalance.Request(12L, "1000000012", 1000L));
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent,
+                new UseBalance.Request(12L, "1000000012", 2000L));
+
+        //then
+        verify(idempotencyStore, times(3)).execute(keyCaptor.capture(), fingerprintCaptor.capture(),
+                eq(UseBalance.Response.class), any());
+        assertEquals("use:user:12:retry-1", keyCaptor.getValue());
+        assertEquals(fingerprintCaptor.getAllValues().get(0), fingerprintCaptor.getAllValues().get(1));
+        assertNotEquals(fingerprintCaptor.getAllValues().get(0), fingerprintCaptor.getAllValues().get(2));
+    }
+
+    @Test
+    @DisplayName("사용자가 없는 취소 요청은 계좌번호로 나눔")
+    void keyWithAccountForCancel() throws Throwable {
+        //given
+        httpRequest.addHeader(IdempotencyAspect.IDEMPOTENCY_KEY_HEADER, "retry-1");
+        given(idempotent.value()).willReturn("cancel");
+        given(proceedingJoinPoint.getSignature()).willReturn(methodSignature);
+        given(methodSignature.getReturnType()).willReturn((Class) CancelBalance.Response.class);
+        ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
+
+        //when
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent,
+                new CancelBalance.Request("0000000000000000001", "1000000012", 1000L));
+
+        //then
+        verify(idempotencyStore).execute(keyCaptor.capture(), any(),
+                eq(CancelBalance.Response.class), any());
+        assertEquals("cancel:account:1000000012:retry-1", keyCaptor.getValue());
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key가 없으면 저장소를 거치지 않음")
+    void proceedWithoutKey() throws Throwable {
+        //given
+        //when
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent,
+                new UseBalance.Request(12L, "1000000012", 1000L));
+
+        //then
+        verify(proceedingJoinPoint).proceed();
+        verify(idempotencyStore, never()).execute(any(), any(), any(), any());
+    }
+}
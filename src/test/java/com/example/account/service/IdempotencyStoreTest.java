@@ -0,0 +1,244 @@
+package com.example.account.service;
+
+import com.example.account.dto.UseBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@ExtendWith(MockitoExtension.class)
+class IdempotencyStoreTest {
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final String FINGERPRINT = "fingerprint";
+
+    private final AtomicInteger runCount = new AtomicInteger();
+
+    @Mock
+    private RBucket<String> bucket;
+
+    @Test
+    @DisplayName("같은 키로 다시 오면 저장된 응답")
+    void replayResponse() throws Throwable {
+        //given
+        String key = newKey();
+        Object first = idempotencyStore.execute(key, FINGERPRINT, UseBalance.Response.class, this::use);
+
+        //when
+        Object second = idempotencyStore.execute(key, FINGERPRINT, UseBalance.Response.class, this::use);
+
+        //then
+        assertSame(first, second);
+        assertEquals(1, runCount.get());
+    }
+
+    @Test
+    @DisplayName("다른 노드(로컬 캐시 없음)에서도 Redis에 저장된 응답")
+    void replayFromRedis() throws Throwable {
+        //given
+        String key = newKey();
+        UseBalance.Response first = (UseBalance.Response)
+                idempotencyStore.execute(key, FINGERPRINT, UseBalance.Response.class, this::use);
+
+        //when
+        UseBalance.Response second = (UseBalance.Response)
+                newStore().execute(key, FINGERPRINT, UseBalance.Response.class, this::use);
+
+        //then
+        assertEquals(1, runCount.get());
+        assertEquals(first.getTransactionId(), second.getTransactionId());
+        assertEquals(first.getTransactedAt(), second.getTransactedAt());
+    }
+
+    @Test
+    @DisplayName("업무 오류도 저장해서 다시 실행하지 않음")
+    void replayAccountException() throws Throwable {
+        //given
+        String key = newKey();
+        IdempotencyStore.IdempotentTask task = () -> {
+            runCount.incrementAndGet();
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        };
+        assertThrows(AccountException.class,
+                () -> idempotencyStore.execute(key, FINGERPRINT, UseBalance.Response.class, task));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> newStore().execute(key, FINGERPRINT, UseBalance.Response.class, task));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        assertEquals(1, runCount.get());
+    }
+
+    @Test
+    @DisplayName("lock 실패는 저장하지 않아 재시도 가능")
+    void notStoreLockFailure() throws Throwable {
+        //given
+        String key = newKey();
+        assertThrows(AccountException.class,
+                () -> idempotencyStore.execute(key, FINGERPRINT, UseBalance.Response.class, () -> {
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                }));
+
+        //when
+        idempotencyStore.execute(key, FINGERPRINT, UseBalance.Response.class, this::use);
+
+        //then
+        assertEquals(1, runCount.get());
+    }
+
+    @Test
+    @DisplayName("처리중인 중복요청은 원래 요청 결과를 기다림")
+    void waitInFlight() throws Exception {
+        //given
+        String key = newKey();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            IdempotencyStore store = i % 2 == 0 ? idempotencyStore : newStore();
+            futures.add(executorService.submit(() -> {
+                start.await();
+                try {
+                    return store.execute(key, FINGERPRINT, UseBalance.Response.class, () -> {
+                        Thread.sleep(200L);
+                        return use();
+                    });
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        start.countDown();
+        List<String> transactionIds = new ArrayList<>();
+        for (Future<Object> future : futures) {
+            transactionIds.add(((UseBalance.Response) future.get()).getTransactionId());
+        }
+        executorService.shutdown();
+
+        //then
+        assertEquals(1, runCount.get());
+        assertEquals(1, transactionIds.stream().distinct().count());
+    }
+
+    @Test
+    @DisplayName("같은 키에 다른 요청 본문이면 거절")
+    void rejectReusedKey() throws Throwable {
+        //given
+        String key = newKey();
+        idempotencyStore.execute(key, FINGERPRINT, UseBalance.Response.class, this::use);
+
+        //when
+        AccountException local = assertThrows(AccountException.class,
+                () -> idempotencyStore.execute(key, "other", UseBalance.Response.class, this::use));
+        AccountException remote = assertThrows(AccountException.class,
+                () -> newStore().execute(key, "other", UseBalance.Response.class, this::use));
+
+        //then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, local.getErrorCode());
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, remote.getErrorCode());
+        assertEquals(1, runCount.get());
+    }
+
+    @Test
+    @DisplayName("다른 노드에서 처리중인 키에 다른 요청 본문이면 기다리지 않고 거절")
+    void rejectReusedKeyInProgress() throws Throwable {
+        //given
+        String key = newKey();
+        redissonClient.getBucket("IDEM:" + key, StringCodec.INSTANCE).set("P:" + FINGERPRINT);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyStore.execute(key, "other", UseBalance.Response.class, this::use));
+
+        //then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+        assertEquals(0, runCount.get());
+    }
+
+    @Test
+    @DisplayName("실행 후 Redis 저장이 실패해도 응답하고, 재요청은 다시 실행하지 않으며 저장을 다시 시도")
+    void storeFailureAfterRun() throws Throwable {
+        //given
+        RedissonClient failingClient = mock(RedissonClient.class);
+        given(failingClient.<String>getBucket(anyString(), any(Codec.class))).willReturn(bucket);
+        given(bucket.trySet(anyString(), anyLong(), any())).willReturn(true);
+        willThrow(new RedisException("down")).willThrow(new RedisException("down")).willDoNothing()
+                .given(bucket).set(anyString(), anyLong(), any());
+        IdempotencyStore store = new IdempotencyStore(failingClient, objectMapper, Duration.ofMinutes(1),
+                Duration.ofSeconds(30), Duration.ofSeconds(5), 100L, Duration.ofMinutes(1));
+        String key = newKey();
+
+        //when
+        Object first = store.execute(key, FINGERPRINT, UseBalance.Response.class, this::use);
+        Object second = store.execute(key, FINGERPRINT, UseBalance.Response.class, this::use);
+
+        //then
+        assertSame(first, second);
+        assertEquals(1, runCount.get());
+        verify(bucket, timeout(5000).times(3)).set(startsWith("R:" + FINGERPRINT + ":"), anyLong(), any());
+        verify(bucket, never()).delete();
+    }
+
+    private UseBalance.Response use() {
+        return UseBalance.Response.builder()
+                .accountNumber("1000000000")
+                .transactionResultType(TransactionResultType.S)
+                .transactionId(String.valueOf(runCount.incrementAndGet()))
+                .amount(100L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private IdempotencyStore newStore() {
+        return new IdempotencyStore(redissonClient, objectMapper, Duration.ofMinutes(1),
+                Duration.ofSeconds(30), Duration.ofSeconds(5), 100L, Duration.ofMinutes(1));
+    }
+
+    private static String newKey() {
+        return "test:" + UUID.randomUUID();
+    }
+}
@@ -1,19 +1,32 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
+import com.example.account.dto.TransferBalance;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.LockStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.expression.AccessException;
+
+import java.util.Arrays;
+import java.util.Comparator;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -23,11 +36,29 @@ class LockAopAspectTest {
     @Mock
     private LockService lockService;
 
+    @Mock
+    private AccountLockHandler pessimisticLockHandler;
+
+    @Mock
+    private HotBalanceLedger hotBalanceLedger;
+
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint;
 
-    @InjectMocks
+    @Mock
+    private AccountLock accountLock;
+
     private LockAopAspect lockAopAspect;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        given(lockService.getStrategy()).willReturn(LockStrategy.REDIS);
+        given(pessimisticLockHandler.getStrategy()).willReturn(LockStrategy.PESSIMISTIC);
+        meterRegistry = new SimpleMeterRegistry();
+        lockAopAspect = new LockAopAspect(Arrays.asList(lockService, pessimisticLockHandler),
+                new AccountShardExecutor(2, 10), hotBalanceLedger, meterRegistry);
+    }
 
     @Test
     void lockAndUnlock() throws Throwable {
@@ -36,14 +67,21 @@ class LockAopAspectTest {
         ArgumentCaptor<String> unlockArgumentcaptor=ArgumentCaptor.forClass(String.class);
 
         UseBalance.Request request=new UseBalance.Request(123L,"1234",1000L);
+        given(accountLock.strategy()).willReturn(LockStrategy.REDIS);
+        given(accountLock.tryLockTime()).willReturn(3000L);
+        given(accountLock.leaseTime()).willReturn(10000L);
         //when
-        lockAopAspect.aroundMethod(proceedingJoinPoint,request);
+        lockAopAspect.aroundMethod(proceedingJoinPoint,accountLock,request);
         //then
 
-        verify(lockService,times(1)).lock(lockArgumentcaptor.capture());
+        verify(lockService,times(1)).lock(lockArgumentcaptor.capture(),eq(3000L),eq(10000L));
         verify(lockService,times(1)).unlock(unlockArgumentcaptor.capture());
         assertEquals("1234",lockArgumentcaptor.getValue());
         assertEquals("1234",unlockArgumentcaptor.getValue());
+        assertEquals(1, meterRegistry.get("account.lock.wait")
+                .tags("strategy", "REDIS", "outcome", "acquired").timer().count());
+        assertEquals(1, meterRegistry.get("account.lock.held")
+                .tag("strategy", "REDIS").timer().count());
     }
 
     @Test
@@ -53,18 +91,136 @@ class LockAopAspectTest {
         ArgumentCaptor<String> unlockArgumentcaptor=ArgumentCaptor.forClass(String.class);
 
         UseBalance.Request request=new UseBalance.Request(123L,"1234",1000L);
+        given(accountLock.strategy()).willReturn(LockStrategy.REDIS);
         given(proceedingJoinPoint.proceed())
                 .willThrow(new AccountException(ErrorCode.NOT_ACCOUNT_EXIST));
 
 
         //when
-        assertThrows(AccountException.class,()->lockAopAspect.aroundMethod(proceedingJoinPoint,request));
+        assertThrows(AccountException.class,()->lockAopAspect.aroundMethod(proceedingJoinPoint,accountLock,request));
 
         //then
 
-        verify(lockService,times(1)).lock(lockArgumentcaptor.capture());
+        verify(lockService,times(1)).lock(lockArgumentcaptor.capture(),anyLong(),anyLong());
         verify(lockService,times(1)).unlock(unlockArgumentcaptor.capture());
         assertEquals("1234",lockArgumentcaptor.getValue());
         assertEquals("1234",unlockArgumentcaptor.getValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    void lockMultipleAccountsInOrder() throws Throwable {
+        //given
+        TransferBalance.Request request=new TransferBalance.Request(123L,"2000000000","1000000000",1000L);
+        given(accountLock.strategy()).willReturn(LockStrategy.REDIS);
+        given(accountLock.tryLockTime()).willReturn(3000L);
+        given(accountLock.leaseTime()).willReturn(10000L);
+        given(lockService.lockOrder()).willReturn(Comparator.naturalOrder());
+
+        //when
+        lockAopAspect.aroundMethod(proceedingJoinPoint,accountLock,request);
+
+        //then
+        InOrder inOrder = inOrder(lockService, proceedingJoinPoint);
+        inOrder.verify(lockService).lock("1000000000",3000L,10000L);
+        inOrder.verify(lockService).lock("2000000000",3000L,10000L);
+        inOrder.verify(proceedingJoinPoint).proceed();
+        inOrder.verify(lockService).unlock("2000000000");
+        inOrder.verify(lockService).unlock("1000000000");
+    }
+
+    @Test
+    void unlockAcquiredAccounts_whenSecondLockFails() throws Throwable {
+        //given
+        TransferBalance.Request request=new TransferBalance.Request(123L,"1000000000","2000000000",1000L);
+        given(accountLock.strategy()).willReturn(LockStrategy.REDIS);
+        given(lockService.lockOrder()).willReturn(Comparator.naturalOrder());
+        willAnswer(invocation -> {
+            if ("2000000000".equals(invocation.getArgument(0))) {
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+            return null;
+        }).given(lockService).lock(anyString(),anyLong(),anyLong());
+
+        //when
+        assertThrows(AccountException.class,()->lockAopAspect.aroundMethod(proceedingJoinPoint,accountLock,request));
+
+        //then
+        verify(lockService,times(1)).unlock("1000000000");
+        verify(lockService,never()).unlock("2000000000");
+        verify(proceedingJoinPoint,never()).proceed();
+        assertEquals(1, meterRegistry.get("account.lock.wait")
+                .tags("strategy", "REDIS", "outcome", "failed").timer().count());
+        assertEquals(0, meterRegistry.get("account.lock.held")
+                .tag("strategy", "REDIS").timer().count());
+    }
+
+    @Test
+    void lockByStrategy() throws Throwable {
+        //given
+        UseBalance.Request request=new UseBalance.Request(123L,"1234",1000L);
+        given(accountLock.strategy()).willReturn(LockStrategy.PESSIMISTIC);
+
+        //when
+        lockAopAspect.aroundMethod(proceedingJoinPoint,accountLock,request);
+
+        //then
+        verify(pessimisticLockHandler,times(1)).lock(eq("1234"),anyLong(),anyLong());
+        verify(pessimisticLockHandler,times(1)).unlock("1234");
+        verify(lockService,never()).lock(anyString(),anyLong(),anyLong());
+    }
+
+    @Test
+    void shardedRunOnShardThread() throws Throwable {
+        //given
+        UseBalance.Request request=new UseBalance.Request(123L,"1234",1000L);
+        given(accountLock.strategy()).willReturn(LockStrategy.SHARDED);
+        given(accountLock.tryLockTime()).willReturn(1000L);
+        given(proceedingJoinPoint.proceed())
+                .willAnswer(invocation -> Thread.currentThread().getName());
+
+        //when
+        Object result = lockAopAspect.aroundMethod(proceedingJoinPoint,accountLock,request);
+
+        //then
+        assertTrue(((String) result).startsWith("account-shard-"));
+        verify(lockService,never()).lock(anyString(),anyLong(),anyLong());
+        assertEquals(1, meterRegistry.get("account.lock.wait")
+                .tags("strategy", "SHARDED", "outcome", "acquired").timer().count());
+        assertEquals(1, meterRegistry.get("account.lock.held")
+                .tags("strategy", "SHARDED").timer().count());
+    }
+
+    @Test
+    void optimisticWithoutLock() throws Throwable {
+        //given
+        UseBalance.Request request=new UseBalance.Request(123L,"1234",1000L);
+        given(accountLock.strategy()).willReturn(LockStrategy.OPTIMISTIC);
+
+        //when
+        lockAopAspect.aroundMethod(proceedingJoinPoint,accountLock,request);
+
+        //then
+        verify(proceedingJoinPoint,times(1)).proceed();
+        verify(lockService,never()).lock(anyString(),anyLong(),anyLong());
+        verify(pessimisticLockHandler,never()).lock(anyString(),anyLong(),anyLong());
+    }
+
+    @Test
+    void shardedThrowCause() throws Throwable {
+        //given
+        UseBalance.Request request=new UseBalance.Request(123L,"1234",1000L);
+        given(accountLock.strategy()).willReturn(LockStrategy.SHARDED);
+        given(accountLock.tryLockTime()).willReturn(1000L);
+        given(proceedingJoinPoint.proceed())
+                .willThrow(new AccountException(ErrorCode.NOT_ACCOUNT_EXIST));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                ()->lockAopAspect.aroundMethod(proceedingJoinPoint,accountLock,request));
+
+        //then
+        assertEquals(ErrorCode.NOT_ACCOUNT_EXIST,exception.getErrorCode());
+        assertEquals(0, meterRegistry.get("account.lock.wait")
+                .tags("strategy", "SHARDED", "outcome", "failed").timer().count());
+    }
+}
@@ -2,17 +2,23 @@ package com.example.account.service;
 
 import com.example.account.exception.AccountException;
 import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class LockServiceTest {
@@ -23,9 +29,15 @@ class LockServiceTest {
     @Mock
     private RLock rLock;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
     private LockService lockService;
 
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lockService = new LockService(redissonClient, meterRegistry);
+    }
+
     @Test
     void successGetLock() throws InterruptedException {
         //given
@@ -34,7 +46,7 @@ class LockServiceTest {
         given(rLock.tryLock(anyLong(),anyLong(),any()))
                 .willReturn(true);
         //when
-        assertDoesNotThrow(()->lockService.lock("123"));
+        assertDoesNotThrow(()->lockService.lock("123",1000L,15000L));
 
         //then
     }
@@ -48,9 +60,71 @@ class LockServiceTest {
                 .willReturn(false);
         //when
         AccountException exception = assertThrows(AccountException.class,
-                () -> lockService.lock("123"));
+                () -> lockService.lock("123",1000L,15000L));
 
         //then
         assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,exception.getErrorCode());
+        assertEquals(1, meterRegistry.get("account.lock.acquire")
+                .tags("stage", "redis", "outcome", "timeout").timer().count());
+    }
+
+    @Test
+    @DisplayName("Redis 오류시 lock없이 진행하지 않고 실패, local lock은 풀어줌")
+    void failGetLock_redisError() throws Exception {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLock(anyLong(),anyLong(),any()))
+                .willThrow(new IllegalStateException("connection refused"))
+                .willReturn(true);
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> lockService.lock("123",1000L,15000L));
+        AtomicReference<Throwable> result = new AtomicReference<>();
+        Thread other = new Thread(() -> {
+            try {
+                lockService.lock("123",1000L,15000L);
+            } catch (Throwable t) {
+                result.set(t);
+            }
+        });
+        other.start();
+        other.join();
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,exception.getErrorCode());
+        assertNull(result.get());
+        assertEquals(1, meterRegistry.get("account.lock.acquire")
+                .tags("stage", "redis", "outcome", "error").timer().count());
+        assertEquals(0, meterRegistry.get("account.lock.redis.inflight").gauge().value());
+    }
+
+    @Test
+    void failGetLocalLock_withoutRedis() throws Exception {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLock(anyLong(),anyLong(),any()))
+                .willReturn(true);
+        lockService.lock("123",1000L,15000L);
+
+        //when
+        AtomicReference<Throwable> result = new AtomicReference<>();
+        Thread other = new Thread(() -> {
+            try {
+                lockService.lock("123",1000L,15000L);
+            } catch (Throwable t) {
+                result.set(t);
+            }
+        });
+        other.start();
+        other.join();
+
+        //then
+        assertTrue(result.get() instanceof AccountException);
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) result.get()).getErrorCode());
+        verify(redissonClient,times(1)).getLock(anyString());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.event.TransactionSavedEvent;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.SettlementStatus;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SettlementServiceTest {
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RLock rLock;
+
+    @InjectMocks
+    private SettlementService settlementService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(settlementService, "poolSize", 1);
+        ReflectionTestUtils.setField(settlementService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(settlementService, "maxAttempts", 2);
+        ReflectionTestUtils.setField(settlementService, "retryDelay", 10L);
+        ReflectionTestUtils.setField(settlementService, "downstreamDelay", 0L);
+        ReflectionTestUtils.setField(settlementService, "sweepInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(settlementService, "sweepStaleAfter", Duration.ofMinutes(10));
+        //기동시 sweep은 lock을 못 잡은 것으로 둔다.
+        lenient().when(redissonClient.getLock(anyString())).thenReturn(rLock);
+        settlementService.start();
+        verify(rLock, timeout(1000)).tryLock();
+    }
+
+    @AfterEach
+    void tearDown() {
+        settlementService.stop();
+    }
+
+    @Test
+    void settleAfterUseBalance() {
+        //given
+        //when
+        settlementService.onTransactionSaved(savedEvent(TransactionType.USE, TransactionResultType.S));
+
+        //then
+        verify(transactionRepository, timeout(1000))
+                .updateSettlementStatus("transactionId", SettlementStatus.SETTLED);
+    }
+
+    @Test
+    @DisplayName("정산 실패시 재시도")
+    void retryFailedSettlement() {
+        //given
+        given(transactionRepository.updateSettlementStatus(anyString(), any()))
+                .willThrow(new RuntimeException("downstream"))
+                .willReturn(1);
+
+        //when
+        settlementService.onTransactionSaved(savedEvent(TransactionType.USE, TransactionResultType.S));
+
+        //then
+        verify(transactionRepository, timeout(1000).times(2))
+                .updateSettlementStatus("transactionId", SettlementStatus.SETTLED);
+        verify(transactionRepository, never())
+                .updateSettlementStatus("transactionId", SettlementStatus.FAILED);
+    }
+
+    @Test
+    @DisplayName("재시도 횟수 초과시 FAILED 기록")
+    void failAfterMaxAttempts() {
+        //given
+        given(transactionRepository.updateSettlementStatus(anyString(), any()))
+                .willThrow(new RuntimeException("downstream"))
+                .willThrow(new RuntimeException("downstream"))
+                .willReturn(1);
+
+        //when
+        settlementService.onTransactionSaved(savedEvent(TransactionType.USE, TransactionResultType.S));
+
+        //then
+        verify(transactionRepository, timeout(1000))
+                .updateSettlementStatus("transactionId", SettlementStatus.FAILED);
+    }
+
+    @Test
+    @DisplayName("취소, 실패 거래는 정산하지 않음")
+    void skipNotUseTransaction() throws InterruptedException {
+        //given
+        //when
+        settlementService.onTransactionSaved(savedEvent(TransactionType.CANCEL, TransactionResultType.S));
+        settlementService.onTransactionSaved(savedEvent(TransactionType.USE, TransactionResultType.F));
+        Thread.sleep(100L);
+
+        //then
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @DisplayName("대기열이 가득 찬 경우도 시도 횟수에 넣고, 소진되면 FAILED가 아닌 PENDING으로 남김")
+    void queueFullCountsAttempt() {
+        //given
+        settlementService.stop();
+        ReflectionTestUtils.setField(settlementService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(settlementService, "downstreamDelay", 300L);
+        settlementService.start();
+
+        //when
+        settlementService.onTransactionSaved(savedEvent("first", TransactionType.USE, TransactionResultType.S));
+        settlementService.onTransactionSaved(savedEvent("second", TransactionType.USE, TransactionResultType.S));
+        settlementService.onTransactionSaved(savedEvent("third", TransactionType.USE, TransactionResultType.S));
+
+        //then
+        verify(transactionRepository, timeout(2000))
+                .updateSettlementStatus("second", SettlementStatus.SETTLED);
+        verify(transactionRepository, times(1))
+                .updateSettlementStatus("first", SettlementStatus.SETTLED);
+        verify(transactionRepository, never()).updateSettlementStatus(eq("third"), any());
+    }
+
+    @Test
+    @DisplayName("오래된 PENDING 거래를 찾아 다시 정산")
+    void sweepPending() {
+        //given
+        given(rLock.tryLock()).willReturn(true);
+        given(transactionRepository.findSettlementTransactionIds(
+                eq(SettlementStatus.PENDING), any(), anyString(), any()))
+                .willReturn(List.of("pending1", "pending2"));
+
+        //when
+        int submitted = settlementService.sweepPending();
+
+        //then
+        assertEquals(2, submitted);
+        verify(transactionRepository, timeout(1000))
+                .updateSettlementStatus("pending1", SettlementStatus.SETTLED);
+        verify(transactionRepository, timeout(1000))
+                .updateSettlementStatus("pending2", SettlementStatus.SETTLED);
+        verify(rLock).unlock();
+    }
+
+    @Test
+    @DisplayName("다른 노드가 sweep중이면 건너뜀")
+    void sweepPending_locked() {
+        //given
+        given(rLock.tryLock()).willReturn(false);
+
+        //when
+        int submitted = settlementService.sweepPending();
+
+        //then
+        assertEquals(0, submitted);
+        verify(transactionRepository, never()).findSettlementTransactionIds(any(), any(), any(), any());
+    }
+
+    private static TransactionSavedEvent savedEvent(TransactionType transactionType,
+                                                    TransactionResultType transactionResultType) {
+        return savedEvent("transactionId", transactionType, transactionResultType);
+    }
+
+    private static TransactionSavedEvent savedEvent(String transactionId, TransactionType transactionType,
+                                                    TransactionResultType transactionResultType) {
+        return new TransactionSavedEvent(TransactionDto.builder()
+                .transactionId(transactionId)
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .build());
+    }
+}
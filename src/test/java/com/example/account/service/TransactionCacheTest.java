@@ -0,0 +1,110 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionDto;
+import com.example.account.event.TransactionSavedEvent;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCacheTest {
+
+    private final TransactionCache transactionCache = new TransactionCache(100L, Duration.ofMinutes(1));
+
+    @Test
+    @DisplayName("commit된 거래는 조회 전에 캐시에 들어간다")
+    void putOnSaved() {
+        //given
+        transactionCache.onTransactionSaved(new TransactionSavedEvent(transactionDto("0000000000000000001")));
+
+        //when
+        TransactionDto transaction = transactionCache.get("0000000000000000001", id -> {
+            throw new IllegalStateException("should not load");
+        });
+
+        //then
+        assertEquals(1000L, transaction.getAmount());
+        assertEquals(1L, transactionCache.stats().hitCount());
+    }
+
+    @Test
+    @DisplayName("없는 거래는 캐시하지 않음")
+    void notCacheMissingTransaction() {
+        //given
+        AtomicInteger loadCount = new AtomicInteger();
+
+        //when
+        transactionCache.get("0000000000000000002", id -> {
+            loadCount.incrementAndGet();
+            return null;
+        });
+        TransactionDto transaction = transactionCache.get("0000000000000000002", id -> {
+            loadCount.incrementAndGet();
+            return null;
+        });
+
+        //then
+        assertNull(transaction);
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    @DisplayName("동시에 miss가 나도 DB 조회는 한번")
+    void singleFlight() throws Exception {
+        //given
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger loadCount = new AtomicInteger();
+        List<Future<TransactionDto>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            futures.add(executorService.submit(() -> {
+                start.await();
+                return transactionCache.get("0000000000000000003", id -> {
+                    loadCount.incrementAndGet();
+                    sleep(100L);
+                    return transactionDto(id);
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<TransactionDto> future : futures) {
+            assertEquals("0000000000000000003", future.get().getTransactionId());
+        }
+        executorService.shutdown();
+
+        //then
+        assertEquals(1, loadCount.get());
+    }
+
+    private static TransactionDto transactionDto(String transactionId) {
+        return TransactionDto.builder()
+                .accountNumber("1000000000")
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactionId(transactionId)
+                .build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionExport;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.ExportFormat;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TransactionExportServiceTest {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final int ROW_COUNT = 2500;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2022, 4, 1, 0, 0);
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String accountNumber;
+
+    @BeforeEach
+    void setUp() {
+        AccountUser user = accountuserRepository.findById(2L).get();
+        accountNumber = String.valueOf(4_000_000_000L + SEQUENCE.incrementAndGet());
+        Account account = accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .regiteredAt(LocalDateTime.now())
+                .build());
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            transactions.add(Transaction.builder()
+                    .account(account)
+                    .transactionType(TransactionType.USE)
+                    .transactionResultType(TransactionResultType.S)
+                    .amount(10L + i)
+                    .balanceSnapshot(1000L)
+                    .transactionId(String.format("%019d", 100_000_000L * SEQUENCE.get() + i))
+                    .transactedAt(BASE_TIME.plusSeconds(i))
+                    .build());
+        }
+        transactionRepository.saveAll(transactions);
+    }
+
+    @Test
+    @DisplayName("거래시각 순서로 한 행씩 넘기고 엔티티는 로딩하지 않음")
+    void exportTransactions_streamRows() {
+        //given
+        TransactionExport.Request condition = new TransactionExport.Request();
+        condition.setAccountNumber(accountNumber);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        AtomicReference<LocalDateTime> last = new AtomicReference<>(LocalDateTime.MIN);
+        AtomicInteger unordered = new AtomicInteger();
+        AtomicReference<Long> loadCountAtFirstRow = new AtomicReference<>();
+
+        //when
+        long count = transactionExportService.exportTransactions(condition, row -> {
+            loadCountAtFirstRow.compareAndSet(null, statistics.getEntityLoadCount());
+            if (row.getTransactedAt().isBefore(last.get())) {
+                unordered.incrementAndGet();
+            }
+            last.set(row.getTransactedAt());
+        });
+
+        //then
+        assertEquals(ROW_COUNT, count);
+        assertEquals(0, unordered.get());
+        //계좌 조회 이후에는 행마다 엔티티를 로딩하지 않는다.
+        assertEquals(loadCountAtFirstRow.get(), statistics.getEntityLoadCount());
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    @DisplayName("CSV, 기간 조건")
+    void exportTransactions_csv() throws Exception {
+        //given
+        TransactionExport.Request condition = new TransactionExport.Request(accountNumber,
+                BASE_TIME.plusSeconds(10), BASE_TIME.plusSeconds(13), ExportFormat.CSV);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //when
+        long count = transactionExportService.exportTransactions(condition, outputStream);
+
+        //then
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, count);
+        assertEquals(4, lines.length);
+        assertEquals("transactionId,accountNumber,transactionType,transactionResultType,"
+                + "amount,balanceSnapshot,transactedAt", lines[0]);
+        assertTrue(lines[1].startsWith(String.format("%019d", 100_000_000L * SEQUENCE.get() + 10)
+                + "," + accountNumber + ",USE,S,20,1000,2022-04-01T00:00:10"));
+    }
+
+    @Test
+    @DisplayName("NDJSON은 한 줄에 거래 하나")
+    void exportTransactions_ndjson() throws Exception {
+        //given
+        TransactionExport.Request condition = new TransactionExport.Request(accountNumber,
+                null, BASE_TIME.plusSeconds(2), ExportFormat.NDJSON);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //when
+        transactionExportService.exportTransactions(condition, outputStream);
+
+        //then
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"accountNumber\":\"" + accountNumber + "\""));
+        assertTrue(lines[1].contains("\"amount\":11"));
+    }
+
+    @Test
+    @DisplayName("없는 계좌")
+    void exportTransactions_accountNotFound() {
+        //given
+        TransactionExport.Request condition = new TransactionExport.Request();
+        condition.setAccountNumber("0999999999");
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionExportService.exportTransactions(condition, row -> { }));
+
+        //then
+        assertEquals(ErrorCode.NOT_ACCOUNT_EXIST, exception.getErrorCode());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIdGeneratorTest {
+
+    private final TransactionIdGenerator transactionIdGenerator = new TransactionIdGenerator(5L);
+
+    @Test
+    @DisplayName("노드 안에서 항상 증가")
+    void monotonic() {
+        //given
+        long last = transactionIdGenerator.nextId();
+
+        //when
+        //then
+        for (int i = 0; i < 100_000; i++) {
+            long next = transactionIdGenerator.nextId();
+            assertTrue(next > last);
+            last = next;
+        }
+    }
+
+    @Test
+    void containNodeId() {
+        //given
+        //when
+        long id = transactionIdGenerator.nextId();
+
+        //then
+        assertEquals(5L, (id >>> 12) & 1023L);
+    }
+
+    @Test
+    @DisplayName("동시 발급시 중복 없음")
+    void uniqueUnderConcurrency() throws Exception {
+        //given
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            futures.add(executorService.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    ids.add(transactionIdGenerator.nextId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        //then
+        assertEquals(80_000, ids.size());
+    }
+
+    @Test
+    @DisplayName("node-id가 없으면 생성 실패")
+    void nodeIdRequired() {
+        //given
+        //when
+        //then
+        assertThrows(IllegalStateException.class, () -> new TransactionIdGenerator(null));
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIdGenerator(1024L));
+    }
+}
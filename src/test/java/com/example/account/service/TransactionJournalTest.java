@@ -0,0 +1,171 @@
+package com.example.account.service;
+
+import com.example.account.domain.TransactionIdCodec;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionJournalTest {
+    private static final long SEGMENT_SIZE = TransactionJournal.RECORD_SIZE * 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("fsync 이후 append가 완료되고 다시 열면 같은 기록이 읽힘")
+    void appendAndReplay() throws Exception {
+        //given
+        LocalDateTime transactedAt = LocalDateTime.of(2022, 6, 1, 12, 30, 15, 123_456_789);
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 5L)) {
+            CompletableFuture<Void> first = journal.append(entry(1L, TransactionType.USE, 100L, transactedAt));
+            CompletableFuture<Void> second = journal.append(entry(2L, TransactionType.CANCEL, 100L, transactedAt));
+            second.join();
+            assertTrue(first.isDone());
+        }
+
+        //when
+        List<TransactionJournal.Entry> replayed = new ArrayList<>();
+        int count;
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 5L)) {
+            count = journal.replay(replayed::addAll);
+        }
+
+        //then
+        assertEquals(2, count);
+        TransactionJournal.Entry entry = replayed.get(0);
+        assertEquals(TransactionIdCodec.format(1L), entry.getTransactionId());
+        assertEquals("1000000012", entry.getAccountNumber());
+        assertEquals(TransactionType.USE, entry.getTransactionType());
+        assertEquals(100L, entry.getAmount());
+        assertEquals(900L, entry.getBalanceSnapshot());
+        assertEquals(transactedAt, entry.getTransactedAt());
+        assertEquals(TransactionType.CANCEL, replayed.get(1).getTransactionType());
+    }
+
+    @Test
+    @DisplayName("segment가 차면 다음 파일로 넘어가고 DB에 반영된 segment만 지움")
+    void rollAndRelease() throws Exception {
+        //given
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 60_000L)) {
+            for (long i = 1; i <= 10; i++) {
+                journal.append(entry(i, TransactionType.USE, 10L, LocalDateTime.now()));
+            }
+            journal.sync();
+            assertEquals(3, segments().size());
+
+            //when
+            int released = journal.release(transactionIds ->
+                    !transactionIds.contains(TransactionIdCodec.format(6L)));
+
+            //then
+            assertEquals(1, released);
+            assertEquals(2, segments().size());
+        }
+    }
+
+    @Test
+    @DisplayName("checksum이 맞지 않는 기록(쓰다 만 기록)부터는 읽지 않음")
+    void stopAtCorruptedRecord() throws Exception {
+        //given
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 5L)) {
+            for (long i = 1; i <= 3; i++) {
+                journal.append(entry(i, TransactionType.USE, 10L, LocalDateTime.now()));
+            }
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(TransactionJournal.RECORD_SIZE + 20);
+            file.write(0x7f);
+        }
+
+        //when
+        List<TransactionJournal.Entry> replayed = new ArrayList<>();
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 5L)) {
+            journal.replay(replayed::addAll);
+        }
+
+        //then
+        assertEquals(1, replayed.size());
+        assertEquals(TransactionIdCodec.format(1L), replayed.get(0).getTransactionId());
+    }
+
+    @Test
+    @DisplayName("Redis 유실시 이번 실행의 기록까지 모두 읽고 segment는 남겨둠")
+    void replayAll() throws Exception {
+        //given
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 60_000L)) {
+            for (long i = 1; i <= 6; i++) {
+                journal.append(entry(i, TransactionType.USE, 10L, LocalDateTime.now()));
+            }
+
+            //when
+            List<TransactionJournal.Entry> replayed = new ArrayList<>();
+            int count = journal.replayAll(replayed::addAll);
+
+            //then
+            assertEquals(6, count);
+            assertEquals(TransactionIdCodec.format(1L), replayed.get(0).getTransactionId());
+            assertEquals(TransactionIdCodec.format(6L), replayed.get(5).getTransactionId());
+            assertEquals(2, segments().size());
+        }
+    }
+
+    @Test
+    @DisplayName("force가 실패하면 append를 실패시키고 segment는 다음 sync와 replayAll에 남음")
+    void syncFailed() throws Exception {
+        //given
+        AtomicBoolean failing = new AtomicBoolean(true);
+        try (TransactionJournal journal = new TransactionJournal(directory, SEGMENT_SIZE, 60_000L) {
+            @Override
+            void force(Segment segment) {
+                if (failing.get()) {
+                    throw new UncheckedIOException(new IOException("fsync failed"));
+                }
+                super.force(segment);
+            }
+        }) {
+            List<CompletableFuture<Void>> appended = new ArrayList<>();
+            for (long i = 1; i <= 6; i++) {
+                appended.add(journal.append(entry(i, TransactionType.USE, 10L, LocalDateTime.now())));
+            }
+
+            //when
+            assertThrows(UncheckedIOException.class, journal::sync);
+            failing.set(false);
+            List<TransactionJournal.Entry> replayed = new ArrayList<>();
+            int count = journal.replayAll(replayed::addAll);
+
+            //then
+            assertTrue(appended.stream().allMatch(CompletableFuture::isCompletedExceptionally));
+            assertEquals(6, count);
+            assertEquals(1, journal.release(transactionIds -> true));
+        }
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static TransactionJournal.Entry entry(long id, TransactionType transactionType,
+                                                  Long amount, LocalDateTime transactedAt) {
+        return new TransactionJournal.Entry(TransactionIdCodec.format(id), "1000000012",
+                transactionType, amount, transactedAt, 900L);
+    }
+}
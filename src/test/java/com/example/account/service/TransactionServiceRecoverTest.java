@@ -0,0 +1,109 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/*
+* @Retryable 프록시를 거쳐도 재시도 대상이 아닌 예외는 그대로 나와야 한다.
+* version 충돌은 재시도 후 ACCOUNT_TRANSACTION_LOCK으로 끝나야 한다.
+* (context를 새로 띄우지 않도록 @MockBean 대신 프록시 안쪽 repository만 바꿔 끼운다)
+* */
+@SpringBootTest
+class TransactionServiceRecoverTest {
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+
+    private final AccountuserRepository conflictingRepository = mock(AccountuserRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        Object target = AopTestUtils.getUltimateTargetObject(transactionService);
+        ReflectionTestUtils.setField(target, "accountuserRepository", conflictingRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Object target = AopTestUtils.getUltimateTargetObject(transactionService);
+        ReflectionTestUtils.setField(target, "accountuserRepository", accountuserRepository);
+    }
+
+    @Test
+    @DisplayName("version 충돌이 계속되면 3번 시도 후 lock 실패로 recover")
+    void useBalance_retryThenRecover() {
+        //given
+        given(conflictingRepository.findById(anyLong()))
+                .willThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(1L, "1000000000", 100L));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(conflictingRepository, times(3)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("version 충돌 후 재시도에서 나온 업무 오류는 그대로 전달")
+    void useBalance_retryThenBusinessError() {
+        //given
+        given(conflictingRepository.findById(anyLong()))
+                .willThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L))
+                .willReturn(Optional.empty());
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(1L, "1000000000", 100L));
+
+        //then
+        assertEquals(ErrorCode.USER_NOT_FOUND, exception.getErrorCode());
+        verify(conflictingRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("잔액사용 업무 오류는 recover에서 감싸지 않음")
+    void useBalance_rethrowAccountException() {
+        //given
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(999L, "1000000000", 100L));
+
+        //then
+        assertEquals(ErrorCode.USER_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("잔액사용취소 업무 오류는 recover에서 감싸지 않음")
+    void cancelBalance_rethrowAccountException() {
+        //given
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.cancelBalance("0000000000000000001", "1000000000", 100L));
+
+        //then
+        assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, exception.getErrorCode());
+    }
+}
@@ -4,6 +4,7 @@ import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistory;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountuserRepository;
@@ -16,12 +17,17 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -41,6 +47,17 @@ class TransactionServiceTest {
     private AccountuserRepository accountuserRepository;
     @Mock
     private AccountRepository accountRepository;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private TransactionIdGenerator transactionIdGenerator;
+    @Mock
+    private BalanceLedgerService balanceLedgerService;
+    @Spy
+    private TransactionCache transactionCache = new TransactionCache(100L, Duration.ofMinutes(1));
+
+    @Captor
+    private ArgumentCaptor<List<Transaction>> transactionsCaptor;
 
     @InjectMocks
     private TransactionService transactionService;
@@ -82,6 +99,195 @@ class TransactionServiceTest {
         assertEquals(TransactionResultType.S,transactionDto.getTransactionResultType());
     }
 
+    @Test
+    @DisplayName("PESSIMISTIC 전략이면 FOR UPDATE로 계좌조회")
+    void useBalance_rowLock(){
+        AccountUser user=AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(1L);
+        //given
+        given(accountuserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+
+        Account account = Account
+                .builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .accountNumber("1234567890")
+                .build();
+        given(accountRepository.findByAccountNumberForUpdate(anyString(),anyLong()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willReturn(Transaction.builder()
+                        .account(account)
+                        .transactionType(TransactionType.USE)
+                        .transactionResultType(TransactionResultType.S)
+                        .transactionId("123456")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(1000L)
+                        .balanceSnapshot(0L)
+                        .build());
+
+        //when
+        RowLockContext.setLockTimeout(3000L);
+        try {
+            transactionService.useBalance(1L, "1234567890", 1000L);
+        } finally {
+            RowLockContext.clear();
+        }
+
+        //then
+        verify(accountRepository,times(1)).findByAccountNumberForUpdate("1234567890",3000L);
+        verify(accountRepository,times(0)).findByAccountNumber(anyString());
+    }
+
+    @Test
+    @DisplayName("이체는 출금/입금 거래를 한번에 저장")
+    void transferBalanceTest(){
+        AccountUser user=AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(1L);
+        AccountUser other=AccountUser.builder()
+                .name("Lupi").build();
+        other.setId(2L);
+        //given
+        given(accountuserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        Account fromAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .accountNumber("2000000000")
+                .build();
+        Account toAccount = Account.builder()
+                .accountUser(other)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(100L)
+                .accountNumber("1000000000")
+                .build();
+        given(accountRepository.findByAccountNumber("2000000000"))
+                .willReturn(Optional.of(fromAccount));
+        given(accountRepository.findByAccountNumber("1000000000"))
+                .willReturn(Optional.of(toAccount));
+        given(transactionRepository.saveAll(anyList()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        TransactionDto transactionDto = transactionService.transferBalance(
+                1L, "2000000000", "1000000000", 300L);
+
+        //then
+        verify(transactionRepository,times(1)).saveAll(transactionsCaptor.capture());
+        List<Transaction> transactions = transactionsCaptor.getValue();
+        assertEquals(TransactionType.TRANSFER_OUT,transactions.get(0).getTransactionType());
+        assertEquals(700L,transactions.get(0).getBalanceSnapshot());
+        assertEquals(TransactionType.TRANSFER_IN,transactions.get(1).getTransactionType());
+        assertEquals(400L,transactions.get(1).getBalanceSnapshot());
+        assertEquals("2000000000",transactionDto.getAccountNumber());
+        assertEquals(TransactionType.TRANSFER_OUT,transactionDto.getTransactionType());
+        verify(applicationEventPublisher,times(4)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("이체 - 잔액부족이면 어느 계좌도 바뀌지 않음")
+    void transferBalance_exceedAmount(){
+        AccountUser user=AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(1L);
+        //given
+        given(accountuserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        Account fromAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(100L)
+                .accountNumber("1000000000")
+                .build();
+        Account toAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(100L)
+                .accountNumber("2000000000")
+                .build();
+        given(accountRepository.findByAccountNumber("1000000000"))
+                .willReturn(Optional.of(fromAccount));
+        given(accountRepository.findByAccountNumber("2000000000"))
+                .willReturn(Optional.of(toAccount));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.transferBalance(1L, "1000000000", "2000000000", 300L));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE,exception.getErrorCode());
+        assertEquals(100L,toAccount.getBalance());
+        verify(transactionRepository,times(0)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("이체 - 같은 계좌로는 이체할 수 없음")
+    void transferBalance_sameAccount(){
+        //given
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.transferBalance(1L, "1000000000", "1000000000", 300L));
+
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST,exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("거래내역 - size+1건이 읽히면 마지막 항목으로 다음 cursor를 만든다")
+    void getTransactionHistory_nextCursor(){
+        //given
+        Account account = Account.builder()
+                .accountNumber("1000000000")
+                .build();
+        account.setId(7L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        LocalDateTime transactedAt = LocalDateTime.of(2022, 3, 1, 10, 0);
+        given(transactionRepository.findHistory(anyLong(), any(), any(), anyInt()))
+                .willReturn(List.of(
+                        new TransactionHistory.Item(3L, "3", TransactionType.USE,
+                                TransactionResultType.S, 100L, 900L, transactedAt),
+                        new TransactionHistory.Item(2L, "2", TransactionType.USE,
+                                TransactionResultType.S, 100L, 1000L, transactedAt),
+                        new TransactionHistory.Item(1L, "1", TransactionType.USE,
+                                TransactionResultType.S, 100L, 1100L, transactedAt)));
+        TransactionHistory.Request request = new TransactionHistory.Request();
+        request.setSize(2);
+
+        //when
+        TransactionHistory.Response response =
+                transactionService.getTransactionHistory("1000000000", request);
+
+        //then
+        verify(transactionRepository,times(1)).findHistory(7L, request, null, 3);
+        assertEquals(2, response.getTransactions().size());
+        TransactionHistory.Cursor cursor = TransactionHistory.Cursor.decode(response.getNextCursor());
+        assertEquals(2L, cursor.getId());
+        assertEquals(transactedAt, cursor.getTransactedAt());
+    }
+
+    @Test
+    @DisplayName("거래내역 - 잘못된 cursor")
+    void getTransactionHistory_invalidCursor(){
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder().accountNumber("1000000000").build()));
+        TransactionHistory.Request request = new TransactionHistory.Request();
+        request.setCursor("bm90LWEtY3Vyc29y");
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.getTransactionHistory("1000000000", request));
+
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
     @Test
     void useBalance_UserNotFound(){
         //give
@@ -398,8 +604,8 @@ class TransactionServiceTest {
                 .transactionId("ddddd")
                 .build();
         //given
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(transaction));
+        given(transactionRepository.findDtoByTransactionId(anyString()))
+                .willReturn(Optional.of(TransactionDto.fromEntity(transaction)));
         //when
 
         //then
@@ -410,16 +616,50 @@ class TransactionServiceTest {
 
     }
 
+    @Test
+    @DisplayName("같은 거래 재조회는 캐시에서")
+    void queryTransaction_fromCache(){
+        //given
+        AccountUser user=AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(1L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1000L)
+                .accountNumber("1234567890")
+                .build();
+        Transaction transaction=Transaction.builder()
+                .transactedAt(LocalDateTime.now())
+                .account(account)
+                .amount(USE_AMOUNT)
+                .balanceSnapshot(900L)
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .transactionId("0000000000000000001")
+                .build();
+        given(transactionRepository.findDtoByTransactionId(anyString()))
+                .willReturn(Optional.of(TransactionDto.fromEntity(transaction)));
+
+        //when
+        transactionService.queryTransaction("0000000000000000001");
+        TransactionDto transactionDto = transactionService.queryTransaction("0000000000000000001");
+
+        //then
+        verify(transactionRepository, times(1)).findDtoByTransactionId("0000000000000000001");
+        assertEquals(USE_AMOUNT, transactionDto.getAmount());
+    }
+
     @Test
     @DisplayName("해당거래내역 없음")
     void QueryTransaction_NotFoundTransaction(){
         //given
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findDtoByTransactionId(anyString()))
                 .willReturn(Optional.empty());
 
         //when
         AccountException exception=assertThrows(AccountException.class,
-                ()->transactionService.queryTransaction(anyString()));
+                ()->transactionService.queryTransaction("ddddd"));
 
         //then
         assertEquals(ErrorCode.TRANSACTION_NOT_FOUND,exception.getErrorCode());
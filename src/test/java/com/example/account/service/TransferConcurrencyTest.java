@@ -0,0 +1,114 @@
+package com.example.account.service;
+
+import com.example.account.controller.TransactionController;
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.TransferBalance;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountuserRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* @AccountLock(REDIS)으로 서로 반대 방향의 이체를 동시에 실행
+* lock 순서가 고정되어 있지 않으면 교착 -> tryLock 시간초과(ACCOUNT_TRANSACTION_LOCK)로 나타난다.
+* */
+@SpringBootTest
+class TransferConcurrencyTest {
+    private static final int ACCOUNT_COUNT = 4;
+    private static final int THREAD_COUNT = 8;
+    private static final int TRANSFERS_PER_THREAD = 50;
+    private static final long INITIAL_BALANCE = 1_000_000L;
+
+    @Autowired
+    private TransactionController transactionController;
+    @Autowired
+    private AccountRepository accountRepository;
+    @Autowired
+    private AccountuserRepository accountuserRepository;
+
+    @Test
+    @DisplayName("반대 방향 이체를 동시에 실행해도 교착없이 끝나고 잔액 합계가 유지됨")
+    void opposingTransfers_noDeadlock() throws InterruptedException {
+        //given
+        List<String> accountNumbers = saveAccounts();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        ConcurrentLinkedQueue<AccountException> failures = new ConcurrentLinkedQueue<>();
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            executorService.submit(() -> {
+                startLatch.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < TRANSFERS_PER_THREAD; j++) {
+                    int from = random.nextInt(ACCOUNT_COUNT);
+                    int to = (from + 1 + random.nextInt(ACCOUNT_COUNT - 1)) % ACCOUNT_COUNT;
+                    try {
+                        transactionController.transferBalance(new TransferBalance.Request(3L,
+                                accountNumbers.get(from), accountNumbers.get(to),
+                                10L + random.nextInt(100)));
+                        succeeded.incrementAndGet();
+                    } catch (AccountException e) {
+                        failures.add(e);
+                    }
+                }
+                return null;
+            });
+        }
+
+        //when
+        startLatch.countDown();
+        executorService.shutdown();
+        boolean finished = executorService.awaitTermination(60, TimeUnit.SECONDS);
+
+        //then
+        assertTrue(finished);
+        assertTrue(failures.stream()
+                .allMatch(e -> e.getErrorCode() == ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+        //경합으로 인한 대기 시간초과는 드물게 생길 수 있지만 교착이면 대부분 실패한다.
+        assertTrue(failures.size() < THREAD_COUNT * TRANSFERS_PER_THREAD / 20,
+                () -> "failed transfers: " + failures.size());
+        assertEquals(THREAD_COUNT * TRANSFERS_PER_THREAD, succeeded.get() + failures.size());
+        long totalBalance = accountNumbers.stream()
+                .mapToLong(accountNumber -> accountRepository.findByAccountNumber(accountNumber)
+                        .get().getBalance())
+                .sum();
+        assertEquals(INITIAL_BALANCE * ACCOUNT_COUNT, totalBalance);
+    }
+
+    private List<String> saveAccounts() {
+        AccountUser user = accountuserRepository.findById(3L).get();
+        List<String> accountNumbers = new ArrayList<>();
+        for (int i = 0; i < ACCOUNT_COUNT; i++) {
+            String accountNumber = String.valueOf(6_000_000_000L + i);
+            accountRepository.save(Account.builder()
+                    .accountUser(user)
+                    .accountNumber(accountNumber)
+                    .accountStatus(AccountStatus.IN_USE)
+                    .balance(INITIAL_BALANCE)
+                    .regiteredAt(LocalDateTime.now())
+                    .build());
+            accountNumbers.add(accountNumber);
+        }
+        return accountNumbers;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.account.type;
+
+import java.util.Locale;
+
+public enum SqlStatementType {
+    SELECT,
+    INSERT,
+    UPDATE,
+    DELETE,
+    SEQUENCE,
+    OTHER;
+
+    public static SqlStatementType of(String sql) {
+        String statement = sql.stripLeading().toLowerCase(Locale.ROOT);
+        if (statement.contains("next value for")) {
+            return SEQUENCE;
+        }
+        if (statement.startsWith("select")) {
+            return SELECT;
+        }
+        if (statement.startsWith("insert")) {
+            return INSERT;
+        }
+        if (statement.startsWith("update")) {
+            return UPDATE;
+        }
+        if (statement.startsWith("delete")) {
+            return DELETE;
+        }
+        return OTHER;
+    }
+}